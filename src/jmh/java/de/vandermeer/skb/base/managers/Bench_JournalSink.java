@@ -0,0 +1,109 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+
+/**
+ * Throughput benchmarks for persisting messages: binary records in a memory-mapped {@link JournalSink} compared to rendered text in a {@link RollingFileSink}.
+ * 
+ * Every operation writes a fresh (not yet rendered) message, so the file sink includes the cost of rendering.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class Bench_JournalSink {
+
+	/** Directory for journal and file. */
+	File dir;
+
+	/** The journal sink. */
+	JournalSink journal;
+
+	/** The file sink. */
+	RollingFileSink file;
+
+	/** The renderer for messages. */
+	MessageRenderer renderer;
+
+	/** Running number for messages. */
+	int count;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		this.dir = Files.createTempDirectory("skb-bench").toFile();
+		this.journal = new JournalSink(this.dir, "bench", 64 * 1024 * 1024, 4, E_FlushPolicy.BUFFER);
+		this.file = new RollingFileSink(new File(this.dir, "bench.log"), 64 * 1024 * 1024, 4, E_FlushPolicy.BUFFER);
+		this.renderer = new CompiledMessageRenderer();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		this.journal.close();
+		this.file.close();
+		for(File f : this.dir.listFiles()){
+			f.delete();
+		}
+		this.dir.delete();
+	}
+
+	/**
+	 * Returns a new reported message.
+	 * @return new message
+	 */
+	protected ReportedMessage next(){
+		return new ReportedMessage(E_MessageType.ERROR, new Message5WH_Builder()
+				.setType(E_MessageType.ERROR)
+				.setReporter("bench")
+				.setWho("Bench_JournalSink")
+				.setWhere("src/file.txt", this.count++, 12)
+				.addWhat("unexpected token <", "}", ">")
+				.addWhy("because the parser expected an identifier")
+				.build(), this.renderer)
+		;
+	}
+
+	@Benchmark
+	public void journal(){
+		this.journal.write(this.next());
+	}
+
+	@Benchmark
+	public void file(){
+		this.file.write(this.next());
+	}
+
+}
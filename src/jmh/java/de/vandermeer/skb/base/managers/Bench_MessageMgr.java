@@ -0,0 +1,106 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * Benchmarks for reporting messages to a {@link MessageMgr} with a console, a logger, or a disabled handler, or to a counting-only manager.
+ * 
+ * The console and logger handlers write every message, so their results include the cost of the output (redirect the output when running them).
+ * Run with {@code -prof gc} (the default of the {@code env-jmh} profile) to see allocation rates per operation.
+ * Compare {@code reportCreated} (new builder, buffers, and message per call) with {@code reportRecycled} (reusing builder with recycled message).
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class Bench_MessageMgr {
+
+	/** The handler for errors: console, logger, disabled (console with printing switched off), or counting (counting-only manager). */
+	@Param({"console", "logger", "disabled", "counting"})
+	String handler;
+
+	/** The manager. */
+	MessageMgr mm;
+
+	/** The message to report. */
+	Message5WH message;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		MessageMgrBuilder builder = new MessageMgrBuilder("bench");
+		switch(this.handler){
+			case "logger":
+				builder.setHandler(E_MessageType.ERROR, LoggerFactory.getLogger(Bench_MessageMgr.class));
+				break;
+			case "counting":
+				builder.setHandler(E_MessageType.ERROR).enableCountingOnly(10);
+				break;
+			default:
+				builder.setHandler(E_MessageType.ERROR);
+				break;
+		}
+		MessageConsole.PRINT_MESSAGES = !"disabled".equals(this.handler);
+		this.mm = builder.build();
+		this.message = MessageMgr.createErrorMessage("benchmark message {} of {}", 1, "bench");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown(){
+		MessageConsole.PRINT_MESSAGES = true;
+	}
+
+	@TearDown(Level.Iteration)
+	public void clear(){
+		this.mm.clear();
+	}
+
+	@Benchmark
+	public boolean report(){
+		return this.mm.report(this.message);
+	}
+
+	@Benchmark
+	public boolean reportCreated(){
+		return this.mm.report(MessageMgr.createErrorMessage("benchmark message {} of {}", 1, "bench"));
+	}
+
+	@Benchmark
+	public boolean reportRecycled(){
+		return this.mm.reportError("benchmark message {} of {}", 1, "bench");
+	}
+
+}
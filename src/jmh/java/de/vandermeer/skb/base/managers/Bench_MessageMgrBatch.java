@@ -0,0 +1,82 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+
+/**
+ * Benchmarks for reporting a large set of messages to a {@link MessageMgr} one by one and as a batch.
+ * 
+ * Messages are written to a memory sink and collected, so every message is rendered.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class Bench_MessageMgrBatch {
+
+	/** Number of messages per operation. */
+	@Param({"100", "10000"})
+	int size;
+
+	/** The manager. */
+	MessageMgr mm;
+
+	/** The messages to report. */
+	List<Message5WH> messages;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		this.messages = new ArrayList<>(this.size);
+		for(int i=0; i<this.size; i++){
+			this.messages.add(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("bench").setWhere("file", i, 1).addWhat("benchmark message " + i).build());
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void manager(){
+		this.mm = new MessageMgrBuilder("bench").setHandler(E_MessageType.ERROR, 0, new MemorySink(this.size)).enableMessageCollection().build();
+	}
+
+	@Benchmark
+	public boolean report(){
+		return this.mm.report(this.messages);
+	}
+
+	@Benchmark
+	public boolean reportBatch(){
+		return this.mm.reportBatch(this.messages);
+	}
+
+}
@@ -0,0 +1,112 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * Contention benchmarks for {@link MessageMgr} counters, many threads reporting into one shared manager.
+ * 
+ * Run with for instance {@code -Djmh.args="Bench_MessageMgrContention -t 1"} and {@code -t 32} to compare scaling.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class Bench_MessageMgrContention {
+
+	/** Shared manager, console output disabled. */
+	MessageMgr mm;
+
+	/** Shared handler for the raw counter benchmark. */
+	MessageTypeHandler handler;
+
+	/** The message to report. */
+	Message5WH message;
+
+	@Setup(Level.Trial)
+	public void setup(){
+		MessageConsole.PRINT_MESSAGES = false;
+		this.mm = new MessageMgrBuilder("bench")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.WARNING)
+				.setHandler(E_MessageType.INFO)
+				.enableConcurrentReporting()
+				.build()
+		;
+		this.handler = new MessageTypeHandler(E_MessageType.ERROR);
+		this.message = MessageMgr.createErrorMessage("contention benchmark message");
+	}
+
+	@TearDown(Level.Iteration)
+	public void clear(){
+		this.mm.clear();
+		this.handler.clear();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void handlerCount(){
+		this.handler.count.increment();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean report(){
+		return this.mm.report(this.message);
+	}
+
+	@Benchmark
+	@Group("reportAndQuery")
+	@GroupThreads(7)
+	public boolean reportAndQuery_report(){
+		return this.mm.report(this.message);
+	}
+
+	@Benchmark
+	@Group("reportAndQuery")
+	@GroupThreads(1)
+	public boolean reportAndQuery_hasErrors(){
+		return this.mm.hasErrors();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public int getMessageCount(){
+		return this.mm.getMessageCount(E_MessageType.ERROR);
+	}
+
+}
@@ -0,0 +1,90 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+
+/**
+ * Benchmarks for rendering a {@link Message5WH} with StringTemplate interpretation and with the {@link CompiledMessageRenderer}, for the default and for a custom STGroup.
+ * 
+ * The custom STGroup is the test resource {@code 5wh-example.stg}, which cannot be translated and is always interpreted.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class Bench_MessageRenderer {
+
+	/** Renderer using StringTemplate interpretation. */
+	MessageRenderer interpreted;
+
+	/** Renderer using the translated default STGroup. */
+	CompiledMessageRenderer compiled;
+
+	/** Renderer using a custom STGroup. */
+	MessageRenderer custom;
+
+	/** A message with all parts set. */
+	Message5WH message;
+
+	@Setup
+	public void setup(){
+		this.interpreted = new MessageRenderer();
+		this.compiled = new CompiledMessageRenderer();
+		this.custom = new MessageRenderer("de/vandermeer/skb/base/managers/5wh-example.stg");
+		this.message = new Message5WH_Builder()
+				.setType(E_MessageType.ERROR)
+				.setReporter("bench")
+				.setWho("Bench_MessageRenderer")
+				.setWhere("src/file.txt", 100, 12)
+				.addWhat("unexpected token <", "}", ">")
+				.addWhy("because the parser expected an identifier")
+				.addHow("remove the token")
+				.build()
+		;
+	}
+
+	@Benchmark
+	public String interpreted(){
+		return this.interpreted.render(this.message);
+	}
+
+	@Benchmark
+	public String compiled(){
+		return this.compiled.render(this.message);
+	}
+
+	@Benchmark
+	public String custom(){
+		return this.custom.render(this.message);
+	}
+
+}
@@ -0,0 +1,116 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.message;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.text.StrBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.vandermeer.skb.base.managers.MessageMgr;
+
+/**
+ * Benchmarks for building and rendering a {@link Message5WH}, including the creation of messages with formatted arguments in {@link MessageMgr}.
+ * 
+ * Run with {@code -prof gc} (the default of the {@code env-jmh} profile) to see allocation rates per operation.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class Bench_Message5WH {
+
+	/** A message with all parts set. */
+	Message5WH message;
+
+	/** Reused string builder for rendering into an appendable. */
+	StringBuilder sb;
+
+	@Setup
+	public void setup(){
+		this.message = this.build();
+		this.sb = new StringBuilder(256);
+	}
+
+	@Benchmark
+	public Message5WH build(){
+		return new Message5WH_Builder()
+				.setType(E_MessageType.ERROR)
+				.setReporter("bench")
+				.setWho("Bench_Message5WH")
+				.setWhere("src/file.txt", 100, 12)
+				.addWhat("unexpected token <", "}", ">")
+				.addWhy("because the parser expected an identifier")
+				.addHow("remove the token")
+				.build()
+		;
+	}
+
+	@Benchmark
+	public Message5WH buildLocal(){
+		return Message5WH_Builder.local()
+				.setType(E_MessageType.ERROR)
+				.setReporter("bench")
+				.setWho("Bench_Message5WH")
+				.setWhere("src/file.txt", 100, 12)
+				.addWhat("unexpected token <", "}", ">")
+				.addWhy("because the parser expected an identifier")
+				.addHow("remove the token")
+				.build()
+		;
+	}
+
+	/**
+	 * Creates a message with formatted arguments and formats its What? part, comparable to the formatting when the message is created.
+	 * @return formatted What? part
+	 */
+	@Benchmark
+	public StrBuilder createErrorMessage(){
+		return MessageMgr.createErrorMessage("unexpected token {} at {}:{}", "}", 100, 12).getWhat();
+	}
+
+	/**
+	 * Creates a message with formatted arguments without formatting it, as for a message that is counted but never rendered.
+	 * @return message
+	 */
+	@Benchmark
+	public Message5WH createErrorMessageUnformatted(){
+		return MessageMgr.createErrorMessage("unexpected token {} at {}:{}", "}", 100, 12);
+	}
+
+	@Benchmark
+	public String render(){
+		return this.message.render();
+	}
+
+	@Benchmark
+	public StringBuilder renderAppendable() throws IOException{
+		this.sb.setLength(0);
+		this.message.render(this.sb);
+		return this.sb;
+	}
+
+}
@@ -0,0 +1,302 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.console;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.vandermeer.skb.interfaces.MessageConsole;
+import de.vandermeer.skb.interfaces.categories.has.HasPrompt;
+
+/**
+ * An input pump: a single background thread reading lines from a reader into a bounded queue.
+ * 
+ * Consumers take lines from the queue, blocking until a line is available, see {@link #take()}, or with a timeout, see {@link #poll(long, TimeUnit)}.
+ * There is no polling, a line is handed to a waiting consumer as soon as it has been read, and an interrupted consumer returns immediately.
+ * The pump thread blocks in the reader while no input is available and stops at the end of input.
+ * 
+ * Standard input must be read by a single pump, use {@link #getStdIn(String)} to get the shared pump for it.
+ * The shared pump should not be closed, since a thread blocked in reading standard input cannot be stopped.
+ * Any other reader should be read by a single pump as well, use {@link #get(BufferedReader, String)} to get the shared pump for a reader.
+ * A shared pump is released when it is closed or when a consumer has taken the end of input, the next call then starts a new pump.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class InputPump {
+
+	/** Capacity of the queue, the pump thread stops reading while the queue is full. */
+	public static final int CAPACITY = 1024;
+
+	/** Marker for the end of input. */
+	protected static final Object END = new Object();
+
+	/** The shared pump for standard input, null if not yet created. */
+	protected static InputPump stdin;
+
+	/** Shared pumps for readers, by identity of the reader. */
+	protected static final Map<BufferedReader, InputPump> pumps = new IdentityHashMap<>();
+
+	/** The reader to read lines from. */
+	protected final BufferedReader reader;
+
+	/** Identifier used for the thread name and in error messages. */
+	protected final String id;
+
+	/** Lines read but not yet taken, followed by {@link #END} at the end of input. */
+	protected final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(CAPACITY);
+
+	/** The pump thread. */
+	protected final Thread thread;
+
+	/** Flag for a consumer having taken the end of input. */
+	protected volatile boolean endOfInput;
+
+	/** Flag for a closed pump. */
+	protected volatile boolean closed;
+
+	/**
+	 * Returns a new pump and starts its thread.
+	 * @param reader the reader to read lines from
+	 * @param id identifier used for the thread name and in error messages
+	 * @throws NullPointerException if reader was null
+	 */
+	public InputPump(BufferedReader reader, String id){
+		if(reader==null){
+			throw new NullPointerException("reader cannot be null");
+		}
+		this.reader = reader;
+		this.id = id;
+		this.thread = new Thread(this::pump, "skb-input-pump-" + id);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Returns the shared pump for standard input (UTF-8), creating it on first call.
+	 * @param logID a string for logging in case standard input cannot be opened with UTF-8 encoding
+	 * @return pump for standard input, null if standard input could not be opened
+	 */
+	public static synchronized InputPump getStdIn(String logID){
+		if(stdin==null){
+			BufferedReader reader = MessageConsole.getStdIn(logID);
+			if(reader!=null){
+				stdin = new InputPump(reader, "stdin");
+			}
+		}
+		return stdin;
+	}
+
+	/**
+	 * Returns the shared pump for a reader, creating it on first call.
+	 * @param reader the reader to read lines from
+	 * @param id identifier used for the thread name and in error messages, only used when the pump is created
+	 * @return pump for the reader
+	 * @throws NullPointerException if reader was null
+	 */
+	public static synchronized InputPump get(BufferedReader reader, String id){
+		InputPump ret = pumps.get(reader);
+		if(ret==null){
+			ret = new InputPump(reader, id);
+			pumps.put(reader, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Releases a shared pump, so that the next call to {@link #get(BufferedReader, String)} for its reader starts a new pump.
+	 * @param pump the pump to release
+	 */
+	protected static synchronized void release(InputPump pump){
+		if(pumps.get(pump.reader)==pump){
+			pumps.remove(pump.reader);
+		}
+	}
+
+	/**
+	 * The pump loop, reads lines until the end of input or until the pump is closed.
+	 */
+	protected void pump(){
+		try{
+			String line;
+			while(!this.closed && (line = this.reader.readLine())!=null){
+				this.queue.put(line);
+			}
+			this.queue.put(END);
+		}
+		catch(IOException ex){
+			if(!this.closed){
+				MessageConsole.conError("{}: reading input failed: {}", this.id, ex.getMessage());
+			}
+			this.queue.offer(END);
+		}
+		catch(InterruptedException ignore){
+			// closed
+		}
+	}
+
+	/**
+	 * Returns the next line, waiting until a line is available.
+	 * @return next line, null at the end of input
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 */
+	public String take() throws InterruptedException {
+		if(this.endOfInput){
+			return null;
+		}
+		return this.taken(this.queue.take());
+	}
+
+	/**
+	 * Returns the next line, waiting up to a timeout for a line to become available.
+	 * @param timeout the timeout
+	 * @param unit unit of the timeout
+	 * @return next line, null if the timeout elapsed or at the end of input
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 */
+	public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+		if(this.endOfInput){
+			return null;
+		}
+		return this.taken(this.queue.poll(timeout, unit));
+	}
+
+	/**
+	 * Processes an element taken from the queue.
+	 * @param o the element
+	 * @return the element as line, null for the end of input
+	 */
+	protected String taken(Object o){
+		if(o==END){
+			this.endOfInput = true;
+			release(this);
+			// leave the marker for other consumers
+			this.queue.offer(END);
+			return null;
+		}
+		return (String)o;
+	}
+
+	/**
+	 * Tests if the end of input has been reached, that is a consumer has taken all lines.
+	 * @return true if the end of input has been reached, false otherwise
+	 */
+	public boolean isEndOfInput(){
+		return this.endOfInput;
+	}
+
+	/**
+	 * Closes the pump, the pump thread stops as soon as it is not blocked in the reader anymore.
+	 * The reader is not closed.
+	 */
+	public void close(){
+		this.closed = true;
+		release(this);
+		this.thread.interrupt();
+	}
+
+	/**
+	 * Returns a buffered reader whose {@link BufferedReader#readLine()} takes lines from the pump.
+	 * Empty lines are skipped.
+	 * The returned reader only supports {@code readLine()} and {@code ready()}, all other read methods see an empty input, closing it has no effect (use {@link #close()} to close the pump).
+	 * @param timeout timeout in milliseconds for {@code readLine()}, 0 to wait until a line is available
+	 * @param emptyPrint a printout to realize on an empty line, for prompts, set null if not required
+	 * @return new reader
+	 */
+	public PumpReader getReader(long timeout, HasPrompt emptyPrint){
+		return new PumpReader(timeout, emptyPrint);
+	}
+
+	/**
+	 * A buffered reader taking lines from the pump.
+	 * The reader is built on an empty reader, so that methods other than {@link #readLine()} and {@link #ready()} cannot take characters from the pump's reader.
+	 */
+	public class PumpReader extends BufferedReader {
+
+		/** Timeout in milliseconds for reading a line, 0 for none. */
+		protected final long timeout;
+
+		/** Printout for empty lines, null for none. */
+		protected final HasPrompt emptyPrint;
+
+		/**
+		 * Returns a new reader.
+		 * @param timeout timeout in milliseconds for reading a line, 0 for none
+		 * @param emptyPrint printout for empty lines, null for none
+		 */
+		protected PumpReader(long timeout, HasPrompt emptyPrint){
+			super(new StringReader(""), 1);
+			this.timeout = timeout;
+			this.emptyPrint = emptyPrint;
+		}
+
+		/**
+		 * Returns the next non-empty line.
+		 * @return next line, null if the timeout elapsed, the end of input has been reached, or the calling thread was interrupted (the interrupt flag is then set)
+		 */
+		@Override
+		public String readLine(){
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeout);
+			try{
+				while(true){
+					String ret;
+					if(this.timeout>0){
+						ret = InputPump.this.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					}
+					else{
+						ret = InputPump.this.take();
+					}
+					if(ret==null || !"".equals(ret)){
+						return ret;
+					}
+					if(this.emptyPrint!=null){
+						System.out.print(this.emptyPrint.prompt());
+					}
+				}
+			}
+			catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+
+		@Override
+		public boolean ready(){
+			return !InputPump.this.queue.isEmpty();
+		}
+
+		/**
+		 * Tests if the end of input has been reached.
+		 * @return true if the end of input has been reached, false otherwise
+		 */
+		public boolean isEndOfInput(){
+			return InputPump.this.isEndOfInput();
+		}
+
+		@Override
+		public void close(){
+			// the pump and its reader are shared
+		}
+	}
+
+}
@@ -18,18 +18,14 @@ package de.vandermeer.skb.base.console;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import de.vandermeer.skb.interfaces.MessageConsole;
 import de.vandermeer.skb.interfaces.categories.has.HasPrompt;
 
 /**
  * A non-blocking buffered reader.
+ * 
+ * Readers returned by this class take lines from an {@link InputPump}: a single thread reads all input, a read call waits for a line without polling and returns as soon as the line arrives or the calling thread is interrupted.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -39,6 +35,7 @@ public abstract class NonBlockingReader {
 
 	/**
 	 * Returns a new callable for reading strings from a reader with a set timeout of 200ms.
+	 * The callable polls the reader, an {@link InputPump} reads without polling.
 	 * @param reader input stream to read from
 	 * @param emptyPrint a printout to realize on an empty readline string, for prompts, set null if not required
 	 * @return null if input stream is null, results of read on input stream otherwise
@@ -80,21 +77,29 @@ public abstract class NonBlockingReader {
 
 	/**
 	 * Returns a new BufferedReader that uses tries and timeout for readline() for a UTF-8 StdIn.
+	 * The reader takes lines from the shared input pump for standard input, see {@link InputPump#getStdIn(String)}.
 	 * @param logID a string for logging in case StdIn cannot be opened with UTF-8 encoding
 	 * @param tries number of tries for read calls, use one as default
-	 * @param timeout milliseconds for read timeout
+	 * @param timeout milliseconds for read timeout, 0 to wait until a line is available or the reading thread is interrupted
 	 * @param emptyPrint a printout to realize on an empty readline string, for prompts, set null if not required
 	 * @return new reader with parameterized readline() method
 	 */
 	public static BufferedReader getNbReader(String logID, int tries, int timeout, HasPrompt emptyPrint){
-		return NonBlockingReader.getNbReader(MessageConsole.getStdIn(logID), tries, timeout, emptyPrint);
+		InputPump pump = InputPump.getStdIn(logID);
+		if(pump==null){
+			return null;
+		}
+		return pump.getReader((long)tries * timeout, emptyPrint);
 	}
 
 	/**
 	 * Returns a new BufferedReader that uses tries and timeout for readline().
-	 * @param reader original reader to extend, use in combination with {@link MessageConsole#getStdIn(String)} for standard in
+	 * The reader takes lines from the shared {@link InputPump} for the original reader, see {@link InputPump#get(BufferedReader, String)}.
+	 * All readers returned for the same original reader share this pump, so all read calls are served by one background thread.
+	 * Closing the returned reader has no effect, the pump stops at the end of input or when it is closed.
+	 * @param reader original reader to extend, use in combination with {@link MessageConsole#getStdIn(String)} for standard in (or better {@link #getNbReader(String, int, int, HasPrompt)})
 	 * @param tries number of tries for read calls, use one as default
-	 * @param timeout milliseconds for read timeout
+	 * @param timeout milliseconds for read timeout, 0 to wait until a line is available or the reading thread is interrupted
 	 * @param emptyPrint a printout to realize on an empty readline string, for prompts, set null if not required
 	 * @return new reader with parameterized readline() method
 	 */
@@ -102,33 +107,7 @@ public abstract class NonBlockingReader {
 		if(reader==null){
 			return null;
 		}
-		return new BufferedReader(reader){
-			ExecutorService ex = Executors.newSingleThreadExecutor();
-			@Override
-			public String readLine(){
-				String input = null;
-				try {
-					for(int i=0; i<tries; i++) {
-						Future<String> result = ex.submit(NonBlockingReader.getCallWTimeout(reader, emptyPrint));
-						try {
-							input = result.get(timeout, TimeUnit.MILLISECONDS);
-							break;
-						}
-						catch(ExecutionException ignore) {}
-						catch(TimeoutException e) {
-							result.cancel(true);
-						}
-						catch(InterruptedException ignore) {
-							ex.shutdownNow();
-						}
-					}
-				}
-				finally {
-					//ex.shutdownNow();
-				}
-				return input;
-			}
-		};
+		return InputPump.get(reader, "reader").getReader((long)tries * timeout, emptyPrint);
 	}
 
 }
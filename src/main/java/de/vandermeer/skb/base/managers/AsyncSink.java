@@ -0,0 +1,170 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * A sink decoupling another sink with its own buffer and background thread, so that a slow sink (for instance a file on a busy disk) cannot stall reporting or other sinks.
+ * 
+ * Messages are rendered on the reporting thread and handed to a bounded buffer.
+ * If the buffer is full, the message is discarded for this sink only and counted, see {@link #getDroppedCount()}.
+ * The wrapped sink is only used by the background thread, so it does not need to be thread safe.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class AsyncSink implements MessageSink {
+
+	/** The wrapped sink. */
+	protected final MessageSink sink;
+
+	/** The dispatcher with buffer and background thread. */
+	protected final MessageDispatcher dispatcher;
+
+	/** Number of messages discarded due to a full buffer. */
+	protected final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Returns a new asynchronous sink.
+	 * @param sink the sink to wrap
+	 * @param capacity capacity of the buffer in messages, must be greater than 0
+	 * @throws IllegalArgumentException if the sink was null or the capacity less than 1
+	 */
+	public AsyncSink(MessageSink sink, int capacity){
+		if(sink==null){
+			throw new IllegalArgumentException("sink cannot be null");
+		}
+		if(capacity<1){
+			throw new IllegalArgumentException("capacity must be greater than 0, was " + capacity);
+		}
+		this.sink = sink;
+		this.dispatcher = new MessageDispatcher(sink.getClass().getSimpleName(), capacity, message -> this.write(this.sink, (ReportedMessage)message));
+	}
+
+	@Override
+	public boolean isEnabled(E_MessageType type){
+		return this.sink.isEnabled(type);
+	}
+
+	@Override
+	public void write(ReportedMessage message){
+		message.getText();
+		if(!this.dispatcher.offer(message.retain())){
+			if(this.dispatcher.isClosed()){
+				this.write(this.sink, message);
+			}
+			else{
+				message.release();
+				this.dropped.increment();
+			}
+		}
+	}
+
+	/**
+	 * Writes a message to the wrapped sink and releases it.
+	 * @param sink the wrapped sink
+	 * @param message the message, retained when it was buffered
+	 */
+	protected void write(MessageSink sink, ReportedMessage message){
+		try{
+			sink.write(message);
+		}
+		finally{
+			message.release();
+		}
+	}
+
+	/**
+	 * Hands a batch of messages to the buffer as a single entry, so that the wrapped sink receives the batch as a whole.
+	 * If the buffer is full, all messages of the batch are discarded and counted.
+	 */
+	@Override
+	public void write(List<ReportedMessage> messages){
+		for(ReportedMessage message : messages){
+			message.retain();
+		}
+		Runnable batch = () -> {
+			try{
+				this.sink.write(messages);
+			}
+			finally{
+				messages.forEach(ReportedMessage::release);
+			}
+		};
+		if(!this.dispatcher.offer(batch)){
+			if(this.dispatcher.isClosed()){
+				batch.run();
+			}
+			else{
+				messages.forEach(ReportedMessage::release);
+				this.dropped.add(messages.size());
+			}
+		}
+	}
+
+	/**
+	 * Waits until all buffered messages are written and then flushes the wrapped sink.
+	 */
+	@Override
+	public void flush(){
+		Runnable flush = this.sink::flush;
+		if(!this.dispatcher.submit(flush)){
+			flush.run();
+		}
+		this.dispatcher.flush();
+	}
+
+	/**
+	 * Writes all buffered messages, stops the background thread, and closes the wrapped sink.
+	 */
+	@Override
+	public void close(){
+		this.dispatcher.close();
+		this.sink.close();
+	}
+
+	@Override
+	public int getQueueDepth(){
+		return this.dispatcher.size();
+	}
+
+	@Override
+	public long getBytesWritten(){
+		return this.sink.getBytesWritten();
+	}
+
+	/**
+	 * Returns the number of messages discarded because the buffer was full.
+	 * @return number of discarded messages
+	 */
+	public long getDroppedCount(){
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Returns the wrapped sink.
+	 * @return wrapped sink
+	 */
+	public MessageSink getSink(){
+		return this.sink;
+	}
+
+}
@@ -0,0 +1,353 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.stringtemplate.v4.ST;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.STGroupFile;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * Renderer for a {@link Message5WH} object that translates its STGroup once into specialized Java code.
+ *
+ * When the renderer is created, the templates {@code message5wh} and {@code where} of the (validated) STGroup are compared with the templates of the shipped default STGroup file {@code 5wh.stg}.
+ * If they are identical, messages are rendered by appending directly into a reusable (per thread) string builder, without any StringTemplate interpretation.
+ * The output is identical to the output of {@link MessageRenderer}, including StringTemplate's handling of null values, collections, arrays, and line breaks.
+ * For any other STGroup the renderer falls back to StringTemplate interpretation, see {@link #isCompiled()}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class CompiledMessageRenderer extends MessageRenderer {
+
+	/** Line separator as used by StringTemplate's writer. */
+	protected static final String NEWLINE = System.getProperty("line.separator");
+
+	/** The STGroup the translated code is written for, loaded privately since {@link MessageRenderer#DEFAULT_STG} and {@link MessageRenderer#DEFAULT_STG_FN} can be changed. */
+	private static final STGroup REFERENCE_STG = new STGroupFile("de/vandermeer/skb/base/managers/5wh.stg");
+
+	/** Reusable string builder per thread. */
+	protected static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	/** Reusable character buffer per thread for writing rendered messages to a writer. */
+	protected static final ThreadLocal<char[]> CHARS = ThreadLocal.withInitial(() -> new char[1024]);
+
+	/** Flag for a successfully compiled STGroup. */
+	protected final boolean compiled;
+
+	/**
+	 * Returns a new compiled renderer for the default STGroup.
+	 */
+	public CompiledMessageRenderer(){
+		super();
+		this.compiled = this.compile();
+	}
+
+	/**
+	 * Returns a new compiled renderer for the given STGroup.
+	 * @param stg given STGroup for the renderer
+	 * @throws IllegalArgumentException if the given STGroup was null or not valid
+	 */
+	public CompiledMessageRenderer(STGroup stg){
+		super(stg);
+		this.compiled = this.compile();
+	}
+
+	/**
+	 * Returns a new compiled renderer with the STGroup read from the given file name (file system or as resource).
+	 * @param filename file to read STGroup from
+	 * @throws IllegalArgumentException if the given file name or STGroup was null or not valid
+	 */
+	public CompiledMessageRenderer(String filename){
+		super(filename);
+		this.compiled = this.compile();
+	}
+
+	/**
+	 * Translates the local STGroup.
+	 * @return true if the STGroup could be translated, false if it must be interpreted
+	 */
+	protected boolean compile(){
+		return CompiledMessageRenderer.sameTemplate(this.stg, REFERENCE_STG, "message5wh")
+				&& CompiledMessageRenderer.sameTemplate(this.stg, REFERENCE_STG, "where");
+	}
+
+	/**
+	 * Tests if a template is defined identically in two STGroups.
+	 * @param stg1 first STGroup
+	 * @param stg2 second STGroup
+	 * @param name name of the template
+	 * @return true if the template source is identical, false otherwise
+	 */
+	protected static boolean sameTemplate(STGroup stg1, STGroup stg2, String name){
+		ST st1 = stg1.getInstanceOf(name);
+		ST st2 = stg2.getInstanceOf(name);
+		if(st1==null || st2==null){
+			return false;
+		}
+		return StringUtils.equals(st1.impl.template, st2.impl.template);
+	}
+
+	/**
+	 * Tests if the renderer's STGroup has been translated.
+	 * @return true if messages are rendered by translated code, false if they are rendered by StringTemplate
+	 */
+	public boolean isCompiled(){
+		return this.compiled;
+	}
+
+	@Override
+	public String render(Message5WH msg){
+		if(this.compiled==false){
+			return super.render(msg);
+		}
+		if(msg==null){
+			return "";
+		}
+
+		StringBuilder sb = BUILDER.get();
+		sb.setLength(0);
+		this.append(msg, sb);
+		return sb.toString();
+	}
+
+	@Override
+	public void render(Message5WH msg, Appendable out) throws IOException {
+		if(this.compiled==false){
+			super.render(msg, out);
+			return;
+		}
+		if(msg==null){
+			return;
+		}
+
+		if(out instanceof StringBuilder){
+			this.append(msg, (StringBuilder)out);
+			return;
+		}
+		StringBuilder sb = BUILDER.get();
+		sb.setLength(0);
+		this.append(msg, sb);
+		write(sb, out);
+	}
+
+	/**
+	 * Writes the content of a string builder to an appendable, for writers in chunks via a reusable character buffer to avoid creating a string.
+	 * @param sb the string builder to write
+	 * @param out the appendable to write to
+	 * @throws IOException if the appendable throws one
+	 */
+	protected static void write(StringBuilder sb, Appendable out) throws IOException {
+		if(out instanceof Writer){
+			char[] chars = CHARS.get();
+			int length = sb.length();
+			for(int start=0; start<length; start+=chars.length){
+				int end = Math.min(length, start + chars.length);
+				sb.getChars(start, end, chars, 0);
+				((Writer)out).write(chars, 0, end - start);
+			}
+		}
+		else{
+			out.append(sb);
+		}
+	}
+
+	/**
+	 * Appends a message to a string builder as the translated template {@code message5wh} would render it.
+	 * @param msg the message, must not be null
+	 * @param sb the string builder to append to
+	 */
+	protected void append(Message5WH msg, StringBuilder sb){
+		E_MessageType type = msg.getType();
+		Object what = (msg.getWhat()!=null && !StringUtils.isBlank(msg.getWhat()))?msg.getWhat():null;
+
+		if(isTrue(msg.getReporter())){
+			appendAttribute(sb, msg.getReporter(), null);
+			sb.append(": ");
+		}
+		if(type==E_MessageType.ERROR && what!=null){
+			sb.append("error ");
+		}
+		if(type==E_MessageType.WARNING && what!=null){
+			sb.append("warning ");
+		}
+		if(isTrue(msg.getWho())){
+			appendAttribute(sb, msg.getWho(), null);
+			sb.append(' ');
+		}
+		if(isTrue(msg.getWhen())){
+			sb.append("at (");
+			appendAttribute(sb, msg.getWhen(), null);
+			sb.append(") ");
+		}
+		if(msg.getWhereLocation()!=null){
+			sb.append("in ");
+			this.appendWhere(msg, sb);
+			sb.append(' ');
+		}
+		if(type==E_MessageType.ERROR){
+			sb.append("-> ");
+		}
+		if(what!=null){
+			appendAttribute(sb, what, null);
+		}
+		if(isTrue(msg.getWhy())){
+			sb.append(NEWLINE).append("        ==> ");
+			appendAttribute(sb, msg.getWhy(), null);
+		}
+		if(isTrue(msg.getHow())){
+			sb.append(NEWLINE).append("        ==> ");
+			appendAttribute(sb, msg.getHow(), null);
+		}
+	}
+
+	/**
+	 * Appends the where part of a message as the translated template {@code where} would render it.
+	 * @param msg the message with a location
+	 * @param sb the string builder to append to
+	 */
+	protected void appendWhere(Message5WH msg, StringBuilder sb){
+		appendAttribute(sb, msg.getWhereLocation(), ".");
+		int line = msg.getWhereLine();
+		int column = msg.getWhereColumn();
+		if(line>0 && column>0){
+			sb.append(' ').append(line).append(':').append(column);
+		}
+		else if(line<1 && column>0){
+			sb.append(" -:").append(column);
+		}
+		else if(line>0){
+			sb.append(' ').append(line).append(":-");
+		}
+	}
+
+	/**
+	 * Tests an attribute as StringTemplate does in an {@code if} expression.
+	 * @param o the attribute
+	 * @return true if the attribute is present, false otherwise
+	 */
+	protected static boolean isTrue(Object o){
+		if(o==null){
+			return false;
+		}
+		if(o instanceof Boolean){
+			return (Boolean)o;
+		}
+		if(o instanceof Collection){
+			return ((Collection<?>)o).size()>0;
+		}
+		if(o instanceof Map){
+			return ((Map<?, ?>)o).size()>0;
+		}
+		if(o instanceof Iterable){
+			return ((Iterable<?>)o).iterator().hasNext();
+		}
+		if(o instanceof Iterator){
+			return ((Iterator<?>)o).hasNext();
+		}
+		return true;
+	}
+
+	/**
+	 * Appends an attribute as StringTemplate writes it: nested templates are rendered, maps, iterables, iterators and arrays are iterated, all other objects are written as string.
+	 * @param sb the string builder to append to
+	 * @param o the attribute, nothing is appended for null
+	 * @param separator separator between elements of multi-valued attributes, null for none
+	 */
+	protected static void appendAttribute(StringBuilder sb, Object o, String separator){
+		if(o==null){
+			return;
+		}
+
+		Iterator<?> it = null;
+		if(o instanceof Map){
+			it = ((Map<?, ?>)o).keySet().iterator();
+		}
+		else if(o instanceof Iterable){
+			it = ((Iterable<?>)o).iterator();
+		}
+		else if(o instanceof Iterator){
+			it = (Iterator<?>)o;
+		}
+		else if(o.getClass().isArray()){
+			boolean seen = false;
+			for(int i=0; i<Array.getLength(o); i++){
+				Object e = Array.get(o, i);
+				if(e!=null){
+					if(seen==true && separator!=null){
+						sb.append(separator);
+					}
+					appendAttribute(sb, e, separator);
+					seen = true;
+				}
+			}
+			return;
+		}
+
+		if(it!=null){
+			boolean seen = false;
+			while(it.hasNext()){
+				Object e = it.next();
+				if(e!=null){
+					if(seen==true && separator!=null){
+						sb.append(separator);
+					}
+					appendAttribute(sb, e, separator);
+					seen = true;
+				}
+			}
+			return;
+		}
+
+		appendText(sb, (o instanceof ST)?((ST)o).render():o.toString());
+	}
+
+	/**
+	 * Appends text as StringTemplate's writer does, that is ignoring carriage returns and writing the line separator for every new line.
+	 * @param sb the string builder to append to
+	 * @param text the text, nothing is appended for null
+	 */
+	protected static void appendText(StringBuilder sb, CharSequence text){
+		if(text==null){
+			return;
+		}
+		int length = text.length();
+		int start = 0;
+		for(int i=0; i<length; i++){
+			char c = text.charAt(i);
+			if(c=='\r' || c=='\n'){
+				sb.append(text, start, i);
+				if(c=='\n'){
+					sb.append(NEWLINE);
+				}
+				start = i + 1;
+			}
+		}
+		sb.append(text, start, length);
+	}
+
+}
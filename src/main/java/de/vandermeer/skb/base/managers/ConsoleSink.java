@@ -0,0 +1,50 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * A sink writing messages to the console using {@link MessageConsole}, enabled if {@link MessageConsole#PRINT_MESSAGES} is set.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class ConsoleSink implements MessageSink {
+
+	@Override
+	public boolean isEnabled(E_MessageType type){
+		return MessageConsole.PRINT_MESSAGES;
+	}
+
+	@Override
+	public void write(ReportedMessage message){
+		switch(message.getType()){
+			case ERROR:
+				MessageConsole.conError(message.getText());
+				break;
+			case INFO:
+				MessageConsole.conInfo(message.getText());
+				break;
+			case WARNING:
+				MessageConsole.conWarn(message.getText());
+				break;
+		}
+	}
+
+}
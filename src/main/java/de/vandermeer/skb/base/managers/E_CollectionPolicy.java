@@ -0,0 +1,49 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+/**
+ * Policies for collecting messages in a {@link MessageMgr}.
+ * All policies but {@link #ALL} use a limit, which is set together with the policy in {@link MessageMgrBuilder#enableMessageCollection(E_CollectionPolicy, long)}.
+ * Message counters are not affected by any policy, they always count all reported messages.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public enum E_CollectionPolicy {
+
+	/** Collect all messages, the limit is ignored. */
+	ALL,
+
+	/** Keep the last (most recently reported) messages, the limit is the number of messages kept. */
+	LAST,
+
+	/** Keep the first messages for each message type, the limit is the number of messages kept per type. */
+	FIRST_PER_TYPE,
+
+	/** Keep the last messages that fit into a memory budget, the limit is the budget in bytes (estimated with two bytes per character). */
+	BYTE_BUDGET,
+
+	/**
+	 * Keep messages encoded in off-heap memory instead of rendered strings on the heap, the limit is the maximum off-heap memory in bytes.
+	 * Messages are rendered when the collection is read, messages that do not fit into the limit are not collected.
+	 * Unlike all other policies, identical messages are collected as often as they are reported.
+	 */
+	OFF_HEAP,
+
+	;
+}
@@ -0,0 +1,48 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * Policies for flushing a buffered {@link MessageSink}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public enum E_FlushPolicy {
+
+	/** Flush after every message. */
+	ALWAYS,
+
+	/** Flush after every error message, so that errors are never lost in a buffer. */
+	ERRORS,
+
+	/** Flush only when the buffer is full, on {@link MessageSink#flush()}, and on {@link MessageSink#close()}. */
+	BUFFER,
+
+	;
+
+	/**
+	 * Tests if a sink with this policy flushes after a message of the given type.
+	 * @param type the message type
+	 * @return true if the sink flushes, false otherwise
+	 */
+	public boolean flushes(E_MessageType type){
+		return this==ALWAYS || (this==ERRORS && type==E_MessageType.ERROR);
+	}
+}
@@ -0,0 +1,35 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+/**
+ * Orders for joining the messages of several {@link MessageMgrFork}s into their parent manager, see {@link MessageMgr#join(java.util.Collection, E_JoinOrder)}.
+ * Messages of a single fork always keep the order in which they have been reported to the fork.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public enum E_JoinOrder {
+
+	/** Join all messages of one fork before the messages of the next fork, forks in the order they have been created; the result does not depend on thread scheduling. */
+	FORK,
+
+	/** Join the messages of all forks interleaved in the order they have been reported, as if they had been reported to the parent directly. */
+	REPORTED,
+
+	;
+}
@@ -0,0 +1,222 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * Reads a journal written by a {@link JournalSink} and replays its messages.
+ * 
+ * Segments are read in order, every segment up to its last complete record.
+ * A record with a wrong checksum (for instance written partially during a crash of the operating system) ends the segment.
+ * Texts (summaries and message sets) are replayed as messages with the text as what.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class JournalReader {
+
+	/** The directory of the journal. */
+	protected final File directory;
+
+	/** The name of the journal. */
+	protected final String name;
+
+	/**
+	 * Returns a new journal reader.
+	 * @param directory the directory of the journal
+	 * @param name the name of the journal
+	 * @throws IllegalArgumentException if directory or name was null
+	 */
+	public JournalReader(File directory, String name){
+		if(directory==null){
+			throw new IllegalArgumentException("directory cannot be null");
+		}
+		if(name==null){
+			throw new IllegalArgumentException("name cannot be null");
+		}
+		this.directory = directory;
+		this.name = name;
+	}
+
+	/**
+	 * Replays all messages of the journal.
+	 * @param consumer function called for every message in the order the messages have been written
+	 * @return number of replayed messages
+	 * @throws IOException if a segment cannot be read
+	 */
+	public int replay(Consumer<Message5WH> consumer) throws IOException{
+		int ret = 0;
+		MessageCodec codec = new MessageCodec();
+		for(File file : this.getSegments()){
+			ByteBuffer bb = map(file);
+			if(bb.limit()<JournalSink.HEADER_SIZE || bb.getInt(0)!=JournalSink.MAGIC){
+				continue;
+			}
+			int end = findEnd(bb);
+			bb.position(JournalSink.HEADER_SIZE);
+			while(bb.position()<end){
+				int length = bb.getInt();
+				bb.getInt();
+				int next = bb.position() + length;
+				consumer.accept(codec.decode(bb));
+				bb.position(next);
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Replays all messages of the journal into a message manager.
+	 * @param mm the manager to report the messages to
+	 * @return number of replayed messages
+	 * @throws IOException if a segment cannot be read
+	 */
+	public int replay(MessageMgr mm) throws IOException{
+		return this.replay(mm::report);
+	}
+
+	/**
+	 * Replays all messages of the journal into an appendable, rendered by the given renderer, each message followed by a line separator.
+	 * @param renderer the renderer for the messages
+	 * @param out the appendable, for instance a writer for a report file
+	 * @return number of replayed messages
+	 * @throws IOException if a segment cannot be read or the appendable throws one
+	 */
+	public int replay(MessageRenderer renderer, Appendable out) throws IOException{
+		String newLine = System.lineSeparator();
+		IOException[] error = new IOException[1];
+		int ret = this.replay(msg -> {
+			if(error[0]==null){
+				try{
+					renderer.render(msg, out);
+					out.append(newLine);
+				}
+				catch(IOException ex){
+					error[0] = ex;
+				}
+			}
+		});
+		if(error[0]!=null){
+			throw error[0];
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns all existing segment files of the journal in order.
+	 * @return segment files
+	 */
+	public List<File> getSegments(){
+		List<File> ret = new ArrayList<>();
+		int last = lastSegment(this.directory, this.name);
+		for(int i=0; i<=last; i++){
+			File file = segmentFile(this.directory, this.name, i);
+			if(file.exists()){
+				ret.add(file);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the file of a segment.
+	 * @param directory the directory of the journal
+	 * @param name the name of the journal
+	 * @param segment the number of the segment
+	 * @return segment file
+	 */
+	static File segmentFile(File directory, String name, int segment){
+		return new File(directory, String.format("%s.%06d%s", name, segment, JournalSink.SUFFIX));
+	}
+
+	/**
+	 * Returns the number of the last segment of a journal.
+	 * @param directory the directory of the journal
+	 * @param name the name of the journal
+	 * @return number of the last segment, -1 if the journal has no segments
+	 */
+	static int lastSegment(File directory, String name){
+		int ret = -1;
+		String[] files = directory.list();
+		if(files==null){
+			return ret;
+		}
+		String prefix = name + ".";
+		for(String file : files){
+			if(file.startsWith(prefix) && file.endsWith(JournalSink.SUFFIX)){
+				try{
+					ret = Math.max(ret, Integer.parseInt(file.substring(prefix.length(), file.length() - JournalSink.SUFFIX.length())));
+				}
+				catch(NumberFormatException ignore){
+					//not a segment of this journal
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the position after the last complete record of a segment.
+	 * @param bb the segment
+	 * @return position after the last complete record
+	 */
+	static int findEnd(ByteBuffer bb){
+		CRC32 crc = new CRC32();
+		int pos = JournalSink.HEADER_SIZE;
+		while(pos + JournalSink.RECORD_HEADER_SIZE<=bb.limit()){
+			int length = bb.getInt(pos);
+			if(length<=0 || pos + JournalSink.RECORD_HEADER_SIZE + length>bb.limit()){
+				break;
+			}
+			ByteBuffer payload = bb.duplicate();
+			payload.limit(pos + JournalSink.RECORD_HEADER_SIZE + length).position(pos + JournalSink.RECORD_HEADER_SIZE);
+			crc.reset();
+			crc.update(payload);
+			if((int)crc.getValue()!=bb.getInt(pos + 4)){
+				break;
+			}
+			pos += JournalSink.RECORD_HEADER_SIZE + length;
+		}
+		return pos;
+	}
+
+	/**
+	 * Maps a segment file for reading.
+	 * @param file the segment file
+	 * @return mapped segment
+	 * @throws IOException if the file cannot be mapped
+	 */
+	protected static ByteBuffer map(File file) throws IOException{
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()){
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+}
@@ -0,0 +1,319 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * A sink appending messages in binary form (see {@link MessageCodec}) to a journal of memory-mapped segment files, for post-mortem analysis.
+ * 
+ * A journal is a directory with segment files {@code name.000000.journal}, {@code name.000001.journal}, and so on.
+ * Every segment has a fixed size and starts with a header, followed by records of the form {@code length, crc32, payload}.
+ * The length of a record is written last, so a record is either complete or (with length 0) not there at all.
+ * When a record does not fit into the current segment, a new segment is started; with a maximum number of segments the oldest segments are deleted.
+ * An existing journal is continued after its last complete record.
+ * 
+ * Records are written into mapped memory, so they survive a crash of the application without any flush.
+ * To survive a crash of the operating system as well, use {@link E_FlushPolicy#ALWAYS} (every record is forced to disk) or {@link E_FlushPolicy#ERRORS}.
+ * Use {@link JournalReader} to replay a journal.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class JournalSink implements MessageSink {
+
+	/** Magic number at the start of every segment. */
+	public static final int MAGIC = 0x534B424A;
+
+	/** Version of the segment format. */
+	public static final int VERSION = 1;
+
+	/** Size of the segment header in bytes: magic and version. */
+	public static final int HEADER_SIZE = 8;
+
+	/** Size of the record header in bytes: length and crc32. */
+	public static final int RECORD_HEADER_SIZE = 8;
+
+	/** Suffix of segment files. */
+	public static final String SUFFIX = ".journal";
+
+	/** The directory of the journal. */
+	protected final File directory;
+
+	/** The name of the journal. */
+	protected final String name;
+
+	/** Size of a segment in bytes. */
+	protected final int segmentSize;
+
+	/** Maximum number of segments, 0 to keep all. */
+	protected final int maxSegments;
+
+	/** The flush policy. */
+	protected final E_FlushPolicy flushPolicy;
+
+	/** The codec for messages. */
+	protected final MessageCodec codec = new MessageCodec();
+
+	/** Checksum for records. */
+	protected final CRC32 crc = new CRC32();
+
+	/** Number of the current segment, -1 before the journal is opened. */
+	protected int segment = -1;
+
+	/** The current segment, null if no segment is open. */
+	protected MappedByteBuffer buffer;
+
+	/** Buffer to check if a record fits into an empty segment, created when first needed. */
+	protected ByteBuffer scratch;
+
+	/** Number of bytes written to all segments, including record headers. */
+	protected volatile long written;
+
+	/** Flag for a failed sink, which discards all messages. */
+	protected boolean failed;
+
+	/**
+	 * Returns a new journal sink.
+	 * @param directory the directory for the journal, created if it does not exist
+	 * @param name the name of the journal, used for the segment files
+	 * @param segmentSize size of a segment in bytes, must be greater than the header size
+	 * @param maxSegments maximum number of segments, 0 to keep all
+	 * @param flushPolicy the flush policy
+	 * @throws IllegalArgumentException if any argument was not valid
+	 */
+	public JournalSink(File directory, String name, int segmentSize, int maxSegments, E_FlushPolicy flushPolicy){
+		if(directory==null){
+			throw new IllegalArgumentException("directory cannot be null");
+		}
+		if(name==null || name.trim().isEmpty()){
+			throw new IllegalArgumentException("name cannot be blank (null or empty)");
+		}
+		if(segmentSize<=HEADER_SIZE + RECORD_HEADER_SIZE){
+			throw new IllegalArgumentException("segment size must be greater than " + (HEADER_SIZE + RECORD_HEADER_SIZE) + ", was " + segmentSize);
+		}
+		if(maxSegments<0){
+			throw new IllegalArgumentException("maxSegments cannot be negative, was " + maxSegments);
+		}
+		if(flushPolicy==null){
+			throw new IllegalArgumentException("flush policy cannot be null");
+		}
+		this.directory = directory;
+		this.name = name;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		this.flushPolicy = flushPolicy;
+	}
+
+	@Override
+	public synchronized void write(ReportedMessage message){
+		if(this.failed){
+			return;
+		}
+		try{
+			if(this.store(message) && this.flushPolicy.flushes(message.getType())){
+				this.buffer.force();
+			}
+		}
+		catch(IOException ex){
+			this.fail(ex);
+		}
+	}
+
+	/**
+	 * Writes a batch of messages with at most one force of the segment at the end of the batch.
+	 * The flush policy is applied to the batch as a whole, that is the segment is forced if the policy would force it for any of the messages.
+	 */
+	@Override
+	public synchronized void write(List<ReportedMessage> messages){
+		if(this.failed){
+			return;
+		}
+		try{
+			boolean force = false;
+			for(ReportedMessage message : messages){
+				force = (this.store(message) && this.flushPolicy.flushes(message.getType())) || force;
+			}
+			if(force){
+				this.buffer.force();
+			}
+		}
+		catch(IOException ex){
+			this.fail(ex);
+		}
+	}
+
+	/**
+	 * Stores a message as a record, opening the journal or rolling over to the next segment as required.
+	 * A message too large for an empty segment is rejected without a rollover, so it cannot cause old segments to be deleted.
+	 * @param message the message to store
+	 * @return true if the message was stored, false if it is too large for a segment
+	 * @throws IOException if a segment cannot be opened or mapped
+	 */
+	protected boolean store(ReportedMessage message) throws IOException{
+		if(this.buffer==null){
+			this.open();
+		}
+		if(this.append(message)){
+			return true;
+		}
+		if(this.buffer.position()>HEADER_SIZE && this.fits(message)){
+			this.rollover();
+			if(this.append(message)){
+				return true;
+			}
+		}
+		MessageConsole.conError("{}: message too large for a journal segment of {} bytes", this.getClass().getSimpleName(), this.segmentSize);
+		return false;
+	}
+
+	/**
+	 * Tests if a message fits as a record into an empty segment.
+	 * @param message the message to test
+	 * @return true if the message fits, false otherwise
+	 */
+	protected boolean fits(ReportedMessage message){
+		if(this.scratch==null){
+			this.scratch = ByteBuffer.allocate(this.segmentSize - HEADER_SIZE - RECORD_HEADER_SIZE);
+		}
+		this.scratch.clear();
+		try{
+			this.codec.encode(message, this.scratch);
+			return true;
+		}
+		catch(BufferOverflowException ex){
+			return false;
+		}
+	}
+
+	/**
+	 * Marks the sink as failed and prints the error.
+	 * @param ex the exception that caused the failure
+	 */
+	protected void fail(IOException ex){
+		this.failed = true;
+		MessageConsole.conError("{}: cannot write messages to journal {} in {}: {}", this.getClass().getSimpleName(), this.name, this.directory, ex.getMessage());
+	}
+
+	/**
+	 * Appends a record to the current segment.
+	 * @param message the message to append
+	 * @return true if the record was appended, false if it does not fit into the segment
+	 */
+	protected boolean append(ReportedMessage message){
+		int start = this.buffer.position();
+		if(this.buffer.remaining()<=RECORD_HEADER_SIZE){
+			return false;
+		}
+		this.buffer.position(start + RECORD_HEADER_SIZE);
+		try{
+			this.codec.encode(message, this.buffer);
+		}
+		catch(BufferOverflowException ex){
+			for(int i=start; i<this.buffer.position(); i++){
+				this.buffer.put(i, (byte)0);
+			}
+			this.buffer.position(start);
+			return false;
+		}
+		int end = this.buffer.position();
+
+		ByteBuffer payload = this.buffer.duplicate();
+		payload.position(start + RECORD_HEADER_SIZE).limit(end);
+		this.crc.reset();
+		this.crc.update(payload);
+		this.buffer.putInt(start + 4, (int)this.crc.getValue());
+		this.buffer.putInt(start, end - start - RECORD_HEADER_SIZE);
+		this.written += end - start;
+		return true;
+	}
+
+	@Override
+	public long getBytesWritten(){
+		return this.written;
+	}
+
+	@Override
+	public synchronized void flush(){
+		if(this.buffer!=null){
+			this.buffer.force();
+		}
+	}
+
+	@Override
+	public synchronized void close(){
+		this.flush();
+		this.buffer = null;
+	}
+
+	/**
+	 * Opens the last segment of the journal after its last complete record, or a new journal.
+	 * @throws IOException if the segment cannot be opened
+	 */
+	protected void open() throws IOException{
+		if(!this.directory.exists() && !this.directory.mkdirs()){
+			throw new IOException("cannot create directory");
+		}
+		this.segment = Math.max(0, JournalReader.lastSegment(this.directory, this.name));
+		this.map();
+		this.buffer.position(JournalReader.findEnd(this.buffer));
+	}
+
+	/**
+	 * Starts a new segment and deletes old segments beyond the maximum number of segments.
+	 * @throws IOException if the segment cannot be created
+	 */
+	protected void rollover() throws IOException{
+		this.buffer.force();
+		this.segment++;
+		this.map();
+		if(this.maxSegments>0){
+			File old = JournalReader.segmentFile(this.directory, this.name, this.segment - this.maxSegments);
+			if(old.exists() && !old.delete()){
+				MessageConsole.conError("{}: cannot delete old journal segment {}", this.getClass().getSimpleName(), old);
+			}
+		}
+	}
+
+	/**
+	 * Maps the current segment, writing a header if the segment is new.
+	 * @throws IOException if the segment cannot be mapped
+	 */
+	protected void map() throws IOException{
+		File file = JournalReader.segmentFile(this.directory, this.name, this.segment);
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()){
+			this.buffer = channel.map(MapMode.READ_WRITE, 0, this.segmentSize);
+		}
+		if(this.buffer.getInt(0)!=MAGIC){
+			this.buffer.putInt(0, MAGIC);
+			this.buffer.putInt(4, VERSION);
+		}
+		this.buffer.position(HEADER_SIZE);
+	}
+
+}
@@ -0,0 +1,134 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds that can be recorded by many threads without contention.
+ * 
+ * Latencies are counted in buckets with four sub-buckets per power of two, so a percentile is accurate within 25%.
+ * Every bucket is a striped counter, recording a latency never blocks and never waits for another thread.
+ * Latencies above 2^40 nanoseconds (about 18 minutes) are counted in the last bucket.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class LatencyHistogram {
+
+	/** Highest power of two with its own buckets. */
+	protected static final int MAX_POWER = 40;
+
+	/** The buckets. */
+	protected final LongAdder[] buckets = new LongAdder[(MAX_POWER - 1) * 4 + 4];
+
+	/**
+	 * Returns a new, empty histogram.
+	 */
+	LatencyHistogram(){
+		for(int i=0; i<this.buckets.length; i++){
+			this.buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a latency.
+	 * @param nanos the latency in nanoseconds, negative values are recorded as 0
+	 */
+	void record(long nanos){
+		this.buckets[index(nanos)].increment();
+	}
+
+	/**
+	 * Returns the number of recorded latencies.
+	 * @return number of latencies
+	 */
+	long getCount(){
+		long ret = 0;
+		for(LongAdder bucket : this.buckets){
+			ret += bucket.sum();
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a percentile of the recorded latencies.
+	 * @param percentile the percentile, greater than 0 and not greater than 100
+	 * @return upper bound of the bucket containing the percentile in nanoseconds, 0 if no latency has been recorded
+	 */
+	long getPercentile(double percentile){
+		long[] counts = new long[this.buckets.length];
+		long total = 0;
+		for(int i=0; i<counts.length; i++){
+			counts[i] = this.buckets[i].sum();
+			total += counts[i];
+		}
+		if(total==0){
+			return 0;
+		}
+
+		long rank = (long)Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for(int i=0; i<counts.length; i++){
+			seen += counts[i];
+			if(seen>=Math.max(1, rank)){
+				return upperBound(i);
+			}
+		}
+		return upperBound(counts.length - 1);
+	}
+
+	/**
+	 * Removes all recorded latencies.
+	 */
+	void reset(){
+		for(LongAdder bucket : this.buckets){
+			bucket.reset();
+		}
+	}
+
+	/**
+	 * Returns the bucket for a latency.
+	 * @param nanos the latency in nanoseconds
+	 * @return bucket index
+	 */
+	protected static int index(long nanos){
+		if(nanos<4){
+			return (int)Math.max(0, nanos);
+		}
+		int power = 63 - Long.numberOfLeadingZeros(nanos);
+		if(power>MAX_POWER){
+			return (MAX_POWER - 1) * 4 + 3;
+		}
+		return (power - 1) * 4 + (int)((nanos >>> (power - 2)) & 3);
+	}
+
+	/**
+	 * Returns the largest latency counted in a bucket.
+	 * @param index bucket index
+	 * @return largest latency of the bucket in nanoseconds
+	 */
+	protected static long upperBound(int index){
+		if(index<4){
+			return index;
+		}
+		int power = index / 4 + 1;
+		long lower = (4L + index % 4) << (power - 2);
+		return lower + (1L << (power - 2)) - 1;
+	}
+
+}
@@ -0,0 +1,74 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import org.slf4j.Logger;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * A sink writing messages to a logger, errors as error, warnings as warning, and information as info, enabled according to the logger's level.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class LoggerSink implements MessageSink {
+
+	/** The logger. */
+	protected final Logger logger;
+
+	/**
+	 * Returns a new logger sink.
+	 * @param logger the logger to write to
+	 * @throws IllegalArgumentException if the logger was null
+	 */
+	public LoggerSink(Logger logger){
+		if(logger==null){
+			throw new IllegalArgumentException("logger cannot be null");
+		}
+		this.logger = logger;
+	}
+
+	@Override
+	public boolean isEnabled(E_MessageType type){
+		switch(type){
+			case INFO:
+				return this.logger.isInfoEnabled();
+			case WARNING:
+				return this.logger.isWarnEnabled();
+			case ERROR:
+				return this.logger.isErrorEnabled();
+		}
+		return false;
+	}
+
+	@Override
+	public void write(ReportedMessage message){
+		switch(message.getType()){
+			case ERROR:
+				this.logger.error(message.getText());
+				break;
+			case INFO:
+				this.logger.info(message.getText());
+				break;
+			case WARNING:
+				this.logger.warn(message.getText());
+				break;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sink keeping the last messages in memory, for instance to show them in a user interface or to attach them to a report.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class MemorySink implements MessageSink {
+
+	/** The kept messages, oldest first. */
+	protected final ArrayDeque<ReportedMessage> buffer;
+
+	/** Maximum number of kept messages. */
+	protected final int capacity;
+
+	/**
+	 * Returns a new memory sink.
+	 * @param capacity maximum number of kept messages, older messages are discarded
+	 * @throws IllegalArgumentException if capacity was less than 1
+	 */
+	public MemorySink(int capacity){
+		if(capacity<1){
+			throw new IllegalArgumentException("capacity must be greater than 0, was " + capacity);
+		}
+		this.capacity = capacity;
+		this.buffer = new ArrayDeque<>(Math.min(capacity, 1024));
+	}
+
+	@Override
+	public synchronized void write(ReportedMessage message){
+		if(this.buffer.size()==this.capacity){
+			this.buffer.pollFirst().release();
+		}
+		this.buffer.addLast(message.retain());
+	}
+
+	/**
+	 * Returns the kept messages.
+	 * @return list of messages, oldest first
+	 */
+	public synchronized List<ReportedMessage> getMessages(){
+		return new ArrayList<>(this.buffer);
+	}
+
+	/**
+	 * Returns the rendered text of the kept messages.
+	 * @return list of rendered messages, oldest first
+	 */
+	public synchronized List<String> getTexts(){
+		List<String> ret = new ArrayList<>(this.buffer.size());
+		for(ReportedMessage message : this.buffer){
+			ret.add(message.getText());
+		}
+		return ret;
+	}
+
+	/**
+	 * Removes all kept messages.
+	 */
+	public synchronized void clear(){
+		for(ReportedMessage message : this.buffer){
+			message.release();
+		}
+		this.buffer.clear();
+	}
+
+}
@@ -0,0 +1,329 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.lang.reflect.Array;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+
+/**
+ * Encodes messages into a compact binary form and decodes them again.
+ * 
+ * A message is encoded as its type followed by reporter, who, when, where (location, line, column), what, why, and how.
+ * Objects are stored by their string representation, multi-valued objects (iterables, maps, and arrays) as a list of strings without null elements, so that a decoded message renders exactly as the original one.
+ * Strings are stored as UTF-8 with their length in bytes.
+ * A codec with a {@link MessageDictionary} stores reporter, who, and location as reference into the dictionary, so that repeated values are stored once.
+ * The text of a reported message that is not a {@link Message5WH} (a summary or a message set) is stored as text only.
+ * 
+ * A codec is not thread safe, it reuses its encoder and decoder.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageCodec {
+
+	/** Kind of an encoded {@link Message5WH}. */
+	static final byte KIND_MESSAGE = 1;
+
+	/** Kind of an encoded text. */
+	static final byte KIND_TEXT = 2;
+
+	/** Tag for a null value. */
+	static final byte TAG_NULL = 0;
+
+	/** Tag for a string value. */
+	static final byte TAG_STRING = 1;
+
+	/** Tag for a list of strings. */
+	static final byte TAG_LIST = 2;
+
+	/** Tag for a string stored in the dictionary. */
+	static final byte TAG_SHARED = 3;
+
+	/** Type value for a message without type. */
+	static final byte NO_TYPE = -1;
+
+	/** Reusable UTF-8 encoder. */
+	protected final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** Reusable UTF-8 decoder. */
+	protected final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/** Dictionary for reporter, who, and location, null to store them in place. */
+	protected final MessageDictionary dictionary;
+
+	/**
+	 * Returns a new codec storing all values in place.
+	 */
+	MessageCodec(){
+		this(null);
+	}
+
+	/**
+	 * Returns a new codec storing reporter, who, and location in a dictionary.
+	 * @param dictionary the dictionary, null to store all values in place
+	 */
+	MessageCodec(MessageDictionary dictionary){
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Encodes a reported message.
+	 * @param message the message
+	 * @param bb buffer to encode the message into, starting at its position
+	 * @throws BufferOverflowException if the message does not fit into the buffer
+	 */
+	void encode(ReportedMessage message, ByteBuffer bb){
+		Message5WH msg = message.getMessage();
+		if(msg!=null){
+			this.encode(msg, bb);
+		}
+		else{
+			bb.put(KIND_TEXT);
+			bb.put(type(message.getType()));
+			this.putString(message.getText(), bb);
+		}
+	}
+
+	/**
+	 * Encodes a message.
+	 * @param msg the message
+	 * @param bb buffer to encode the message into, starting at its position
+	 * @throws BufferOverflowException if the message does not fit into the buffer
+	 */
+	void encode(Message5WH msg, ByteBuffer bb){
+		bb.put(KIND_MESSAGE);
+		bb.put(type(msg.getType()));
+		this.putShared(msg.getReporter(), bb);
+		this.putShared(msg.getWho(), bb);
+		this.putValue(msg.getWhen(), bb);
+		this.putShared(msg.getWhereLocation(), bb);
+		bb.putInt(msg.getWhereLine());
+		bb.putInt(msg.getWhereColumn());
+		this.putValue(msg.getWhat(), bb);
+		this.putValue(msg.getWhy(), bb);
+		this.putValue(msg.getHow(), bb);
+	}
+
+	/**
+	 * Decodes a message, a text is decoded as message with the text as what.
+	 * @param bb buffer to decode from, starting at its position
+	 * @return decoded message
+	 */
+	Message5WH decode(ByteBuffer bb){
+		byte kind = bb.get();
+		E_MessageType type = type(bb.get());
+		Message5WH_Builder builder = new Message5WH_Builder().setType(type);
+		if(kind==KIND_TEXT){
+			return builder.addWhat(this.getString(bb)).build();
+		}
+
+		builder.setReporter(this.getValue(bb));
+		builder.setWho(this.getValue(bb));
+		builder.setWhen(this.getValue(bb));
+		Object location = this.getValue(bb);
+		int line = bb.getInt();
+		int column = bb.getInt();
+		builder.setWhere(location, line, column);
+		Object what = this.getValue(bb);
+		if(what!=null){
+			builder.addWhat(what);
+		}
+		Object why = this.getValue(bb);
+		if(why!=null){
+			builder.addWhy(why);
+		}
+		Object how = this.getValue(bb);
+		if(how!=null){
+			builder.addHow(how);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Decodes a message and renders it, a text is returned as it has been encoded.
+	 * @param bb buffer to decode from, starting at its position
+	 * @param renderer renderer for messages
+	 * @return rendered message
+	 */
+	String render(ByteBuffer bb, MessageRenderer renderer){
+		if(bb.get(bb.position())==KIND_TEXT){
+			bb.get();
+			bb.get();
+			return this.getString(bb);
+		}
+		return renderer.render(this.decode(bb));
+	}
+
+	/**
+	 * Returns the encoded value of a message type.
+	 * @param type the type, can be null
+	 * @return encoded type
+	 */
+	static byte type(E_MessageType type){
+		return (type==null)?NO_TYPE:(byte)type.ordinal();
+	}
+
+	/**
+	 * Returns the message type of an encoded value.
+	 * @param type the encoded type
+	 * @return message type, null for {@link #NO_TYPE}
+	 */
+	static E_MessageType type(byte type){
+		return (type==NO_TYPE)?null:E_MessageType.values()[type];
+	}
+
+	/**
+	 * Encodes a value as null, string, or list of strings.
+	 * @param o the value
+	 * @param bb the buffer
+	 */
+	protected void putValue(Object o, ByteBuffer bb){
+		if(o==null){
+			bb.put(TAG_NULL);
+			return;
+		}
+
+		Iterator<?> it = null;
+		if(o instanceof Map){
+			it = ((Map<?, ?>)o).keySet().iterator();
+		}
+		else if(o instanceof Iterable){
+			it = ((Iterable<?>)o).iterator();
+		}
+		else if(o.getClass().isArray()){
+			List<Object> list = new ArrayList<>();
+			for(int i=0; i<Array.getLength(o); i++){
+				list.add(Array.get(o, i));
+			}
+			it = list.iterator();
+		}
+
+		if(it==null){
+			bb.put(TAG_STRING);
+			this.putString((o instanceof CharSequence)?(CharSequence)o:o.toString(), bb);
+			return;
+		}
+
+		bb.put(TAG_LIST);
+		int countPos = bb.position();
+		bb.putInt(0);
+		int count = 0;
+		while(it.hasNext()){
+			Object e = it.next();
+			if(e!=null){
+				this.putString(e.toString(), bb);
+				count++;
+			}
+		}
+		bb.putInt(countPos, count);
+	}
+
+	/**
+	 * Encodes a value that is likely shared by many messages, as reference into the dictionary if possible.
+	 * @param o the value
+	 * @param bb the buffer
+	 */
+	protected void putShared(Object o, ByteBuffer bb){
+		if(this.dictionary!=null && o!=null && !(o instanceof Map) && !(o instanceof Iterable) && !o.getClass().isArray()){
+			int id = this.dictionary.id(o.toString());
+			if(id>=0){
+				bb.put(TAG_SHARED);
+				bb.putInt(id);
+				return;
+			}
+		}
+		this.putValue(o, bb);
+	}
+
+	/**
+	 * Decodes a value.
+	 * @param bb the buffer
+	 * @return null, a string, or a list of strings
+	 */
+	protected Object getValue(ByteBuffer bb){
+		byte tag = bb.get();
+		switch(tag){
+			case TAG_STRING:
+				return this.getString(bb);
+			case TAG_SHARED:
+				return this.dictionary.get(bb.getInt());
+			case TAG_LIST:
+				int count = bb.getInt();
+				List<String> ret = new ArrayList<>(count);
+				for(int i=0; i<count; i++){
+					ret.add(this.getString(bb));
+				}
+				return ret;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Encodes a string as length in bytes followed by its UTF-8 encoding, without creating a byte array.
+	 * @param cs the string
+	 * @param bb the buffer
+	 * @throws BufferOverflowException if the string does not fit into the buffer
+	 */
+	protected void putString(CharSequence cs, ByteBuffer bb){
+		int lengthPos = bb.position();
+		bb.putInt(0);
+		int start = bb.position();
+
+		this.encoder.reset();
+		CoderResult result = this.encoder.encode(CharBuffer.wrap(cs), bb, true);
+		if(result.isOverflow() || this.encoder.flush(bb).isOverflow()){
+			throw new BufferOverflowException();
+		}
+		bb.putInt(lengthPos, bb.position() - start);
+	}
+
+	/**
+	 * Decodes a string.
+	 * @param bb the buffer
+	 * @return decoded string
+	 */
+	protected String getString(ByteBuffer bb){
+		int length = bb.getInt();
+		ByteBuffer slice = bb.slice();
+		slice.limit(length);
+		bb.position(bb.position() + length);
+
+		this.decoder.reset();
+		CharBuffer chars = CharBuffer.allocate((int)(length * this.decoder.maxCharsPerByte()) + 1);
+		this.decoder.decode(slice, chars, true);
+		this.decoder.flush(chars);
+		chars.flip();
+		return chars.toString();
+	}
+
+}
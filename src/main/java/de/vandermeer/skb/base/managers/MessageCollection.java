@@ -0,0 +1,234 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * Collection of rendered messages for a {@link MessageMgr}, bounded by an {@link E_CollectionPolicy}.
+ * 
+ * Messages are kept in report order as keys of a map, so the same rendered message is collected only once.
+ * Adding a message and evicting old messages are constant time operations.
+ * For {@link E_CollectionPolicy#OFF_HEAP} messages are kept in an {@link OffHeapMessageStore} instead, and rendered when the collection is read.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageCollection {
+
+	/** The collection policy. */
+	protected final E_CollectionPolicy policy;
+
+	/** The limit for the policy. */
+	protected final long limit;
+
+	/** The collected messages with their type. */
+	protected final Map<String, E_MessageType> messages;
+
+	/** Store for {@link E_CollectionPolicy#OFF_HEAP}, null for all other policies. */
+	protected final OffHeapMessageStore store;
+
+	/** Number of collected messages per type, indexed by the ordinal of the type. */
+	protected final int[] perType = new int[E_MessageType.values().length];
+
+	/** Estimated size in bytes of all collected messages. */
+	protected long bytes;
+
+	/** Number of messages evicted from or not admitted to the collection. */
+	protected long evicted;
+
+	/**
+	 * Returns a new collection.
+	 * @param policy the collection policy, {@link E_CollectionPolicy#ALL} is used if null
+	 * @param limit the limit for the policy, ignored for {@link E_CollectionPolicy#ALL}
+	 * @param concurrent true if many threads add messages, collecting all messages then uses a concurrent map without defined order
+	 */
+	MessageCollection(E_CollectionPolicy policy, long limit, boolean concurrent){
+		this.policy = (policy==null)?E_CollectionPolicy.ALL:policy;
+		this.limit = limit;
+		this.messages = (concurrent==true && this.policy==E_CollectionPolicy.ALL)?new ConcurrentHashMap<>():new LinkedHashMap<>();
+		this.store = (this.policy==E_CollectionPolicy.OFF_HEAP)?new OffHeapMessageStore(limit):null;
+	}
+
+	/**
+	 * Tests if messages are rendered when they are added, that is for all policies but {@link E_CollectionPolicy#OFF_HEAP}.
+	 * @return true if messages are rendered when added, false if they are rendered when the collection is read
+	 */
+	boolean rendersOnAdd(){
+		return this.store==null;
+	}
+
+	/**
+	 * Adds a reported message to the collection, evicting older messages as required by the policy.
+	 * @param message the reported message, rendered unless the policy is {@link E_CollectionPolicy#OFF_HEAP}
+	 */
+	void add(ReportedMessage message){
+		if(this.store!=null){
+			this.store.add(message);
+			return;
+		}
+		this.add(message.getText(), message.getType());
+	}
+
+	/**
+	 * Adds a message to the collection, evicting older messages as required by the policy.
+	 * @param message the rendered message
+	 * @param type the message type
+	 */
+	void add(String message, E_MessageType type){
+		if(this.messages instanceof ConcurrentHashMap){
+			this.messages.put(message, type);
+			return;
+		}
+
+		synchronized(this.messages){
+			switch(this.policy){
+				case ALL:
+					this.messages.put(message, type);
+					break;
+				case LAST:
+					this.messages.remove(message);
+					this.messages.put(message, type);
+					if(this.messages.size()>this.limit){
+						this.evictEldest();
+					}
+					break;
+				case FIRST_PER_TYPE:
+					if(!this.messages.containsKey(message)){
+						if(this.perType[type.ordinal()]<this.limit){
+							this.messages.put(message, type);
+							this.perType[type.ordinal()]++;
+						}
+						else{
+							this.evicted++;
+						}
+					}
+					break;
+				case BYTE_BUDGET:
+					long size = MessageCollection.estimateBytes(message);
+					if(size>this.limit){
+						this.evicted++;
+						break;
+					}
+					if(this.messages.remove(message)!=null){
+						this.bytes -= size;
+					}
+					this.messages.put(message, type);
+					this.bytes += size;
+					while(this.bytes>this.limit){
+						this.evictEldest();
+					}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Removes the eldest message from the collection.
+	 */
+	protected void evictEldest(){
+		Iterator<String> it = this.messages.keySet().iterator();
+		if(it.hasNext()){
+			String eldest = it.next();
+			it.remove();
+			this.bytes -= MessageCollection.estimateBytes(eldest);
+			this.evicted++;
+		}
+	}
+
+	/**
+	 * Returns the estimated memory size of a message.
+	 * @param message the message
+	 * @return estimated size in bytes
+	 */
+	protected static long estimateBytes(String message){
+		return 2L * message.length();
+	}
+
+	/**
+	 * Returns the collected messages with their type.
+	 * @param renderer renderer for messages stored off-heap
+	 * @return a snapshot of the collected messages, rendered from the store for {@link E_CollectionPolicy#OFF_HEAP}
+	 */
+	Map<String, E_MessageType> getMap(MessageRenderer renderer){
+		if(this.store==null){
+			synchronized(this.messages){
+				return Collections.unmodifiableMap(new LinkedHashMap<>(this.messages));
+			}
+		}
+		Map<String, E_MessageType> ret = new LinkedHashMap<>();
+		for(Entry<String, E_MessageType> entry : this.store.view((codec, bb) -> {
+			E_MessageType type = MessageCodec.type(bb.get(bb.position() + 1));
+			return new SimpleImmutableEntry<>(codec.render(bb, renderer), type);
+		})){
+			ret.put(entry.getKey(), entry.getValue());
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the collected rendered messages.
+	 * @param renderer renderer for messages stored off-heap
+	 * @return a snapshot of the collected messages, a view rendering messages while it is iterated for {@link E_CollectionPolicy#OFF_HEAP}
+	 */
+	Collection<String> getTexts(MessageRenderer renderer){
+		if(this.store==null){
+			synchronized(this.messages){
+				return Collections.unmodifiableList(new ArrayList<>(this.messages.keySet()));
+			}
+		}
+		return this.store.view((codec, bb) -> codec.render(bb, renderer));
+	}
+
+	/**
+	 * Returns the number of messages evicted from or not admitted to the collection since its last clear.
+	 * @return number of evicted messages
+	 */
+	long getEvictedCount(){
+		return (this.store==null)?this.evicted:this.store.getEvictedCount();
+	}
+
+	/**
+	 * Removes all messages from the collection.
+	 */
+	void clear(){
+		synchronized(this.messages){
+			this.messages.clear();
+			for(int i=0; i<this.perType.length; i++){
+				this.perType[i] = 0;
+			}
+			this.bytes = 0;
+			this.evicted = 0;
+		}
+		if(this.store!=null){
+			this.store.clear();
+		}
+	}
+
+}
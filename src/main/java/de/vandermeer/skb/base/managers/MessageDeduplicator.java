@@ -0,0 +1,205 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * Suppresses repeated messages within a time and/or count window.
+ * 
+ * The first occurrence of a message opens a window for its {@link MessageKey} and is admitted.
+ * Every further occurrence within the window is suppressed and counted.
+ * A window closes when its time has elapsed, when the count limit of suppressed messages is reached, or when it is drained.
+ * Closing a window with suppressed messages emits a {@link Repeat} with the exact number of suppressed messages.
+ * The next occurrence of the message after that opens a new window.
+ * 
+ * Windows are kept in the order they have been opened, so expired windows are found without searching all of them.
+ * The first message of a window is retained until the window closes, so a recyclable message is not reused while it identifies a window.
+ * The number of open windows is bounded by {@link #MAX_WINDOWS}, the oldest window is closed when a new one would exceed it.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageDeduplicator {
+
+	/** Maximum number of open windows. */
+	protected static final int MAX_WINDOWS = 1024;
+
+	/** The open windows in the order they have been opened. */
+	protected final LinkedHashMap<MessageKey, Repeat> windows = new LinkedHashMap<>();
+
+	/** Length of a window in nanoseconds, 0 for no time limit. */
+	protected final long windowNanos;
+
+	/** Maximum number of suppressed messages in a window, 0 for no count limit. */
+	protected final int windowCount;
+
+	/** Number of all suppressed messages. */
+	protected final LongAdder suppressed = new LongAdder();
+
+	/**
+	 * Returns a new deduplicator.
+	 * @param windowMillis length of a window in milliseconds, 0 for no time limit
+	 * @param windowCount maximum number of suppressed messages in a window, 0 for no count limit
+	 */
+	MessageDeduplicator(long windowMillis, int windowCount){
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+		this.windowCount = Math.max(0, windowCount);
+	}
+
+	/**
+	 * Tests if a message should be admitted or suppressed as a repeat.
+	 * Windows closed by this call are handed to the given function in the order they have been opened.
+	 * @param message the reported message, must contain a {@link Message5WH}
+	 * @param now current time in nanoseconds, see {@link System#nanoTime()}
+	 * @param closed function for closed windows with suppressed messages
+	 * @return true if the message is admitted, false if it is suppressed
+	 */
+	synchronized boolean admit(ReportedMessage message, long now, Consumer<Repeat> closed){
+		this.expire(now, closed);
+
+		MessageKey key = new MessageKey(message.getMessage());
+		Repeat window = this.windows.get(key);
+		if(window==null){
+			if(this.windows.size()>=MAX_WINDOWS){
+				Iterator<Repeat> it = this.windows.values().iterator();
+				this.close(it.next(), closed);
+				it.remove();
+			}
+			this.windows.put(key, new Repeat(message.retain(), now));
+			return true;
+		}
+
+		window.count++;
+		this.suppressed.increment();
+		if(this.windowCount>0 && window.count>=this.windowCount){
+			this.windows.remove(key);
+			this.close(window, closed);
+		}
+		return false;
+	}
+
+	/**
+	 * Closes all windows with an elapsed time.
+	 * @param now current time in nanoseconds
+	 * @param closed function for closed windows with suppressed messages
+	 */
+	protected void expire(long now, Consumer<Repeat> closed){
+		if(this.windowNanos==0){
+			return;
+		}
+		Iterator<Repeat> it = this.windows.values().iterator();
+		while(it.hasNext()){
+			Repeat window = it.next();
+			if(now - window.start<this.windowNanos){
+				return;
+			}
+			it.remove();
+			this.close(window, closed);
+		}
+	}
+
+	/**
+	 * Closes all open windows.
+	 * @param closed function for closed windows with suppressed messages
+	 */
+	synchronized void drain(Consumer<Repeat> closed){
+		for(Repeat window : this.windows.values()){
+			this.close(window, closed);
+		}
+		this.windows.clear();
+	}
+
+	/**
+	 * Hands a closed window to the given function if it has suppressed messages.
+	 * @param window the closed window
+	 * @param closed function for closed windows with suppressed messages
+	 */
+	protected void close(Repeat window, Consumer<Repeat> closed){
+		if(window.count>0){
+			closed.accept(window);
+		}
+		window.message.release();
+	}
+
+	/**
+	 * Returns the number of all suppressed messages.
+	 * @return number of suppressed messages
+	 */
+	long getSuppressedCount(){
+		return this.suppressed.sum();
+	}
+
+	/**
+	 * Closes all windows without emitting them and resets the number of suppressed messages.
+	 */
+	synchronized void clear(){
+		for(Repeat window : this.windows.values()){
+			window.message.release();
+		}
+		this.windows.clear();
+		this.suppressed.reset();
+	}
+
+	/**
+	 * A window for a message, counting its suppressed repeats.
+	 */
+	static final class Repeat {
+
+		/** The first message of the window. */
+		protected final ReportedMessage message;
+
+		/** Start of the window in nanoseconds. */
+		protected final long start;
+
+		/** Number of suppressed repeats of the message. */
+		protected int count;
+
+		/**
+		 * Returns a new window.
+		 * @param message the first message of the window
+		 * @param start start of the window in nanoseconds
+		 */
+		Repeat(ReportedMessage message, long start){
+			this.message = message;
+			this.start = start;
+		}
+
+		/**
+		 * Returns the first message of the window.
+		 * @return first message
+		 */
+		ReportedMessage getMessage(){
+			return this.message;
+		}
+
+		/**
+		 * Returns the number of suppressed repeats.
+		 * @return number of repeats
+		 */
+		int getCount(){
+			return this.count;
+		}
+	}
+
+}
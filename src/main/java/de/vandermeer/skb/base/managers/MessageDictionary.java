@@ -0,0 +1,90 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of strings shared by many encoded messages, for instance reporter, who, and location, see {@link MessageCodec}.
+ * 
+ * Every string is stored once and referenced by its identifier.
+ * The dictionary is bounded, once it is full new strings are not added and must be encoded in place.
+ * Identifiers are never reused, so messages encoded with a dictionary can be decoded as long as the dictionary exists.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageDictionary {
+
+	/** Maximum number of strings in the dictionary. */
+	protected final int capacity;
+
+	/** Identifiers of all strings. */
+	protected final Map<String, Integer> ids = new HashMap<>();
+
+	/** All strings, indexed by identifier. */
+	protected final List<String> values = new ArrayList<>();
+
+	/**
+	 * Returns a new dictionary.
+	 * @param capacity maximum number of strings in the dictionary
+	 */
+	MessageDictionary(int capacity){
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the identifier of a string, adding the string if it is not in the dictionary.
+	 * @param value the string
+	 * @return identifier, -1 if the string is not in the dictionary and the dictionary is full
+	 */
+	synchronized int id(String value){
+		Integer ret = this.ids.get(value);
+		if(ret!=null){
+			return ret;
+		}
+		if(this.values.size()>=this.capacity){
+			return -1;
+		}
+		ret = this.values.size();
+		this.values.add(value);
+		this.ids.put(value, ret);
+		return ret;
+	}
+
+	/**
+	 * Returns the string for an identifier.
+	 * @param id the identifier
+	 * @return the string
+	 * @throws IndexOutOfBoundsException if the identifier is not in the dictionary
+	 */
+	synchronized String get(int id){
+		return this.values.get(id);
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary.
+	 * @return number of strings
+	 */
+	synchronized int size(){
+		return this.values.size();
+	}
+
+}
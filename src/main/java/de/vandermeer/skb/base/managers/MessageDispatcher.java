@@ -0,0 +1,237 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * Dispatches reported messages asynchronously to a single background consumer.
+ *
+ * Messages are handed over to a bounded ring buffer that is allocated once when the dispatcher is created.
+ * Reporting threads block if the buffer is full, so no message is ever lost.
+ * A single consumer thread takes messages in the order they have been submitted and hands them to the processing function.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageDispatcher {
+
+	/** Marker object telling the consumer thread to terminate. */
+	protected static final Object STOP = new Object();
+
+	/** The ring buffer between reporting threads and the consumer thread. */
+	protected final ArrayBlockingQueue<Object> buffer;
+
+	/** The function processing every dispatched message. */
+	protected final Consumer<Object> processor;
+
+	/** The consumer thread. */
+	protected final Thread consumer;
+
+	/** The identifier (or name) of the application using the dispatcher, used in error messages. */
+	protected final Object appID;
+
+	/** Flag indicating that the dispatcher has been closed. */
+	protected volatile boolean closed;
+
+	/** Number of threads currently submitting to the ring buffer, closing waits for them to finish. */
+	protected final AtomicInteger submitting = new AtomicInteger();
+
+	/**
+	 * Returns a new dispatcher and starts its consumer thread.
+	 * @param appID identifier (or name) of the application using the dispatcher
+	 * @param capacity capacity of the ring buffer, must be greater than 0
+	 * @param processor function to process every dispatched message
+	 */
+	MessageDispatcher(Object appID, int capacity, Consumer<Object> processor){
+		this.appID = appID;
+		this.buffer = new ArrayBlockingQueue<>(capacity);
+		this.processor = processor;
+
+		this.consumer = new Thread(this::consume, "skb-message-dispatcher-" + appID);
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * Submits a message to the ring buffer, blocking while the buffer is full.
+	 * @param message the message to submit
+	 * @return true if the message was submitted, false if the dispatcher is closed or the calling thread was interrupted (the caller should process the message itself)
+	 */
+	boolean submit(Object message){
+		this.submitting.incrementAndGet();
+		try{
+			if(this.closed){
+				return false;
+			}
+			this.buffer.put(message);
+			return true;
+		}
+		catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		finally{
+			this.submitting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Offers a message to the ring buffer without blocking.
+	 * @param message the message to offer
+	 * @return true if the message was added, false if the dispatcher is closed or the buffer is full
+	 */
+	boolean offer(Object message){
+		this.submitting.incrementAndGet();
+		try{
+			if(this.closed){
+				return false;
+			}
+			return this.buffer.offer(message);
+		}
+		finally{
+			this.submitting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Waits until all messages submitted before this call have been processed.
+	 * Calls from the consumer thread itself (for instance from a handler) return immediately.
+	 */
+	void flush(){
+		if(this.closed || Thread.currentThread()==this.consumer){
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		if(this.submit(latch)){
+			try{
+				latch.await();
+			}
+			catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Processes all outstanding messages and stops the consumer thread.
+	 * Messages submitted concurrently with closing the dispatcher are processed by the calling thread,
+	 * which also drains the ring buffer until all threads blocked in {@link #submit(Object)} have finished.
+	 */
+	void close(){
+		if(this.closed){
+			return;
+		}
+		this.flush();
+		this.closed = true;
+		try{
+			this.buffer.put(STOP);
+			this.consumer.join();
+		}
+		catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+		}
+
+		// no new submitter can pass the closed flag now, drain until the ones already passed are done
+		List<Object> remaining = new ArrayList<>();
+		while(true){
+			boolean done = (this.submitting.get()==0);
+			this.buffer.drainTo(remaining);
+			for(Object o : remaining){
+				this.process(o);
+			}
+			if(done && remaining.isEmpty()){
+				return;
+			}
+			if(remaining.isEmpty()){
+				LockSupport.parkNanos(10_000L);
+			}
+			remaining.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of entries waiting in the ring buffer.
+	 * @return number of waiting entries
+	 */
+	int size(){
+		return this.buffer.size();
+	}
+
+	/**
+	 * Tests if the dispatcher is closed.
+	 * @return true if closed, false otherwise
+	 */
+	boolean isClosed(){
+		return this.closed;
+	}
+
+	/**
+	 * The consumer loop, runs until the stop marker is taken from the ring buffer.
+	 */
+	protected void consume(){
+		while(true){
+			Object message;
+			try{
+				message = this.buffer.take();
+			}
+			catch(InterruptedException ex){
+				if(this.closed){
+					return;
+				}
+				continue;
+			}
+			if(message==STOP){
+				return;
+			}
+			this.process(message);
+		}
+	}
+
+	/**
+	 * Processes a single entry taken from the ring buffer.
+	 * @param message the entry, either a flush latch, a task to run on the consumer thread, or a message
+	 */
+	protected void process(Object message){
+		if(message instanceof CountDownLatch){
+			((CountDownLatch)message).countDown();
+			return;
+		}
+		if(message==STOP){
+			return;
+		}
+		try{
+			if(message instanceof Runnable){
+				((Runnable)message).run();
+				return;
+			}
+			this.processor.accept(message);
+		}
+		catch(RuntimeException ex){
+			MessageConsole.conError("{}: asynchronous message processing failed: {}", this.appID, ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * Index of the {@link Message5WH} messages collected by a {@link MessageMgr}, with secondary indexes by type, reporter, who, and where location.
+ * 
+ * Messages are kept in report order, every message is identified by its position.
+ * The secondary indexes keep the positions of the messages in compact arrays of integers.
+ * For every location, lines and positions are kept in one array of longs that is sorted on demand, so that a line range is found by binary search.
+ * A query uses the smallest index list of its constraints and tests the remaining constraints on these messages only.
+ * 
+ * Recyclable messages are retained by the index, see {@link Message5WH#retain()}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageIndex {
+
+	/** The messages in report order. */
+	protected final List<Message5WH> messages = new ArrayList<>();
+
+	/** Positions of messages per type, indexed by the ordinal of the type. */
+	protected final IntList[] byType = new IntList[E_MessageType.values().length];
+
+	/** Positions of messages per reporter. */
+	protected final Map<Object, IntList> byReporter = new HashMap<>();
+
+	/** Positions of messages per who. */
+	protected final Map<Object, IntList> byWho = new HashMap<>();
+
+	/** Lines and positions of messages per where location. */
+	protected final Map<Object, LineList> byLocation = new HashMap<>();
+
+	/**
+	 * Adds a message to the index.
+	 * @param message the message
+	 */
+	synchronized void add(Message5WH message){
+		int position = this.messages.size();
+		this.messages.add(message.retain());
+
+		if(message.getType()!=null){
+			int ordinal = message.getType().ordinal();
+			if(this.byType[ordinal]==null){
+				this.byType[ordinal] = new IntList();
+			}
+			this.byType[ordinal].add(position);
+		}
+		if(message.getReporter()!=null){
+			this.byReporter.computeIfAbsent(message.getReporter(), k -> new IntList()).add(position);
+		}
+		if(message.getWho()!=null){
+			this.byWho.computeIfAbsent(message.getWho(), k -> new IntList()).add(position);
+		}
+		if(message.getWhereLocation()!=null){
+			this.byLocation.computeIfAbsent(message.getWhereLocation(), k -> new LineList()).add(message.getWhereLine(), position);
+		}
+	}
+
+	/**
+	 * Returns the number of indexed messages.
+	 * @return number of messages
+	 */
+	synchronized int size(){
+		return this.messages.size();
+	}
+
+	/**
+	 * Returns all messages matching a query.
+	 * @param query the query
+	 * @return matching messages in report order, empty if none matches
+	 */
+	synchronized List<Message5WH> find(MessageQuery query){
+		int[] candidates = null;
+		int size = this.messages.size();
+
+		if(query.type!=null){
+			IntList list = this.byType[query.type.ordinal()];
+			if(list==null){
+				return Collections.emptyList();
+			}
+			if(list.size<size){
+				candidates = list.values;
+				size = list.size;
+			}
+		}
+		if(query.reporter!=null){
+			IntList list = this.byReporter.get(query.reporter);
+			if(list==null){
+				return Collections.emptyList();
+			}
+			if(list.size<size){
+				candidates = list.values;
+				size = list.size;
+			}
+		}
+		if(query.who!=null){
+			IntList list = this.byWho.get(query.who);
+			if(list==null){
+				return Collections.emptyList();
+			}
+			if(list.size<size){
+				candidates = list.values;
+				size = list.size;
+			}
+		}
+		if(query.location!=null){
+			LineList list = this.byLocation.get(query.location);
+			if(list==null){
+				return Collections.emptyList();
+			}
+			int[] positions = list.find(query.fromLine, query.toLine);
+			if(positions.length<size){
+				candidates = positions;
+				size = positions.length;
+			}
+		}
+
+		List<Message5WH> ret = new ArrayList<>();
+		for(int i=0; i<size; i++){
+			Message5WH message = this.messages.get((candidates==null)?i:candidates[i]);
+			if(query.matches(message)){
+				ret.add(message);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Removes all messages from the index.
+	 */
+	synchronized void clear(){
+		for(Message5WH message : this.messages){
+			message.release();
+		}
+		this.messages.clear();
+		Arrays.fill(this.byType, null);
+		this.byReporter.clear();
+		this.byWho.clear();
+		this.byLocation.clear();
+	}
+
+	/**
+	 * A growing list of positions in ascending order.
+	 */
+	static final class IntList {
+
+		/** The positions. */
+		protected int[] values = new int[8];
+
+		/** Number of positions. */
+		protected int size;
+
+		/**
+		 * Adds a position.
+		 * @param value the position, greater than all positions added before
+		 */
+		void add(int value){
+			if(this.size==this.values.length){
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+	}
+
+	/**
+	 * A growing list of lines and positions, each entry packed into a long (line in the upper, position in the lower 32 bit) and sorted on demand.
+	 */
+	static final class LineList {
+
+		/** The entries. */
+		protected long[] entries = new long[8];
+
+		/** Number of entries. */
+		protected int size;
+
+		/** Flag for sorted entries. */
+		protected boolean sorted = true;
+
+		/**
+		 * Adds an entry.
+		 * @param line the line, values less than 0 are indexed as 0
+		 * @param position the position of the message
+		 */
+		void add(int line, int position){
+			if(this.size==this.entries.length){
+				this.entries = Arrays.copyOf(this.entries, this.size * 2);
+			}
+			long entry = ((long)Math.max(0, line) << 32) | position;
+			if(this.size>0 && entry<this.entries[this.size - 1]){
+				this.sorted = false;
+			}
+			this.entries[this.size++] = entry;
+		}
+
+		/**
+		 * Returns the positions of all messages within a line range.
+		 * @param fromLine first line of the range, inclusive
+		 * @param toLine last line of the range, inclusive
+		 * @return positions in ascending order
+		 */
+		int[] find(int fromLine, int toLine){
+			if(!this.sorted){
+				Arrays.sort(this.entries, 0, this.size);
+				this.sorted = true;
+			}
+			int from = Math.max(0, fromLine);
+			int to = Math.max(0, toLine);
+			if(from>to){
+				return new int[0];
+			}
+
+			int start = this.search((long)from << 32);
+			int end = this.search(((long)to + 1) << 32);
+			int[] ret = new int[end - start];
+			for(int i=start; i<end; i++){
+				ret[i - start] = (int)this.entries[i];
+			}
+			if(from!=to){
+				Arrays.sort(ret);
+			}
+			return ret;
+		}
+
+		/**
+		 * Returns the index of the first entry not less than a key.
+		 * @param key the key
+		 * @return index of the first entry not less than the key, size if there is none
+		 */
+		protected int search(long key){
+			int low = 0;
+			int high = this.size;
+			while(low<high){
+				int mid = (low + high) >>> 1;
+				if(this.entries[mid]<key){
+					low = mid + 1;
+				}
+				else{
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * The identity of a {@link Message5WH}, used to detect repeated messages without rendering them.
+ * 
+ * Two messages are identical if they have the same type, reporter, who, where (location, line, column), and what.
+ * A what part given as pattern is compared by pattern and arguments, without formatting it.
+ * The when, why, and how parts of a message are not part of its identity.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+final class MessageKey {
+
+	/** The message type. */
+	protected final E_MessageType type;
+
+	/** The reporter. */
+	protected final Object reporter;
+
+	/** The who part. */
+	protected final Object who;
+
+	/** The location of the where part. */
+	protected final Object whereLocation;
+
+	/** The line of the where part. */
+	protected final int whereLine;
+
+	/** The column of the where part. */
+	protected final int whereColumn;
+
+	/** The what part, compared by content, or the what pattern. */
+	protected final Object what;
+
+	/** The arguments of the what pattern, null if the what part is not a pattern. */
+	protected final Object[] arguments;
+
+	/** The hash code, calculated once. */
+	protected final int hash;
+
+	/**
+	 * Returns a new key for a message.
+	 * @param msg the message, must not be null
+	 */
+	MessageKey(Message5WH msg){
+		this.type = msg.getType();
+		this.reporter = msg.getReporter();
+		this.who = msg.getWho();
+		this.whereLocation = msg.getWhereLocation();
+		this.whereLine = msg.getWhereLine();
+		this.whereColumn = msg.getWhereColumn();
+		if(msg.getWhatPattern()!=null){
+			this.what = msg.getWhatPattern();
+			this.arguments = msg.getWhatArguments();
+		}
+		else{
+			this.what = msg.getWhat();
+			this.arguments = null;
+		}
+		this.hash = Objects.hash(this.type, this.reporter, this.who, this.whereLocation, this.whereLine, this.whereColumn, this.what) * 31 + Arrays.deepHashCode(this.arguments);
+	}
+
+	@Override
+	public int hashCode(){
+		return this.hash;
+	}
+
+	@Override
+	public boolean equals(Object obj){
+		if(this==obj){
+			return true;
+		}
+		if(!(obj instanceof MessageKey)){
+			return false;
+		}
+		MessageKey other = (MessageKey)obj;
+		return this.hash==other.hash
+				&& this.type==other.type
+				&& this.whereLine==other.whereLine
+				&& this.whereColumn==other.whereColumn
+				&& Objects.equals(this.what, other.what)
+				&& Arrays.deepEquals(this.arguments, other.arguments)
+				&& Objects.equals(this.reporter, other.reporter)
+				&& Objects.equals(this.who, other.who)
+				&& Objects.equals(this.whereLocation, other.whereLocation);
+	}
+
+}
@@ -0,0 +1,286 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * Metrics of a {@link MessageMgr}, published as MXBean (see {@link MessageMgrMXBean}).
+ * 
+ * Gathering metrics adds no contention to reporting.
+ * Counters are read from the striped counters the manager keeps anyway, render latencies are recorded in a striped histogram (see {@link LatencyHistogram}).
+ * Everything else is only calculated when it is read.
+ * 
+ * The MBean server holds the registered metrics, so the metrics hold their manager only weakly and do not keep a manager that is never closed alive.
+ * Once such a manager has been garbage collected, all values read as 0 and the metrics unregister themselves on the next read.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class MessageMetrics implements MessageMgrMXBean {
+
+	/** The JMX domain for managers. */
+	public static final String DOMAIN = "de.vandermeer.skb.base";
+
+	/** The manager, weakly referenced so that registered metrics do not keep it alive. */
+	protected final WeakReference<MessageMgr> mgr;
+
+	/** The application identifier of the manager. */
+	protected final String appID;
+
+	/** Render latencies of the manager's messages. */
+	protected final LatencyHistogram renderLatency = new LatencyHistogram();
+
+	/** The name under which the metrics are registered, null if not registered. */
+	protected ObjectName name;
+
+	/**
+	 * Returns new metrics for a manager.
+	 * @param mgr the manager
+	 */
+	MessageMetrics(MessageMgr mgr){
+		this.mgr = new WeakReference<>(mgr);
+		this.appID = String.valueOf(mgr.appID);
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, using the application identifier as name.
+	 * If the name is taken (for instance by a second manager for the same application), an instance number is added to the name.
+	 * Failures are printed on the console, the metrics can then still be read with {@link MessageMgr#getMetrics()}.
+	 */
+	void register(){
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String base = DOMAIN + ":type=MessageMgr,name=" + ObjectName.quote(this.getAppID());
+		try{
+			for(int i=1; this.name==null; i++){
+				ObjectName name = new ObjectName((i==1)?base:base + ",instance=" + i);
+				try{
+					server.registerMBean(this, name);
+					this.name = name;
+				}
+				catch(InstanceAlreadyExistsException ignore){
+					//name is taken, try next instance
+				}
+			}
+		}
+		catch(JMException ex){
+			MessageConsole.conError("{}: cannot register message metrics: {}", this.getAppID(), ex.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server.
+	 */
+	void unregister(){
+		if(this.name==null){
+			return;
+		}
+		try{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+		}
+		catch(JMException ignore){
+			//already unregistered
+		}
+		this.name = null;
+	}
+
+	/**
+	 * Returns the manager, unregistering the metrics if the manager has been garbage collected.
+	 * @return manager, null if it has been garbage collected
+	 */
+	protected MessageMgr getMgr(){
+		MessageMgr ret = this.mgr.get();
+		if(ret==null){
+			this.unregister();
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the name under which the metrics are registered.
+	 * @return object name, null if not registered
+	 */
+	public ObjectName getObjectName(){
+		return this.name;
+	}
+
+	/**
+	 * Returns the histogram for render latencies.
+	 * @return render latency histogram
+	 */
+	LatencyHistogram getRenderLatency(){
+		return this.renderLatency;
+	}
+
+	@Override
+	public String getAppID(){
+		return this.appID;
+	}
+
+	@Override
+	public long getErrorCount(){
+		return this.getCount(E_MessageType.ERROR);
+	}
+
+	@Override
+	public long getWarningCount(){
+		return this.getCount(E_MessageType.WARNING);
+	}
+
+	@Override
+	public long getInfoCount(){
+		return this.getCount(E_MessageType.INFO);
+	}
+
+	/**
+	 * Returns the count of a message type without waiting for outstanding messages.
+	 * @param type the message type
+	 * @return count, -1 if the manager has no handler for the type, 0 if the manager has been garbage collected
+	 */
+	protected long getCount(E_MessageType type){
+		MessageMgr mgr = this.getMgr();
+		if(mgr==null){
+			return 0;
+		}
+		MessageTypeHandler handler = mgr.messageHandlers.get(type);
+		return (handler==null)?-1:handler.count.sum();
+	}
+
+	@Override
+	public long getSuppressedCount(){
+		MessageMgr mgr = this.getMgr();
+		return (mgr==null || mgr.deduplicator==null)?0:mgr.deduplicator.getSuppressedCount();
+	}
+
+	@Override
+	public long getDroppedCount(){
+		MessageMgr mgr = this.getMgr();
+		return (mgr==null || mgr.rateLimiter==null)?0:mgr.rateLimiter.getDroppedCount();
+	}
+
+	@Override
+	public long getEvictedCount(){
+		MessageMgr mgr = this.getMgr();
+		return (mgr==null || mgr.messages==null)?0:mgr.messages.getEvictedCount();
+	}
+
+	@Override
+	public long getRenderCount(){
+		return this.renderLatency.getCount();
+	}
+
+	@Override
+	public long getRenderLatencyP50(){
+		return this.renderLatency.getPercentile(50);
+	}
+
+	@Override
+	public long getRenderLatencyP99(){
+		return this.renderLatency.getPercentile(99);
+	}
+
+	@Override
+	public int getQueueDepth(){
+		MessageMgr mgr = this.getMgr();
+		return (mgr==null || mgr.dispatcher==null)?0:mgr.dispatcher.size();
+	}
+
+	@Override
+	public Map<String, Integer> getSinkQueueDepths(){
+		Map<String, Integer> ret = new LinkedHashMap<>();
+		List<MessageSink> sinks = this.getSinks();
+		for(int i=0; i<sinks.size(); i++){
+			ret.put(getName(sinks.get(i), i), sinks.get(i).getQueueDepth());
+		}
+		return ret;
+	}
+
+	@Override
+	public Map<String, Long> getSinkBytesWritten(){
+		Map<String, Long> ret = new LinkedHashMap<>();
+		List<MessageSink> sinks = this.getSinks();
+		for(int i=0; i<sinks.size(); i++){
+			ret.put(getName(sinks.get(i), i), sinks.get(i).getBytesWritten());
+		}
+		return ret;
+	}
+
+	@Override
+	public long getBytesWritten(){
+		long ret = 0;
+		for(MessageSink sink : this.getSinks()){
+			ret += sink.getBytesWritten();
+		}
+		return ret;
+	}
+
+	@Override
+	public void resetRenderLatency(){
+		this.renderLatency.reset();
+	}
+
+	/**
+	 * Returns all sinks of the manager in a stable order (by message type and order of the sinks in the handlers), every sink only once.
+	 * @return sinks, empty if the manager has been garbage collected
+	 */
+	protected List<MessageSink> getSinks(){
+		List<MessageSink> ret = new ArrayList<>();
+		MessageMgr mgr = this.getMgr();
+		if(mgr==null){
+			return ret;
+		}
+		Set<MessageSink> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(E_MessageType type : E_MessageType.values()){
+			MessageTypeHandler handler = mgr.messageHandlers.get(type);
+			if(handler!=null){
+				for(MessageSink sink : handler.getSinks()){
+					if(seen.add(sink)){
+						ret.add(sink);
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the name of a sink for the metrics.
+	 * @param sink the sink
+	 * @param index index of the sink in the list of all sinks
+	 * @return name of the sink
+	 */
+	protected static String getName(MessageSink sink, int index){
+		return (index + 1) + "-" + sink.getClass().getSimpleName();
+	}
+
+}
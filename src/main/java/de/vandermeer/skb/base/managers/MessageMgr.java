@@ -15,22 +15,29 @@
 
 package de.vandermeer.skb.base.managers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.stringtemplate.v4.STGroup;
-import org.stringtemplate.v4.STGroupFile;
 
 import de.vandermeer.skb.base.message.E_MessageType;
 import de.vandermeer.skb.base.message.Message5WH;
 import de.vandermeer.skb.base.message.Message5WH_Builder;
-import de.vandermeer.skb.interfaces.FormattingTupleWrapper;
 import de.vandermeer.skb.interfaces.categories.has.HasToStringStyle;
 import de.vandermeer.skb.interfaces.messagesets.HasErrorSet;
 import de.vandermeer.skb.interfaces.messagesets.HasInfoSet;
@@ -43,6 +50,26 @@ import de.vandermeer.skb.interfaces.render.DoesRender;
 
 /**
  * Manages Info, Warning and Error messages supporting {@link Message5WH}, {@link IsInfoSet}, {@link IsWarningSet}, {@link IsErrorSet}, and {@link DoesRender} objects as well as arrays and collections of them.
+ * 
+ * Messages are processed on the reporting thread by default.
+ * A manager built with {@link MessageMgrBuilder#enableAsyncReporting(int)} processes messages on a background thread instead, see {@link #flush()} and {@link #close()}.
+ * 
+ * Message counters are always safe for many reporting threads.
+ * A manager built with {@link MessageMgrBuilder#enableConcurrentReporting()} also uses a concurrent structure for collected messages.
+ * 
+ * Rendered messages are only collected if collection is enabled in the builder, optionally bounded by an {@link E_CollectionPolicy}.
+ * 
+ * A manager built with {@link MessageMgrBuilder#enableDeduplication(long, int)} suppresses repeated messages within a window and reports a summary with the number of repeats instead.
+ * Suppressed messages are still counted.
+ * 
+ * Rate limits per message type and per reporter as well as sampling of information messages can be set in the builder, see {@link MessageMgrBuilder#setRateLimit(E_MessageType, double, int)}.
+ * Dropped messages are counted and reported in summarized form.
+ * 
+ * A manager built with {@link MessageMgrBuilder#enableCountingOnly(int)} only counts messages, for callers that only need {@link #hasErrors()} or {@link #hasWarnings()}.
+ * 
+ * Tasks running in parallel can report to a {@link #fork()} of the manager, which buffers messages without synchronization until it is joined.
+ * 
+ * Besides console or logger, messages can be written to any number of {@link MessageSink}s, see {@link MessageMgrBuilder#addSink(MessageSink, E_MessageType...)}.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -59,6 +86,8 @@ public class MessageMgr implements HasToStringStyle {
 	 * The set templates and their arguments are:
 	 * <ul>
 	 * 		<li>max ::= name, number, type</li>
+	 * 		<li>repeated ::= name, number, type, message</li>
+	 * 		<li>dropped ::= name, number, type</li>
 	 * </ul>
 	 * 
 	 * @return template map
@@ -71,12 +100,25 @@ public class MessageMgr implements HasToStringStyle {
 						add("name"); add("number"); add("type");
 					}}
 				);
+				put("repeated", new HashSet<String>(){
+					private static final long serialVersionUID = 1L;{
+						add("name"); add("number"); add("type"); add("message");
+					}}
+				);
+				put("dropped", new HashSet<String>(){
+					private static final long serialVersionUID = 1L;{
+						add("name"); add("number"); add("type");
+					}}
+				);
 			}
 		};
 	}
 
-	/** Map of collected messages (errors, warnings, information) as rendered strings. */
-	protected final LinkedHashMap<String, E_MessageType> messages;
+	/** Minimum size of a batch for rendering its messages in parallel, smaller batches are rendered on the processing thread. */
+	protected static final int PARALLEL_THRESHOLD = 64;
+
+	/** Collected messages (errors, warnings, information) as rendered strings, null if collection is disabled. */
+	protected final MessageCollection messages;
 
 	/** Maps of message handlers for message types. */
 	protected final Map<E_MessageType, MessageTypeHandler> messageHandlers;
@@ -87,40 +129,73 @@ public class MessageMgr implements HasToStringStyle {
 	/** Message renderer. */
 	protected MessageRenderer renderer = null;
 
-	/** STGroup for max100 messages. */
-	protected final STGroup max100stg = new STGroupFile("de/vandermeer/skb/base/managers/msg-manager.stg");
-
 	/** The identifier (or name) of the application using the message manager. */
 	protected final Object appID;
 
+	/** Dispatcher for asynchronous reporting, null if messages are processed on the reporting thread. */
+	protected MessageDispatcher dispatcher = null;
+
+	/** Deduplicator for repeated messages, null if repeated messages are not suppressed. */
+	protected MessageDeduplicator deduplicator = null;
+
+	/** Rate limiter for messages, null if the message rate is not limited. */
+	protected MessageRateLimiter rateLimiter = null;
+
+	/** Metrics of the manager, null if metrics are not enabled. */
+	protected MessageMetrics metrics = null;
+
+	/** Index of collected messages, null if messages are not indexed. */
+	protected MessageIndex index = null;
+
+	/** Unrendered messages kept per type in counting-only mode, null if the manager is not counting only. */
+	protected Map<E_MessageType, List<Object>> unrendered = null;
+
+	/** Maximum number of unrendered messages kept per type in counting-only mode. */
+	protected int keepUnrendered;
+
+	/** Sequence number of the next fork. */
+	protected final AtomicLong forkSequence = new AtomicLong();
+
+	/** Clock for deduplication windows, rate limits, and fork time stamps in nanoseconds. */
+	protected LongSupplier clock = System::nanoTime;
+
+	/** Number of open managers per sink for sinks shared by managers of one builder, null if the manager is the only owner of its sinks. */
+	protected Map<MessageSink, AtomicInteger> sinkOwners = null;
+
+	/** Flag for sinks already released by {@link #close()}. */
+	protected final AtomicBoolean sinksReleased = new AtomicBoolean();
+
 	/**
 	 * Creates a new information message.
+	 * The what part is a pattern with {@code {}} placeholders, formatted with the objects only when the message is rendered (see {@link Message5WH_Builder#setWhat(String, Object...)}).
 	 * @param what the what part of the message (what has happened)
 	 * @param obj objects to add to the message
 	 * @return new information message
 	 */
 	public static Message5WH createInfoMessage(String what, Object ... obj){
-		return new Message5WH_Builder().addWhat(FormattingTupleWrapper.create(what, obj)).setType(E_MessageType.INFO).build();
+		return new Message5WH_Builder().setWhat(what, obj).setType(E_MessageType.INFO).build();
 	}
 
 	/**
 	 * Creates a new warning message.
+	 * The what part is a pattern with {@code {}} placeholders, formatted with the objects only when the message is rendered (see {@link Message5WH_Builder#setWhat(String, Object...)}).
 	 * @param what the what part of the message (what has happened)
 	 * @param obj objects to add to the message
 	 * @return new information message
 	 */
 	public static Message5WH createWarningMessage(String what, Object ... obj){
-		return new Message5WH_Builder().addWhat(FormattingTupleWrapper.create(what, obj)).setType(E_MessageType.WARNING).build();
+		return new Message5WH_Builder().setWhat(what, obj).setType(E_MessageType.WARNING).build();
 	}
 
 	/**
 	 * Creates a new error message.
+	 * The what part is a pattern with {@code {}} placeholders, formatted with the objects only when the message is rendered (see {@link Message5WH_Builder#setWhat(String, Object...)}).
 	 * @param what the what part of the message (what has happened)
 	 * @param obj objects to add to the message
 	 * @return new information message
 	 */
 	public static Message5WH createErrorMessage(String what, Object ... obj){
-		return new Message5WH_Builder().addWhat(FormattingTupleWrapper.create(what, obj)).setType(E_MessageType.ERROR).build();
+		return new Message5WH_Builder().setWhat(what, obj).setType(E_MessageType.ERROR).build();
 	}
 
 	/**
@@ -130,14 +205,236 @@ public class MessageMgr implements HasToStringStyle {
 	 * @param doCollectMessages flag for collecting messages (true for do collect, false for not)
 	 */
 	MessageMgr(Object appID, Map<E_MessageType, MessageTypeHandler> messageHandlers, boolean doCollectMessages){
-		this.messages = new LinkedHashMap<>();
+		this(appID, messageHandlers, (doCollectMessages==true)?new MessageCollection(E_CollectionPolicy.ALL, 0, false):null);
+	}
+
+	/**
+	 * Returns a new manager.
+	 * @param appID the application identifier or name used in messages
+	 * @param messageHandlers the message handlers for the manager
+	 * @param messages collection for messages, null to not collect messages
+	 */
+	MessageMgr(Object appID, Map<E_MessageType, MessageTypeHandler> messageHandlers, MessageCollection messages){
+		this.messages = messages;
 
 		this.appID = appID;
 		this.messageHandlers = new HashMap<>();
 		this.messageHandlers.putAll(messageHandlers);
-		this.doCollectMessages = doCollectMessages;
+		this.doCollectMessages = (messages!=null);
+
+		this.renderer = new CompiledMessageRenderer();
+	}
+
+	/**
+	 * Activates asynchronous reporting.
+	 * Once activated, reported messages are handed to a ring buffer with the given capacity and rendered and handled by a single background thread.
+	 * @param capacity capacity of the ring buffer, must be greater than 0
+	 */
+	void activateAsync(int capacity){
+		if(this.dispatcher==null){
+			this.dispatcher = new MessageDispatcher(this.appID, capacity, this::process);
+		}
+	}
+
+	/**
+	 * Sets the clock of the manager.
+	 * @param clock clock returning the current time in nanoseconds, as {@link System#nanoTime()} does
+	 */
+	void activateClock(LongSupplier clock){
+		this.clock = clock;
+	}
+
+	/**
+	 * Sets the owner counts of sinks shared with other managers, so that a shared sink is only closed by the last manager closed.
+	 * @param sinkOwners number of open managers per sink, maintained by the builder
+	 */
+	void activateSharedSinks(Map<MessageSink, AtomicInteger> sinkOwners){
+		this.sinkOwners = sinkOwners;
+	}
+
+	/**
+	 * Activates suppression of repeated messages.
+	 * @param windowMillis length of a window in milliseconds, 0 for no time limit
+	 * @param windowCount maximum number of suppressed messages in a window, 0 for no count limit
+	 */
+	void activateDeduplication(long windowMillis, int windowCount){
+		this.deduplicator = new MessageDeduplicator(windowMillis, windowCount);
+	}
+
+	/**
+	 * Activates rate limiting.
+	 * @param rateLimiter the rate limiter with all limits set
+	 */
+	void activateRateLimiting(MessageRateLimiter rateLimiter){
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Activates the index of collected messages.
+	 */
+	void activateIndex(){
+		this.index = new MessageIndex();
+	}
+
+	/**
+	 * Activates counting only, that is reported messages are only classified and counted.
+	 * @param keep maximum number of messages kept unrendered per type
+	 */
+	void activateCountingOnly(int keep){
+		this.keepUnrendered = keep;
+		this.unrendered = new EnumMap<>(E_MessageType.class);
+		for(E_MessageType type : this.messageHandlers.keySet()){
+			this.unrendered.put(type, new ArrayList<>(keep));
+		}
+	}
+
+	/**
+	 * Activates metrics and registers them with the platform MBean server.
+	 */
+	void activateMetrics(){
+		if(this.metrics==null){
+			this.metrics = new MessageMetrics(this);
+			this.metrics.register();
+		}
+	}
+
+	/**
+	 * Returns the metrics of the manager.
+	 * @return metrics, null if metrics are not enabled
+	 */
+	public MessageMetrics getMetrics(){
+		return this.metrics;
+	}
+
+	/**
+	 * Tests if the manager reports messages asynchronously.
+	 * @return true if messages are processed by a background thread, false if they are processed on the reporting thread
+	 */
+	public boolean isAsync(){
+		return this.dispatcher!=null && !this.dispatcher.isClosed();
+	}
+
+	/**
+	 * Waits until all messages reported so far have been processed.
+	 * For a synchronous manager this method returns immediately.
+	 * Counters, collected messages and the {@code has...()} methods call this method, so they always reflect all messages reported before.
+	 * @return self to allow chaining
+	 */
+	public MessageMgr flush(){
+		if(this.dispatcher!=null){
+			this.dispatcher.flush();
+		}
+		return this;
+	}
+
+	/**
+	 * Processes all outstanding messages, stops asynchronous reporting, closes all sinks, and unregisters the metrics.
+	 * A sink shared with other managers built by the same builder is only flushed, it is closed by the last of these managers closed.
+	 * Any message reported after this call is processed on the reporting thread.
+	 * For a synchronous manager without sinks this method has no effect.
+	 */
+	public void close(){
+		if(this.dispatcher!=null){
+			this.dispatcher.close();
+		}
+		this.flushSummaries();
+		if(this.sinksReleased.compareAndSet(false, true)){
+			for(MessageSink sink : this.getSinks()){
+				if(this.releaseSink(sink)){
+					sink.close();
+				}
+				else{
+					sink.flush();
+				}
+			}
+		}
+		if(this.metrics!=null){
+			this.metrics.unregister();
+		}
+	}
+
+	/**
+	 * Waits until all messages reported so far have been processed and then flushes all sinks of all handlers.
+	 * @return self to allow chaining
+	 */
+	public MessageMgr flushSinks(){
+		this.flush();
+		for(MessageSink sink : this.getSinks()){
+			sink.flush();
+		}
+		return this;
+	}
+
+	/**
+	 * Releases a sink of the manager.
+	 * @param sink the sink
+	 * @return true if the sink can be closed, that is no other open manager writes to it, false otherwise
+	 */
+	protected boolean releaseSink(MessageSink sink){
+		AtomicInteger owners = (this.sinkOwners==null)?null:this.sinkOwners.get(sink);
+		return owners==null || owners.decrementAndGet()<=0;
+	}
+
+	/**
+	 * Returns all sinks of all handlers, every sink only once.
+	 * @return sinks
+	 */
+	protected Set<MessageSink> getSinks(){
+		Set<MessageSink> ret = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(MessageTypeHandler handler : this.messageHandlers.values()){
+			ret.addAll(handler.getSinks());
+		}
+		return ret;
+	}
+
+	/**
+	 * Reports summaries for all messages that are currently suppressed as repeats (starting new windows for them) or that have been dropped by a rate limit.
+	 * Summaries are otherwise reported when a window ends or with the next admitted message of the same type, which is detected when the next message is reported.
+	 * For a manager that neither suppresses repeated messages nor limits the message rate this method has no effect.
+	 * @return self to allow chaining
+	 */
+	public MessageMgr flushSummaries(){
+		if(this.deduplicator!=null || this.rateLimiter!=null){
+			Runnable drain = () -> {
+				if(this.deduplicator!=null){
+					this.deduplicator.drain(repeat -> this.processSummary(this.summarizeRepeat(repeat)));
+				}
+				if(this.rateLimiter!=null){
+					for(E_MessageType type : E_MessageType.values()){
+						this.processSummary(this.summarizeDropped(type, this.rateLimiter.takeDropped(type)));
+					}
+				}
+			};
+			if(this.dispatcher==null || !this.dispatcher.submit(drain)){
+				drain.run();
+			}
+			this.flush();
+		}
+		return this;
+	}
 
-		this.renderer = new MessageRenderer();
+	/**
+	 * Returns the number of messages that have been suppressed as repeats, these messages are included in the message counts.
+	 * @return number of suppressed messages, 0 if repeated messages are not suppressed
+	 */
+	public long getSuppressedMessageCount(){
+		this.flush();
+		if(this.deduplicator==null){
+			return 0;
+		}
+		return this.deduplicator.getSuppressedCount();
+	}
+
+	/**
+	 * Returns the number of messages that have been dropped by a rate limit or sampling, these messages are included in the message counts.
+	 * @return number of dropped messages, 0 if the message rate is not limited
+	 */
+	public long getDroppedMessageCount(){
+		this.flush();
+		if(this.rateLimiter==null){
+			return 0;
+		}
+		return this.rateLimiter.getDroppedCount();
 	}
 
 	/**
@@ -154,18 +451,73 @@ public class MessageMgr implements HasToStringStyle {
 
 	/**
 	 * Returns the collected messages.
+	 * The returned collection is an unmodifiable snapshot, messages collected with {@link E_CollectionPolicy#OFF_HEAP} are rendered while it is iterated.
 	 * @return empty if collection is disabled, a list of collected reports otherwise
 	 */
 	public Collection<String> getMessageCollection(){
-		return this.messages.keySet();
+		this.flush();
+		if(this.messages==null){
+			return Collections.emptySet();
+		}
+		return this.messages.getTexts(this.renderer);
 	}
 
 	/**
 	 * Returns the collected messages.
+	 * The returned map is an unmodifiable snapshot, messages collected with {@link E_CollectionPolicy#OFF_HEAP} are rendered into it on every call.
 	 * @return empty if collection is disabled, a list of collected reports otherwise
 	 */
 	public Map<String, E_MessageType> getMessageMap(){
-		return this.messages;
+		this.flush();
+		if(this.messages==null){
+			return Collections.emptyMap();
+		}
+		return this.messages.getMap(this.renderer);
+	}
+
+	/**
+	 * Tests if the manager only counts messages, see {@link MessageMgrBuilder#enableCountingOnly(int)}.
+	 * @return true if reported messages are only counted, false if they are rendered and written
+	 */
+	public boolean isCountingOnly(){
+		return this.unrendered!=null;
+	}
+
+	/**
+	 * Returns the first messages of a type kept unrendered in counting-only mode, see {@link MessageMgrBuilder#enableCountingOnly(int)}.
+	 * @param type the message type
+	 * @return kept messages ({@link Message5WH} or {@link IsMessageSet}) in the order they have been counted, empty if the manager is not counting only or has no handler for the type
+	 */
+	public List<Object> getUnrenderedMessages(E_MessageType type){
+		if(this.unrendered==null || !this.unrendered.containsKey(type)){
+			return Collections.emptyList();
+		}
+		List<Object> kept = this.unrendered.get(type);
+		synchronized(kept){
+			return new ArrayList<>(kept);
+		}
+	}
+
+	/**
+	 * Returns a new query over the indexed messages, see {@link MessageMgrBuilder#enableMessageIndex()}.
+	 * The query includes all messages reported before this call.
+	 * @return new query, a query without results if messages are not indexed
+	 */
+	public MessageQuery query(){
+		this.flush();
+		return new MessageQuery(this.index);
+	}
+
+	/**
+	 * Returns the number of messages that have been reported but were evicted from (or never admitted to) the collection due to its policy.
+	 * @return number of evicted messages, 0 if collection is disabled
+	 */
+	public long getEvictedMessageCount(){
+		this.flush();
+		if(this.messages==null){
+			return 0;
+		}
+		return this.messages.getEvictedCount();
 	}
 
 	/**
@@ -173,6 +525,7 @@ public class MessageMgr implements HasToStringStyle {
 	 * @return true if errors have been reported, false otherwise
 	 */
 	public boolean hasErrors(){
+		this.flush();
 		if(this.messageHandlers.containsKey(E_MessageType.ERROR)){
 			return (this.messageHandlers.get(E_MessageType.ERROR).getCount()==0)?false:true;
 		}
@@ -184,6 +537,7 @@ public class MessageMgr implements HasToStringStyle {
 	 * @return true if warnings have been reported, false otherwise
 	 */
 	public boolean hasWarnings(){
+		this.flush();
 		if(this.messageHandlers.containsKey(E_MessageType.WARNING)){
 			return (this.messageHandlers.get(E_MessageType.WARNING).getCount()==0)?false:true;
 		}
@@ -195,6 +549,7 @@ public class MessageMgr implements HasToStringStyle {
 	 * @return true if infos have been reported, false otherwise
 	 */
 	public boolean hasInfos(){
+		this.flush();
 		if(this.messageHandlers.containsKey(E_MessageType.INFO)){
 			return (this.messageHandlers.get(E_MessageType.INFO).getCount()==0)?false:true;
 		}
@@ -207,6 +562,7 @@ public class MessageMgr implements HasToStringStyle {
 	 * @return current count of messages, -1 if not in active list
 	 */
 	public int getMessageCount(E_MessageType type) {
+		this.flush();
 		if(this.messageHandlers.containsKey(type)){
 			return this.messageHandlers.get(type).getCount();
 		}
@@ -234,16 +590,19 @@ public class MessageMgr implements HasToStringStyle {
 		if(message==null){
 			return false;
 		}
-
-		E_MessageType type = message.getType();
 		if(!this.messageHandlers.containsKey(message.getType())){
 			return false;
 		}
-		MessageTypeHandler handler = this.messageHandlers.get(message.getType());
 
-		String template = this.renderer.render(message);
-		handler.handleMessage(template, type, this.max100stg.getInstanceOf("max"), this.appID);
-		this.messages.put(template, type);
+		if(this.unrendered!=null){
+			this.count(message, message.getType());
+			return true;
+		}
+
+		message.retain();
+		if(this.dispatcher==null || !this.dispatcher.submit(message)){
+			this.process(message);
+		}
 		return true;
 	}
 
@@ -257,30 +616,165 @@ public class MessageMgr implements HasToStringStyle {
 			return false;
 		}
 
-		E_MessageType type = null;
+		E_MessageType type = this.getType(messageSet);
+		if(type==null){
+			return false;
+		}
+		if(!this.messageHandlers.containsKey(type)){
+			return false;
+		}
+		if(this.unrendered!=null){
+			this.count(messageSet, type);
+			return true;
+		}
+
+		if(this.dispatcher==null || !this.dispatcher.submit(messageSet)){
+			this.process(messageSet);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the message type of a message set.
+	 * @param messageSet the message set
+	 * @return message type, null if the set is neither an error, a warning, nor an info set
+	 */
+	protected E_MessageType getType(IsMessageSet messageSet){
 		if(messageSet.isErrorSet()){
-			type = E_MessageType.ERROR;
+			return E_MessageType.ERROR;
 		}
 		else if(messageSet.isWarningSet()){
-			type = E_MessageType.WARNING;
+			return E_MessageType.WARNING;
 		}
 		else if(messageSet.isInfoSet()){
-			type = E_MessageType.INFO;
+			return E_MessageType.INFO;
 		}
-		else{
-			return false;
+		return null;
+	}
+
+	/**
+	 * Counts a message in counting-only mode, keeping it unrendered if it is one of the first messages of its type.
+	 * @param message the message, a {@link Message5WH} or an {@link IsMessageSet}, already tested for a handler
+	 * @param type the message type
+	 */
+	protected void count(Object message, E_MessageType type){
+		if(this.messageHandlers.get(type).countMessages(1)<this.keepUnrendered){
+			List<Object> kept = this.unrendered.get(type);
+			synchronized(kept){
+				if(kept.size()<this.keepUnrendered){
+					if(message instanceof Message5WH){
+						((Message5WH)message).retain();
+					}
+					kept.add(message);
+				}
+			}
 		}
-		if(!this.messageHandlers.containsKey(type)){
-			return false;
+	}
+
+	/**
+	 * Processes a reported message, that is counting it, handing it to its handler, and collecting it.
+	 * The message is rendered only if its handler is enabled or messages are collected (other than off-heap).
+	 * This method is called on the reporting thread for a synchronous manager and on the dispatcher thread for an asynchronous manager.
+	 * @param message the message, a {@link Message5WH} or an {@link IsMessageSet}, already tested for a handler
+	 */
+	protected void process(Object message){
+		ReportedMessage reported = this.toReported(message);
+		try{
+			if((this.deduplicator!=null || this.rateLimiter!=null) && !this.admit(reported, this.clock.getAsLong(), this::processSummary)){
+				return;
+			}
+
+			this.messageHandlers.get(reported.getType()).handleMessage(reported, this.appID);
+			if(this.messages!=null){
+				this.messages.add(reported);
+			}
+			if(this.index!=null && reported.getMessage()!=null){
+				this.index.add(reported.getMessage());
+			}
+		}
+		finally{
+			reported.release();
 		}
-		MessageTypeHandler handler = this.messageHandlers.get(type);
+	}
+
+	/**
+	 * Returns a new reported message for a message.
+	 * @param message the message, a {@link Message5WH} or an {@link IsMessageSet}
+	 * @return reported message
+	 */
+	protected ReportedMessage toReported(Object message){
+		E_MessageType type = (message instanceof Message5WH)?((Message5WH)message).getType():this.getType((IsMessageSet)message);
+		return new ReportedMessage(type, message, this.renderer, (this.metrics==null)?null:this.metrics.getRenderLatency());
+	}
 
-		String template = messageSet.render();
-		handler.handleMessage(template, type, this.max100stg.getInstanceOf("max"), this.appID);
-		this.messages.put(template, type);
+	/**
+	 * Tests if a message is admitted by deduplication and rate limits, a message that is not admitted is counted but not written or collected.
+	 * @param reported the reported message
+	 * @param now current time in nanoseconds
+	 * @param summaries function for summaries of repeated or dropped messages that are due before the message
+	 * @return true if the message is admitted, false otherwise
+	 */
+	protected boolean admit(ReportedMessage reported, long now, Consumer<ReportedMessage> summaries){
+		E_MessageType type = reported.getType();
+		if(this.deduplicator!=null && reported.getMessage()!=null && !this.deduplicator.admit(reported, now, repeat -> summaries.accept(this.summarizeRepeat(repeat)))){
+			this.messageHandlers.get(type).skipMessage();
+			return false;
+		}
+		if(this.rateLimiter!=null){
+			if(!this.rateLimiter.admit(reported, now)){
+				this.messageHandlers.get(type).skipMessage();
+				return false;
+			}
+			summaries.accept(this.summarizeDropped(type, this.rateLimiter.takeDropped(type, now)));
+		}
 		return true;
 	}
 
+	/**
+	 * Returns the summary of a message that has been suppressed as a repeat.
+	 * @param repeat the window of the repeated message
+	 * @return summary, null if the summary would neither be written nor collected
+	 */
+	protected ReportedMessage summarizeRepeat(MessageDeduplicator.Repeat repeat){
+		E_MessageType type = repeat.getMessage().getType();
+		if(!this.messageHandlers.get(type).isEnabled() && this.messages==null){
+			return null;
+		}
+
+		return new ReportedMessage(type, MessageTemplates.renderRepeated(this.appID, repeat.getCount(), type, repeat.getMessage().getText()));
+	}
+
+	/**
+	 * Returns the summary of messages of a type that have been dropped by the rate limiter.
+	 * @param type the message type
+	 * @param dropped number of dropped messages
+	 * @return summary, null if no messages have been dropped or the summary would neither be written nor collected
+	 */
+	protected ReportedMessage summarizeDropped(E_MessageType type, long dropped){
+		if(dropped==0 || !this.messageHandlers.containsKey(type)){
+			return null;
+		}
+		if(!this.messageHandlers.get(type).isEnabled() && this.messages==null){
+			return null;
+		}
+
+		return new ReportedMessage(type, MessageTemplates.renderDropped(this.appID, dropped, type));
+	}
+
+	/**
+	 * Processes a summary, that is handing it to the handler of its message type and collecting it.
+	 * @param summary the summary, nothing is processed for null
+	 */
+	protected void processSummary(ReportedMessage summary){
+		if(summary==null){
+			return;
+		}
+		this.messageHandlers.get(summary.getType()).handleSummary(summary);
+		if(this.messages!=null){
+			this.messages.add(summary);
+		}
+	}
+
 	/**
 	 * Reports a message trying all known classes (message formats).
 	 * @param message message to be reported
@@ -344,15 +838,335 @@ public class MessageMgr implements HasToStringStyle {
 		return ret;
 	}
 
+	/**
+	 * Reports an error message created with the reusing builder of the calling thread, see {@link Message5WH_Builder#local()}.
+	 * Unlike {@link #createErrorMessage(String, Object...)} with {@link #report(Object)}, this allocates no builder, buffer, or message once the builder's message has been recycled.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportError(String what, Object ... obj){
+		return this.report(E_MessageType.ERROR, what, obj);
+	}
+
+	/**
+	 * Reports a warning message created with the reusing builder of the calling thread, see {@link #reportError(String, Object...)}.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportWarning(String what, Object ... obj){
+		return this.report(E_MessageType.WARNING, what, obj);
+	}
+
+	/**
+	 * Reports an information message created with the reusing builder of the calling thread, see {@link #reportError(String, Object...)}.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportInfo(String what, Object ... obj){
+		return this.report(E_MessageType.INFO, what, obj);
+	}
+
+	/**
+	 * Reports a message created with the reusing builder of the calling thread, the builder is reset afterwards so that the message can be recycled.
+	 * @param type the message type
+	 * @param what the what part of the message
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	protected boolean report(E_MessageType type, String what, Object[] obj){
+		if(!this.messageHandlers.containsKey(type)){
+			return false;
+		}
+		if(this.unrendered!=null && this.messageHandlers.get(type).getCount()>=this.keepUnrendered){
+			// the message would not be kept, so there is no need to build it
+			this.messageHandlers.get(type).skipMessage();
+			return true;
+		}
+		Message5WH_Builder builder = Message5WH_Builder.local();
+		try{
+			return this.report(builder.setWhat(what, obj).setType(type).build());
+		}
+		finally{
+			builder.reset();
+		}
+	}
+
+	/**
+	 * Reports a batch of messages, for instance all messages of a large parse or validation run.
+	 * 
+	 * This methods understands the same message formats and containers as {@link #report(Object)} and produces the same output in the same order.
+	 * Messages are admitted (deduplication, rate limits) and counted in order, counters are updated once per message type.
+	 * The messages are then rendered in parallel using the common fork-join pool and finally written in order.
+	 * Every sink receives the batch with a single call of {@link MessageSink#write(java.util.List)}.
+	 * An asynchronous manager processes the batch as a single entry of its buffer.
+	 * 
+	 * @param obj message object or object containing messages for reporting
+	 * @return true if one or all message have been reported, false otherwise
+	 */
+	public boolean reportBatch(Object obj){
+		if(obj==null){
+			return false;
+		}
+
+		List<Object> batch = new ArrayList<>();
+		boolean ret = this.addAll(obj, batch);
+		this.processForked(batch);
+		return ret;
+	}
+
+	/**
+	 * Adds messages to a batch, understanding the same message formats and containers as {@link #report(Object)}.
+	 * @param obj message object or object containing messages
+	 * @param batch the batch to add to
+	 * @return true if one or all message have been added, false otherwise
+	 */
+	boolean addAll(Object obj, List<Object> batch){
+		if(obj==null){
+			return false;
+		}
+
+		boolean ret = true;
+		if(obj instanceof Iterable){
+			for(Object o : (Iterable<?>)obj){
+				ret = ret & this.addKnownClasses(o, batch);
+			}
+		}
+		else if(obj instanceof Iterator){
+			while(((Iterator<?>)obj).hasNext()){
+				ret = ret & this.addKnownClasses(((Iterator<?>)obj).next(), batch);
+			}
+		}
+		else if(obj instanceof Object[]){
+			for(Object o : (Object[])obj){
+				ret = ret & this.addKnownClasses(o, batch);
+			}
+		}
+		else{
+			ret = ret & this.addKnownClasses(obj, batch);
+		}
+		return ret;
+	}
+
+	/**
+	 * Processes a batch of messages, on the dispatcher thread for an asynchronous manager.
+	 * @param batch the messages, {@link Message5WH} (retained) or {@link IsMessageSet}, already tested for a handler
+	 */
+	void processForked(List<Object> batch){
+		if(this.unrendered!=null){
+			for(Object message : batch){
+				if(message instanceof Message5WH){
+					this.count(message, ((Message5WH)message).getType());
+					((Message5WH)message).release();
+				}
+				else{
+					this.count(message, this.getType((IsMessageSet)message));
+				}
+			}
+			return;
+		}
+		if(batch.size()>0){
+			Runnable task = () -> this.processBatch(batch);
+			if(this.dispatcher==null || !this.dispatcher.submit(task)){
+				task.run();
+			}
+		}
+	}
+
+	/**
+	 * Returns a new fork of the manager for a single task, for instance the validation of one of many files in a fork-join pool.
+	 * The fork buffers and counts messages without synchronization, they are processed by this manager when the fork is joined.
+	 * @return new fork
+	 */
+	public MessageMgrFork fork(){
+		return new MessageMgrFork(this, this.forkSequence.getAndIncrement());
+	}
+
+	/**
+	 * Joins forks of this manager, that is processing all their buffered messages as a single batch.
+	 * All forks are empty afterwards.
+	 * @param forks the forks to join, forks of other managers are ignored
+	 * @param order the order of the messages of different forks, fork order if null
+	 * @return self to allow chaining
+	 */
+	public MessageMgr join(Collection<MessageMgrFork> forks, E_JoinOrder order){
+		if(forks==null){
+			return this;
+		}
+		List<MessageMgrFork> own = new ArrayList<>(forks.size());
+		for(MessageMgrFork fork : forks){
+			if(fork!=null && fork.getParent()==this){
+				own.add(fork);
+			}
+		}
+		this.processForked(MessageMgrFork.merge(own, order));
+		return this;
+	}
+
+	/**
+	 * Adds a message to a batch trying all known classes (message formats).
+	 * @param message message to be added
+	 * @param batch the batch, with {@link Message5WH} and {@link IsMessageSet} messages that have a handler
+	 * @return true if the message was added, false otherwise
+	 */
+	protected boolean addKnownClasses(Object message, List<Object> batch){
+		Object add = null;
+		if(message instanceof Message5WH || message instanceof IsMessageSet){
+			add = message;
+		}
+		else if(message instanceof HasErrorSet){
+			add = ((HasErrorSet<?>)message).getErrorSet();
+		}
+		else if(message instanceof HasWarningSet){
+			add = ((HasWarningSet<?>)message).getWarningSet();
+		}
+		else if(message instanceof HasInfoSet){
+			add = ((HasInfoSet<?>)message).getInfoSet();
+		}
+		else{
+			return true;
+		}
+
+		if(add==null){
+			return false;
+		}
+		if(add instanceof Message5WH){
+			if(!this.messageHandlers.containsKey(((Message5WH)add).getType())){
+				return false;
+			}
+			((Message5WH)add).retain();
+		}
+		else{
+			E_MessageType type = this.getType((IsMessageSet)add);
+			if(type==null || !this.messageHandlers.containsKey(type)){
+				return false;
+			}
+		}
+		batch.add(add);
+		return true;
+	}
+
+	/**
+	 * Processes a batch of messages: sequential admission and counting, parallel rendering, sequential writing and collection.
+	 * @param batch the messages, {@link Message5WH} or {@link IsMessageSet}, already tested for a handler
+	 */
+	protected void processBatch(List<Object> batch){
+		try{
+			// admit in order, summaries of repeated or dropped messages are placed before the message that triggered them
+			List<ReportedMessage> admitted = new ArrayList<>(batch.size());
+			boolean filter = (this.deduplicator!=null || this.rateLimiter!=null);
+			long now = (filter)?this.clock.getAsLong():0;
+			Consumer<ReportedMessage> summaries = summary -> {
+				if(summary!=null){
+					admitted.add(summary);
+				}
+			};
+			int[] counts = new int[E_MessageType.values().length];
+			for(Object message : batch){
+				ReportedMessage reported = this.toReported(message);
+				if(!filter || this.admit(reported, now, summaries)){
+					admitted.add(reported);
+					counts[reported.getType().ordinal()]++;
+				}
+			}
+
+			// count once per type and decide which messages are written, the max message replaces the first message over the maximum count
+			long[] numbers = new long[counts.length];
+			boolean[] enabled = new boolean[counts.length];
+			for(E_MessageType type : this.messageHandlers.keySet()){
+				MessageTypeHandler handler = this.messageHandlers.get(type);
+				numbers[type.ordinal()] = (counts[type.ordinal()]>0)?handler.countMessages(counts[type.ordinal()]):0;
+				enabled[type.ordinal()] = handler.isEnabled();
+			}
+			List<ReportedMessage> written = new ArrayList<>(admitted.size());
+			List<MessageTypeHandler> writers = new ArrayList<>(admitted.size());
+			for(ReportedMessage reported : admitted){
+				int ordinal = reported.getType().ordinal();
+				if(!enabled[ordinal]){
+					continue;
+				}
+				MessageTypeHandler handler = this.messageHandlers.get(reported.getType());
+				if(!reported.isSummary() && handler.isOverMax(++numbers[ordinal])){
+					reported = handler.maxMessage(this.appID);
+					if(reported==null){
+						continue;
+					}
+				}
+				written.add(reported);
+				writers.add(handler);
+			}
+
+			// render in parallel, every message is rendered once and keeps its text
+			List<ReportedMessage> render = (this.messages!=null && this.messages.rendersOnAdd())?admitted:written;
+			if(render.size()>=PARALLEL_THRESHOLD){
+				render.parallelStream().forEach(ReportedMessage::getText);
+			}
+
+			// write and collect in order, sinks receive the batch at once
+			Map<MessageSink, List<ReportedMessage>> batches = new IdentityHashMap<>();
+			for(int i=0; i<written.size(); i++){
+				writers.get(i).write(written.get(i), batches);
+			}
+			for(Entry<MessageSink, List<ReportedMessage>> entry : batches.entrySet()){
+				entry.getKey().write(entry.getValue());
+			}
+			if(this.messages!=null){
+				for(ReportedMessage reported : admitted){
+					this.messages.add(reported);
+				}
+			}
+			if(this.index!=null){
+				for(ReportedMessage reported : admitted){
+					if(reported.getMessage()!=null){
+						this.index.add(reported.getMessage());
+					}
+				}
+			}
+		}
+		finally{
+			for(Object message : batch){
+				if(message instanceof Message5WH){
+					((Message5WH)message).release();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Resets the collected messages and all counters.
 	 * @return returns self to allow for chained calls
 	 */
 	public MessageMgr clear() {
+		this.flush();
 		for(MessageTypeHandler handler : this.messageHandlers.values()){
 			handler.clear();
 		}
-		this.messages.clear();
+		if(this.messages!=null){
+			this.messages.clear();
+		}
+		if(this.index!=null){
+			this.index.clear();
+		}
+		if(this.deduplicator!=null){
+			this.deduplicator.clear();
+		}
+		if(this.rateLimiter!=null){
+			this.rateLimiter.clear();
+		}
+		if(this.unrendered!=null){
+			for(List<Object> kept : this.unrendered.values()){
+				synchronized(kept){
+					for(Object message : kept){
+						if(message instanceof Message5WH){
+							((Message5WH)message).release();
+						}
+					}
+					kept.clear();
+				}
+			}
+		}
 		return this;
 	}
 
@@ -15,8 +15,16 @@
 
 package de.vandermeer.skb.base.managers;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -26,6 +34,10 @@ import de.vandermeer.skb.interfaces.messagesets.IsErrorSetFT;
 
 /**
  * Builds a {@link MessageMgr} object with all settings.
+ * 
+ * A builder can build many managers.
+ * Every manager gets its own handlers and rate limiter, but the sinks given to the builder are shared by all managers built with it.
+ * A shared sink is closed by {@link MessageMgr#close()} of the last of these managers, and must not be used by managers built after that.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -42,9 +54,51 @@ public class MessageMgrBuilder {
 	/** Flag to define the behavior for message collection. */
 	protected boolean doCollectMessages;
 
+	/** Number of open managers per sink, for sinks shared by the managers built with this builder. */
+	protected final Map<MessageSink, AtomicInteger> sinkOwners = new ConcurrentHashMap<>();
+
+	/** Policy for message collection. */
+	protected E_CollectionPolicy collectionPolicy = E_CollectionPolicy.ALL;
+
+	/** Limit for the collection policy. */
+	protected long collectionLimit;
+
 	/** The identifier (or name) of the application using the message manager. */
 	protected final Object appID;
 
+	/** Flag for a manager that is used by many reporting threads. */
+	protected boolean concurrent;
+
+	/** Capacity of the ring buffer for asynchronous reporting, 0 for synchronous reporting. */
+	protected int asyncCapacity;
+
+	/** Flag for suppressing repeated messages. */
+	protected boolean deduplication;
+
+	/** Length of the deduplication window in milliseconds, 0 for no time limit. */
+	protected long dedupMillis;
+
+	/** Maximum number of suppressed messages in a deduplication window, 0 for no count limit. */
+	protected int dedupCount;
+
+	/** Sinks added to handlers and the message types they are added for. */
+	protected final Map<MessageSink, E_MessageType[]> sinks = new LinkedHashMap<>();
+
+	/** Rate limiter for the manager, null if the message rate is not limited. */
+	protected MessageRateLimiter rateLimiter;
+
+	/** Flag for metrics published via JMX. */
+	protected boolean metrics;
+
+	/** Flag for indexing collected messages. */
+	protected boolean index;
+
+	/** Number of messages kept unrendered per type for a counting-only manager, -1 for a manager that renders messages. */
+	protected int countingOnly = -1;
+
+	/** Clock for the manager in nanoseconds, null for {@link System#nanoTime()}. */
+	protected LongSupplier clock;
+
 	/**
 	 * Creates a new builder with given application identifier (name).
 	 * @param appID identifier (or name) of the application using the manager
@@ -141,15 +195,271 @@ public class MessageMgrBuilder {
 		return this;
 	}
 
+	/**
+	 * Activate a message type and sets a type handler with max count writing only to the given sinks, that is neither to console nor to a logger.
+	 * An existing handler will be overwritten.
+	 * @param type message type to be activated, nothing will be set if null
+	 * @param maxCount max count for the handler, -1 to ignore or greater than 0 to be used
+	 * @param sinks the sinks for the handler, must not be empty
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setHandler(E_MessageType type, int maxCount, MessageSink ... sinks){
+		if(type==null){
+			this.buildErrors.addError("{}: cannot add handler for empty type", this.getClass().getSimpleName());
+		}
+		else if(sinks==null || sinks.length==0){
+			this.buildErrors.addError("{}: cannot add handler for type {} without sinks", this.getClass().getSimpleName(), type);
+		}
+		else{
+			this.messageHandlers.put(type, new MessageTypeHandler(type, maxCount, sinks));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a sink to the handlers of the given message types, in addition to their console or logger.
+	 * The sink is added when the manager is built, to all handlers of the given types that are set by then.
+	 * Wrap a slow sink in an {@link AsyncSink} to give it its own buffer and thread.
+	 * @param sink the sink to add
+	 * @param types the message types for the sink, all types if empty
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder addSink(MessageSink sink, E_MessageType ... types){
+		if(sink==null){
+			this.buildErrors.addError("{}: cannot add empty sink", this.getClass().getSimpleName());
+		}
+		else{
+			this.sinks.put(sink, (types==null || types.length==0)?E_MessageType.values():types);
+		}
+		return this;
+	}
+
 	/**
 	 * Enables collection of messages for the manager.
 	 * @return self to allow for chaining
 	 */
 	public MessageMgrBuilder enableMessageCollection(){
-		this.doCollectMessages = true;
+		return this.enableMessageCollection(E_CollectionPolicy.ALL, 0);
+	}
+
+	/**
+	 * Enables bounded collection of messages for the manager.
+	 * @param policy the collection policy, must not be null
+	 * @param limit the limit for the policy (number of messages or bytes), must be greater than 0 for all policies but {@link E_CollectionPolicy#ALL}
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableMessageCollection(E_CollectionPolicy policy, long limit){
+		if(policy==null){
+			this.buildErrors.addError("{}: cannot enable message collection with empty policy", this.getClass().getSimpleName());
+		}
+		else if(policy!=E_CollectionPolicy.ALL && limit<1){
+			this.buildErrors.addError("{}: limit for collection policy {} must be greater than 0, was {}", this.getClass().getSimpleName(), policy, limit);
+		}
+		else{
+			this.doCollectMessages = true;
+			this.collectionPolicy = policy;
+			this.collectionLimit = limit;
+		}
+		return this;
+	}
+
+	/**
+	 * Enables an index of all handled {@link de.vandermeer.skb.base.message.Message5WH} messages, queried with {@link MessageMgr#query()}.
+	 * The index keeps the messages themselves (not only the rendered text) with secondary indexes by type, reporter, who, and where location.
+	 * Suppressed and dropped messages are not indexed.
+	 * Indexed messages are independent of message collection and its policy, they are kept until the manager is cleared.
+	 * Message sets and summaries of suppressed or dropped messages are not indexed.
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableMessageIndex(){
+		this.index = true;
+		return this;
+	}
+
+	/**
+	 * Enables counting only, for instance for callers that only need {@link MessageMgr#hasErrors()} after a validation run.
+	 * A counting-only manager only classifies and counts reported messages, it does not render, write, collect, or index them.
+	 * Asynchronous reporting, deduplication, rate limits, collection, and index are ignored, as are maximum counts of handlers.
+	 * The first messages of each type can be kept unrendered for diagnostics, see {@link MessageMgr#getUnrenderedMessages(E_MessageType)}.
+	 * @param keep number of messages kept unrendered per type, 0 to keep none
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableCountingOnly(int keep){
+		if(keep<0){
+			this.buildErrors.addError("{}: number of kept messages must not be negative, was {}", this.getClass().getSimpleName(), keep);
+		}
+		else{
+			this.countingOnly = keep;
+		}
+		return this;
+	}
+
+	/**
+	 * Enables concurrent reporting, that is the manager is prepared for many threads reporting messages at the same time.
+	 * Message counters are always thread safe.
+	 * If all messages are collected, this setting replaces the ordered map of collected messages with a concurrent map, which has no defined iteration order.
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableConcurrentReporting(){
+		this.concurrent = true;
 		return this;
 	}
 
+	/**
+	 * Enables asynchronous reporting with a ring buffer capacity of 1024 messages.
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableAsyncReporting(){
+		return this.enableAsyncReporting(1024);
+	}
+
+	/**
+	 * Enables asynchronous reporting.
+	 * A manager with asynchronous reporting hands every reported message to a ring buffer of the given capacity.
+	 * Rendering and output are then done by a single background thread.
+	 * Use {@link MessageMgr#flush()} to wait for all reported messages and {@link MessageMgr#close()} to stop the background thread.
+	 * @param capacity capacity of the ring buffer, must be greater than 0
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableAsyncReporting(int capacity){
+		if(capacity>0){
+			this.asyncCapacity = capacity;
+		}
+		else{
+			this.buildErrors.addError("{}: capacity for asynchronous reporting must be greater than 0, was {}", this.getClass().getSimpleName(), capacity);
+		}
+		return this;
+	}
+
+	/**
+	 * Enables suppression of repeated messages.
+	 * A repeated message has the same type, reporter, who, where, and what as an earlier message, see {@link MessageKey}.
+	 * The first message opens a window, repeats within the window are counted but not written or collected.
+	 * When the window ends, a summary "last message repeated N times" is reported instead.
+	 * @param windowMillis length of a window in milliseconds, 0 for no time limit
+	 * @param windowCount maximum number of suppressed messages in a window, 0 for no count limit
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableDeduplication(long windowMillis, int windowCount){
+		if(windowMillis<0 || windowCount<0 || (windowMillis==0 && windowCount==0)){
+			this.buildErrors.addError("{}: window for deduplication must have a time or a count greater than 0, was {}ms and {} messages", this.getClass().getSimpleName(), windowMillis, windowCount);
+		}
+		else{
+			this.dedupMillis = windowMillis;
+			this.dedupCount = windowCount;
+			this.deduplication = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets a rate limit for a message type as a token bucket.
+	 * Messages above the limit are counted but not written or collected, the number of dropped messages is reported with the next written message of the type.
+	 * @param type the message type to limit
+	 * @param perSecond number of messages per second, must be greater than 0
+	 * @param burst maximum number of messages written at once, must be greater than 0
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setRateLimit(E_MessageType type, double perSecond, int burst){
+		if(type==null){
+			this.buildErrors.addError("{}: cannot set rate limit for empty type", this.getClass().getSimpleName());
+		}
+		else if(perSecond<=0 || burst<1){
+			this.buildErrors.addError("{}: rate limit for {} must have a rate and a burst greater than 0, was {}/s and {}", this.getClass().getSimpleName(), type, perSecond, burst);
+		}
+		else{
+			this.getRateLimiter().setTypeLimit(type, perSecond, burst);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets a rate limit for every reporter of a message as a token bucket, messages without reporter share one bucket.
+	 * Messages above the limit are counted but not written or collected, the number of dropped messages is reported with the next written message of the type.
+	 * @param perSecond number of messages per second and reporter, must be greater than 0
+	 * @param burst maximum number of messages written at once per reporter, must be greater than 0
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setReporterRateLimit(double perSecond, int burst){
+		if(perSecond<=0 || burst<1){
+			this.buildErrors.addError("{}: rate limit for reporters must have a rate and a burst greater than 0, was {}/s and {}", this.getClass().getSimpleName(), perSecond, burst);
+		}
+		else{
+			this.getRateLimiter().setReporterLimit(perSecond, burst);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets sampling for information messages, that is only a random share of them is written or collected.
+	 * @param probability probability for an information message to be written, must be greater than 0 and not greater than 1
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setInfoSampling(double probability){
+		if(probability<=0 || probability>1){
+			this.buildErrors.addError("{}: sampling probability must be greater than 0 and not greater than 1, was {}", this.getClass().getSimpleName(), probability);
+		}
+		else{
+			this.getRateLimiter().setInfoSampling(probability);
+		}
+		return this;
+	}
+
+	/**
+	 * Sets sampling for information messages with a fixed seed, so that the same messages are written in every run (for instance in tests).
+	 * @param probability probability for an information message to be written, must be greater than 0 and not greater than 1
+	 * @param seed seed for the random sampling
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setInfoSampling(double probability, long seed){
+		if(probability<=0 || probability>1){
+			this.buildErrors.addError("{}: sampling probability must be greater than 0 and not greater than 1, was {}", this.getClass().getSimpleName(), probability);
+		}
+		else{
+			this.getRateLimiter().setInfoSampling(probability, seed);
+		}
+		return this;
+	}
+
+	/**
+	 * Enables metrics for the manager, published as MXBean with the platform MBean server (see {@link MessageMgrMXBean}).
+	 * Metrics include message counts, suppressed and dropped messages, render latencies, queue depths, and bytes written by sinks.
+	 * The metrics stay registered until {@link MessageMgr#close()} unregisters them.
+	 * They hold the manager only weakly, so a manager that is never closed can still be garbage collected, after which its metrics read as 0 and unregister on the next read.
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder enableMetrics(){
+		this.metrics = true;
+		return this;
+	}
+
+	/**
+	 * Sets the clock used for deduplication windows, rate limits, and time stamps of forks.
+	 * The default is {@link System#nanoTime()}, another clock is mainly useful for tests.
+	 * @param clock clock returning the current time in nanoseconds
+	 * @return self to allow for chaining
+	 */
+	public MessageMgrBuilder setClock(LongSupplier clock){
+		if(clock==null){
+			this.buildErrors.addError("{}: clock cannot be null", this.getClass().getSimpleName());
+		}
+		else{
+			this.clock = clock;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the rate limiter for the manager, creating it on first use.
+	 * @return rate limiter
+	 */
+	protected MessageRateLimiter getRateLimiter(){
+		if(this.rateLimiter==null){
+			this.rateLimiter = new MessageRateLimiter();
+		}
+		return this.rateLimiter;
+	}
+
 	/**
 	 * Builds a {@link MessageMgr}.
 	 * @return an new manager if all required parameters are set, null if not with errors being logged
@@ -159,7 +469,59 @@ public class MessageMgrBuilder {
 			this.buildErrors.addError("no message handlers set");
 			return null;
 		}
-		return new MessageMgr(this.appID, this.messageHandlers, this.doCollectMessages);
+		// every manager gets its own handlers and rate limiter, sinks are shared and closed by the last manager
+		Map<E_MessageType, MessageTypeHandler> handlers = new HashMap<>();
+		for(Entry<E_MessageType, MessageTypeHandler> entry : this.messageHandlers.entrySet()){
+			handlers.put(entry.getKey(), entry.getValue().copy());
+		}
+		for(Entry<MessageSink, E_MessageType[]> entry : this.sinks.entrySet()){
+			for(E_MessageType type : entry.getValue()){
+				if(handlers.containsKey(type)){
+					handlers.get(type).addSinks(entry.getKey());
+				}
+			}
+		}
+		Set<MessageSink> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+		for(MessageTypeHandler handler : handlers.values()){
+			shared.addAll(handler.getSinks());
+		}
+		for(MessageSink sink : shared){
+			this.sinkOwners.computeIfAbsent(sink, k -> new AtomicInteger()).incrementAndGet();
+		}
+		if(this.countingOnly>=0){
+			MessageMgr ret = new MessageMgr(this.appID, handlers, null);
+			ret.activateSharedSinks(this.sinkOwners);
+			ret.activateCountingOnly(this.countingOnly);
+			if(this.clock!=null){
+				ret.activateClock(this.clock);
+			}
+			if(this.metrics==true){
+				ret.activateMetrics();
+			}
+			return ret;
+		}
+		MessageCollection messages = (this.doCollectMessages==true)?new MessageCollection(this.collectionPolicy, this.collectionLimit, this.concurrent):null;
+		MessageMgr ret = new MessageMgr(this.appID, handlers, messages);
+		ret.activateSharedSinks(this.sinkOwners);
+		if(this.clock!=null){
+			ret.activateClock(this.clock);
+		}
+		if(this.rateLimiter!=null){
+			ret.activateRateLimiting(this.rateLimiter.copy());
+		}
+		if(this.deduplication==true){
+			ret.activateDeduplication(this.dedupMillis, this.dedupCount);
+		}
+		if(this.index==true){
+			ret.activateIndex();
+		}
+		if(this.metrics==true){
+			ret.activateMetrics();
+		}
+		if(this.asyncCapacity>0){
+			ret.activateAsync(this.asyncCapacity);
+		}
+		return ret;
 	}
 
 }
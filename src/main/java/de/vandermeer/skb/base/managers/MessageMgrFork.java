@@ -0,0 +1,287 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+import de.vandermeer.skb.interfaces.messagesets.IsMessageSet;
+
+/**
+ * A lightweight child of a {@link MessageMgr} for a single task, created by {@link MessageMgr#fork()}.
+ * 
+ * A fork buffers reported messages and counts them locally, it does not render, write, or collect them and it uses no synchronization.
+ * The buffered messages are processed by the parent when the fork is joined, see {@link #join()} and {@link MessageMgr#join(java.util.Collection, E_JoinOrder)}.
+ * The parent processes them as a single batch, see {@link MessageMgr#reportBatch(Object)}.
+ * Counters and collected messages of the parent include the messages of a fork only once it has been joined.
+ * 
+ * A fork must only be used by one thread at a time.
+ * It is empty after it has been joined and can then be used again.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class MessageMgrFork {
+
+	/** The parent manager. */
+	protected final MessageMgr parent;
+
+	/** Sequence number of the fork in the parent, for joining in fork order. */
+	protected final long sequence;
+
+	/** Buffered messages, {@link Message5WH} (retained) or {@link IsMessageSet}, all with a handler in the parent. */
+	protected final List<Object> messages = new ArrayList<>();
+
+	/** Time (in nanoseconds) each buffered message has been reported, for joining in reported order. */
+	protected long[] times = new long[16];
+
+	/** Local message counters, indexed by message type ordinal. */
+	protected final int[] counts = new int[E_MessageType.values().length];
+
+	/**
+	 * Returns a new fork.
+	 * @param parent the parent manager
+	 * @param sequence sequence number of the fork in the parent
+	 */
+	MessageMgrFork(MessageMgr parent, long sequence){
+		this.parent = parent;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the parent manager.
+	 * @return parent manager
+	 */
+	public MessageMgr getParent(){
+		return this.parent;
+	}
+
+	/**
+	 * Reports a message to the fork.
+	 * 
+	 * This methods understands the same message formats and containers as {@link MessageMgr#report(Object)}.
+	 * 
+	 * @param obj message object or object containing messages for reporting
+	 * @return true if one or all message have been reported, false otherwise
+	 */
+	public boolean report(Object obj){
+		int start = this.messages.size();
+		boolean ret = this.parent.addAll(obj, this.messages);
+		this.added(start);
+		return ret;
+	}
+
+	/**
+	 * Reports an error message to the fork.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportError(String what, Object ... obj){
+		return this.report(E_MessageType.ERROR, what, obj);
+	}
+
+	/**
+	 * Reports a warning message to the fork.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportWarning(String what, Object ... obj){
+		return this.report(E_MessageType.WARNING, what, obj);
+	}
+
+	/**
+	 * Reports an information message to the fork.
+	 * @param what the what part of the message (what has happened)
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	public boolean reportInfo(String what, Object ... obj){
+		return this.report(E_MessageType.INFO, what, obj);
+	}
+
+	/**
+	 * Reports a message created with the reusing builder of the calling thread, the builder is reset afterwards.
+	 * The fork keeps a reference to the message, so the builder does not recycle it before the fork has been joined.
+	 * @param type the message type
+	 * @param what the what part of the message
+	 * @param obj objects to add to the message
+	 * @return true if the message was reported, false otherwise
+	 */
+	protected boolean report(E_MessageType type, String what, Object[] obj){
+		if(!this.parent.messageHandlers.containsKey(type)){
+			return false;
+		}
+		Message5WH_Builder builder = Message5WH_Builder.local();
+		try{
+			return this.report(builder.setWhat(what, obj).setType(type).build());
+		}
+		finally{
+			builder.reset();
+		}
+	}
+
+	/**
+	 * Counts and time stamps the messages added to the buffer, using the clock of the parent manager.
+	 * @param start index of the first added message
+	 */
+	protected void added(int start){
+		int size = this.messages.size();
+		if(size==start){
+			return;
+		}
+		if(size>this.times.length){
+			this.times = Arrays.copyOf(this.times, Math.max(size, this.times.length * 2));
+		}
+		long now = this.parent.clock.getAsLong();
+		for(int i=start; i<size; i++){
+			Object message = this.messages.get(i);
+			E_MessageType type = (message instanceof Message5WH)?((Message5WH)message).getType():this.parent.getType((IsMessageSet)message);
+			this.counts[type.ordinal()]++;
+			this.times[i] = now;
+		}
+	}
+
+	/**
+	 * Returns the number of messages of a type reported to the fork since it has been created or joined.
+	 * @param type message type
+	 * @return number of messages
+	 */
+	public int getMessageCount(E_MessageType type){
+		return (type==null)?0:this.counts[type.ordinal()];
+	}
+
+	/**
+	 * Returns the number of messages buffered in the fork.
+	 * @return number of buffered messages
+	 */
+	public int size(){
+		return this.messages.size();
+	}
+
+	/**
+	 * Tests if the fork has any error messages.
+	 * @return true if errors have been reported to the fork since it has been created or joined, false otherwise
+	 */
+	public boolean hasErrors(){
+		return this.counts[E_MessageType.ERROR.ordinal()]>0;
+	}
+
+	/**
+	 * Tests if the fork has any warning messages.
+	 * @return true if warnings have been reported to the fork since it has been created or joined, false otherwise
+	 */
+	public boolean hasWarnings(){
+		return this.counts[E_MessageType.WARNING.ordinal()]>0;
+	}
+
+	/**
+	 * Tests if the fork has any information messages.
+	 * @return true if information messages have been reported to the fork since it has been created or joined, false otherwise
+	 */
+	public boolean hasInfos(){
+		return this.counts[E_MessageType.INFO.ordinal()]>0;
+	}
+
+	/**
+	 * Joins the fork into its parent, that is the parent processes all buffered messages in the order they have been reported to the fork.
+	 * The fork is empty afterwards.
+	 * @return the parent to allow chaining
+	 */
+	public MessageMgr join(){
+		this.parent.processForked(this.take());
+		return this.parent;
+	}
+
+	/**
+	 * Discards all buffered messages without reporting them and resets the local counters.
+	 */
+	public void clear(){
+		for(Object message : this.take()){
+			if(message instanceof Message5WH){
+				((Message5WH)message).release();
+			}
+		}
+	}
+
+	/**
+	 * Takes all buffered messages from the fork and resets the local counters.
+	 * @return buffered messages
+	 */
+	protected List<Object> take(){
+		List<Object> ret = new ArrayList<>(this.messages);
+		this.messages.clear();
+		Arrays.fill(this.counts, 0);
+		return ret;
+	}
+
+	/**
+	 * Merges the buffered messages of forks in the requested order and empties the forks.
+	 * @param forks the forks, all of the same parent
+	 * @param order the order, fork order if null
+	 * @return all buffered messages
+	 */
+	static List<Object> merge(Collection<MessageMgrFork> forks, E_JoinOrder order){
+		List<MessageMgrFork> sorted = new ArrayList<>(forks);
+		sorted.sort(Comparator.comparingLong(fork -> fork.sequence));
+		int size = 0;
+		for(MessageMgrFork fork : sorted){
+			size += fork.messages.size();
+		}
+		List<Object> ret = new ArrayList<>(size);
+
+		if(order==E_JoinOrder.REPORTED && sorted.size()>1){
+			// k-way merge by report time, ties in fork order
+			int[] cursors = new int[sorted.size()];
+			PriorityQueue<Integer> queue = new PriorityQueue<>(sorted.size(), (i1, i2) -> {
+				int c = Long.compare(sorted.get(i1).times[cursors[i1]], sorted.get(i2).times[cursors[i2]]);
+				return (c!=0)?c:Integer.compare(i1, i2);
+			});
+			for(int i=0; i<sorted.size(); i++){
+				if(sorted.get(i).messages.size()>0){
+					queue.add(i);
+				}
+			}
+			while(!queue.isEmpty()){
+				int i = queue.poll();
+				MessageMgrFork fork = sorted.get(i);
+				ret.add(fork.messages.get(cursors[i]++));
+				if(cursors[i]<fork.messages.size()){
+					queue.add(i);
+				}
+			}
+			for(MessageMgrFork fork : sorted){
+				fork.take();
+			}
+		}
+		else{
+			for(MessageMgrFork fork : sorted){
+				ret.addAll(fork.take());
+			}
+		}
+		return ret;
+	}
+
+}
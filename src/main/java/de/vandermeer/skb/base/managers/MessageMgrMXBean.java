@@ -0,0 +1,121 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.Map;
+
+/**
+ * Management interface of a {@link MessageMgr}, registered with the platform MBean server when metrics are enabled (see {@link MessageMgrBuilder#enableMetrics()}).
+ * 
+ * The manager is registered as {@code de.vandermeer.skb.base:type=MessageMgr,name=<appID>} and can be read with any local JMX tool, for instance JConsole or VisualVM.
+ * All values are read without waiting for outstanding asynchronous messages, they reflect the messages processed so far.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public interface MessageMgrMXBean {
+
+	/**
+	 * Returns the identifier (or name) of the application using the manager.
+	 * @return application identifier
+	 */
+	String getAppID();
+
+	/**
+	 * Returns the number of errors, including suppressed and dropped ones.
+	 * @return number of errors, -1 if the manager has no handler for errors
+	 */
+	long getErrorCount();
+
+	/**
+	 * Returns the number of warnings, including suppressed and dropped ones.
+	 * @return number of warnings, -1 if the manager has no handler for warnings
+	 */
+	long getWarningCount();
+
+	/**
+	 * Returns the number of information messages, including suppressed and dropped ones.
+	 * @return number of information messages, -1 if the manager has no handler for information messages
+	 */
+	long getInfoCount();
+
+	/**
+	 * Returns the number of messages suppressed as repeats.
+	 * @return number of suppressed messages
+	 */
+	long getSuppressedCount();
+
+	/**
+	 * Returns the number of messages dropped by rate limits or sampling.
+	 * @return number of dropped messages
+	 */
+	long getDroppedCount();
+
+	/**
+	 * Returns the number of messages evicted from or not admitted to the message collection.
+	 * @return number of evicted messages
+	 */
+	long getEvictedCount();
+
+	/**
+	 * Returns the number of rendered messages.
+	 * @return number of rendered messages
+	 */
+	long getRenderCount();
+
+	/**
+	 * Returns the median time for rendering a message.
+	 * @return median render latency in nanoseconds
+	 */
+	long getRenderLatencyP50();
+
+	/**
+	 * Returns the 99th percentile of the time for rendering a message.
+	 * @return 99th percentile of the render latency in nanoseconds
+	 */
+	long getRenderLatencyP99();
+
+	/**
+	 * Returns the number of messages waiting for asynchronous processing.
+	 * @return queue depth, 0 for a synchronous manager
+	 */
+	int getQueueDepth();
+
+	/**
+	 * Returns the number of messages waiting in the queue of every sink.
+	 * @return queue depth per sink
+	 */
+	Map<String, Integer> getSinkQueueDepths();
+
+	/**
+	 * Returns the number of bytes written by every sink.
+	 * @return bytes written per sink
+	 */
+	Map<String, Long> getSinkBytesWritten();
+
+	/**
+	 * Returns the number of bytes written by all sinks.
+	 * @return bytes written
+	 */
+	long getBytesWritten();
+
+	/**
+	 * Removes all recorded render latencies.
+	 */
+	void resetRenderLatency();
+
+}
@@ -0,0 +1,164 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * A query over the messages indexed by a {@link MessageMgr}, see {@link MessageMgr#query()}.
+ * 
+ * All constraints that are set must match, constraints that are not set match every message.
+ * Type, reporter, who, and where location are looked up in the index, so a query does not scan all messages.
+ * For example, all errors in a file between lines 100 and 200:
+ * <pre>{@code
+ * mm.query().type(E_MessageType.ERROR).location("file").lines(100, 200).list();
+ * }</pre>
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class MessageQuery {
+
+	/** The index to query, null if the manager does not index messages. */
+	protected final MessageIndex index;
+
+	/** Required message type, null for any. */
+	protected E_MessageType type;
+
+	/** Required reporter, null for any. */
+	protected Object reporter;
+
+	/** Required who, null for any. */
+	protected Object who;
+
+	/** Required where location, null for any. */
+	protected Object location;
+
+	/** First line of the where part, inclusive. */
+	protected int fromLine = 0;
+
+	/** Last line of the where part, inclusive. */
+	protected int toLine = Integer.MAX_VALUE;
+
+	/**
+	 * Returns a new query.
+	 * @param index the index to query, null for a query without results
+	 */
+	MessageQuery(MessageIndex index){
+		this.index = index;
+	}
+
+	/**
+	 * Sets the required message type.
+	 * @param type the type, null for any
+	 * @return self to allow chaining
+	 */
+	public MessageQuery type(E_MessageType type){
+		this.type = type;
+		return this;
+	}
+
+	/**
+	 * Sets the required reporter, compared with {@code equals()}.
+	 * @param reporter the reporter, null for any
+	 * @return self to allow chaining
+	 */
+	public MessageQuery reporter(Object reporter){
+		this.reporter = reporter;
+		return this;
+	}
+
+	/**
+	 * Sets the required who part, compared with {@code equals()}.
+	 * @param who the who part, null for any
+	 * @return self to allow chaining
+	 */
+	public MessageQuery who(Object who){
+		this.who = who;
+		return this;
+	}
+
+	/**
+	 * Sets the required location of the where part, compared with {@code equals()}.
+	 * @param location the location, null for any
+	 * @return self to allow chaining
+	 */
+	public MessageQuery location(Object location){
+		this.location = location;
+		return this;
+	}
+
+	/**
+	 * Sets the required line range of the where part, messages without a line have line 0.
+	 * The range is found by binary search if a location is set, otherwise it is tested for every candidate message.
+	 * @param fromLine first line, inclusive
+	 * @param toLine last line, inclusive
+	 * @return self to allow chaining
+	 */
+	public MessageQuery lines(int fromLine, int toLine){
+		this.fromLine = fromLine;
+		this.toLine = toLine;
+		return this;
+	}
+
+	/**
+	 * Returns all matching messages.
+	 * @return matching messages in report order, empty if none matches or the manager does not index messages
+	 */
+	public List<Message5WH> list(){
+		if(this.index==null){
+			return Collections.emptyList();
+		}
+		return this.index.find(this);
+	}
+
+	/**
+	 * Returns the number of matching messages.
+	 * @return number of matching messages
+	 */
+	public int count(){
+		return this.list().size();
+	}
+
+	/**
+	 * Tests if a message matches all constraints of the query.
+	 * @param message the message
+	 * @return true if the message matches, false otherwise
+	 */
+	protected boolean matches(Message5WH message){
+		if(this.type!=null && this.type!=message.getType()){
+			return false;
+		}
+		if(this.reporter!=null && !Objects.equals(this.reporter, message.getReporter())){
+			return false;
+		}
+		if(this.who!=null && !Objects.equals(this.who, message.getWho())){
+			return false;
+		}
+		if(this.location!=null && !Objects.equals(this.location, message.getWhereLocation())){
+			return false;
+		}
+		int line = Math.max(0, message.getWhereLine());
+		return line>=this.fromLine && line<=this.toLine;
+	}
+
+}
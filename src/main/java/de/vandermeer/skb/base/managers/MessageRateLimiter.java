@@ -0,0 +1,353 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+
+/**
+ * Limits the rate of messages written by a {@link MessageMgr}.
+ * 
+ * Messages can be limited by a token bucket per message type, by a token bucket per reporter of a {@link Message5WH}, and by probabilistic sampling of information messages.
+ * A message is admitted only if all configured limits admit it.
+ * Dropped messages are counted per type, so that a summary of them can be reported with the next admitted message of the same type.
+ * Summaries are reported at most once per {@link #SUMMARY_INTERVAL} and type, so they do not add much output under a message storm.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class MessageRateLimiter {
+
+	/** Maximum number of reporters with their own token bucket, further reporters share one bucket. */
+	protected static final int MAX_REPORTERS = 1024;
+
+	/** Minimum time between two summaries of dropped messages of the same type in nanoseconds. */
+	protected static final long SUMMARY_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	/** Time of the last summary for a type without any summary yet. */
+	protected static final long NEVER = Long.MIN_VALUE;
+
+	/** Key for the bucket of messages without reporter and of all reporters beyond {@link #MAX_REPORTERS}. */
+	protected static final Object OTHER_REPORTERS = new Object();
+
+	/** Token buckets per message type, types without bucket are not limited. */
+	protected final Map<E_MessageType, TokenBucket> typeBuckets = new EnumMap<>(E_MessageType.class);
+
+	/** Token buckets per reporter, created on first use. */
+	protected final ConcurrentHashMap<Object, TokenBucket> reporterBuckets = new ConcurrentHashMap<>();
+
+	/** Number of reporters with their own token bucket, at most {@link #MAX_REPORTERS}. */
+	protected final AtomicInteger reporterCount = new AtomicInteger();
+
+	/** Rate for reporter buckets in messages per second, 0 if reporters are not limited. */
+	protected double reporterRate;
+
+	/** Burst for reporter buckets. */
+	protected int reporterBurst;
+
+	/** Probability for an information message to be admitted, 1 for all of them. */
+	protected double infoSampling = 1.0;
+
+	/** Random numbers for sampling with a fixed seed, null to use {@link ThreadLocalRandom}. */
+	protected Random sampler;
+
+	/** Seed of the sampler, null if no seed is set. */
+	protected Long seed;
+
+	/** Dropped messages per type not yet reported in a summary. */
+	protected final Map<E_MessageType, AtomicLong> pending = new EnumMap<>(E_MessageType.class);
+
+	/** Time of the last summary per type in nanoseconds. */
+	protected final Map<E_MessageType, AtomicLong> lastSummary = new EnumMap<>(E_MessageType.class);
+
+	/** Number of all dropped messages. */
+	protected final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Returns a new rate limiter without any limit.
+	 */
+	MessageRateLimiter(){
+		for(E_MessageType type : E_MessageType.values()){
+			this.pending.put(type, new AtomicLong());
+			this.lastSummary.put(type, new AtomicLong(NEVER));
+		}
+	}
+
+	/**
+	 * Sets a token bucket for a message type.
+	 * @param type the message type
+	 * @param rate number of messages per second
+	 * @param burst maximum number of messages admitted at once
+	 */
+	void setTypeLimit(E_MessageType type, double rate, int burst){
+		this.typeBuckets.put(type, new TokenBucket(rate, burst));
+	}
+
+	/**
+	 * Sets a token bucket for every reporter.
+	 * @param rate number of messages per second and reporter
+	 * @param burst maximum number of messages admitted at once per reporter
+	 */
+	void setReporterLimit(double rate, int burst){
+		this.reporterRate = rate;
+		this.reporterBurst = burst;
+	}
+
+	/**
+	 * Sets sampling for information messages.
+	 * @param probability probability for an information message to be admitted, between 0 (exclusive) and 1 (inclusive)
+	 */
+	void setInfoSampling(double probability){
+		this.infoSampling = probability;
+		this.sampler = null;
+		this.seed = null;
+	}
+
+	/**
+	 * Sets sampling for information messages with a fixed seed, so that the same messages are sampled in every run.
+	 * @param probability probability for an information message to be admitted, between 0 (exclusive) and 1 (inclusive)
+	 * @param seed seed for the random numbers
+	 */
+	void setInfoSampling(double probability, long seed){
+		this.infoSampling = probability;
+		this.sampler = new Random(seed);
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns a new rate limiter with the limits of this rate limiter, full token buckets, and no dropped messages.
+	 * @return new rate limiter
+	 */
+	MessageRateLimiter copy(){
+		MessageRateLimiter ret = new MessageRateLimiter();
+		for(Map.Entry<E_MessageType, TokenBucket> entry : this.typeBuckets.entrySet()){
+			ret.typeBuckets.put(entry.getKey(), new TokenBucket(entry.getValue()));
+		}
+		ret.setReporterLimit(this.reporterRate, this.reporterBurst);
+		if(this.seed==null){
+			ret.setInfoSampling(this.infoSampling);
+		}
+		else{
+			ret.setInfoSampling(this.infoSampling, this.seed);
+		}
+		return ret;
+	}
+
+	/**
+	 * Tests if a message is admitted by all limits and counts it as dropped if not.
+	 * @param message the reported message
+	 * @param now current time in nanoseconds, see {@link System#nanoTime()}
+	 * @return true if the message is admitted, false if it is dropped
+	 */
+	boolean admit(ReportedMessage message, long now){
+		E_MessageType type = message.getType();
+		boolean ret = true;
+
+		if(type==E_MessageType.INFO && this.infoSampling<1.0){
+			ret = ((this.sampler==null)?ThreadLocalRandom.current().nextDouble():this.sampler.nextDouble())<this.infoSampling;
+		}
+		TokenBucket reporter = null;
+		if(ret==true && this.reporterRate>0){
+			reporter = this.getReporterBucket(message.getMessage());
+			ret = reporter.tryAcquire(now);
+		}
+		if(ret==true && this.typeBuckets.containsKey(type)){
+			ret = this.typeBuckets.get(type).tryAcquire(now);
+			if(ret==false && reporter!=null){
+				// the message is dropped for its type, the reporter did not use its token
+				reporter.giveBack();
+			}
+		}
+
+		if(ret==false){
+			this.pending.get(type).incrementAndGet();
+			this.dropped.increment();
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the token bucket for the reporter of a message, creating it on first use.
+	 * @param msg the message, null for a message set
+	 * @return token bucket for the reporter
+	 */
+	protected TokenBucket getReporterBucket(Message5WH msg){
+		Object reporter = (msg!=null && msg.getReporter()!=null)?msg.getReporter():OTHER_REPORTERS;
+		TokenBucket ret = this.reporterBuckets.get(reporter);
+		if(ret==null && reporter!=OTHER_REPORTERS){
+			ret = this.reporterBuckets.computeIfAbsent(reporter, k -> this.newReporterBucket());
+		}
+		if(ret==null){
+			ret = this.reporterBuckets.computeIfAbsent(OTHER_REPORTERS, k -> new TokenBucket(this.reporterRate, this.reporterBurst));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a new bucket for a reporter if the maximum number of reporters is not reached, taking a slot atomically.
+	 * @return new token bucket, null if the maximum number of reporters is reached
+	 */
+	protected TokenBucket newReporterBucket(){
+		if(this.reporterCount.getAndUpdate(n -> (n<MAX_REPORTERS)?n + 1:n)>=MAX_REPORTERS){
+			return null;
+		}
+		return new TokenBucket(this.reporterRate, this.reporterBurst);
+	}
+
+	/**
+	 * Returns the number of dropped messages of a type since the last summary and resets it, at most once per {@link #SUMMARY_INTERVAL}.
+	 * @param type the message type
+	 * @param now current time in nanoseconds
+	 * @return number of dropped messages not yet summarized, 0 if there are none or the last summary is too recent
+	 */
+	long takeDropped(E_MessageType type, long now){
+		if(this.pending.get(type).get()==0){
+			return 0;
+		}
+		AtomicLong last = this.lastSummary.get(type);
+		long previous = last.get();
+		if((previous!=NEVER && now - previous<SUMMARY_INTERVAL) || !last.compareAndSet(previous, now)){
+			return 0;
+		}
+		return this.takeDropped(type);
+	}
+
+	/**
+	 * Returns the number of dropped messages of a type since the last summary and resets it.
+	 * @param type the message type
+	 * @return number of dropped messages not yet summarized
+	 */
+	long takeDropped(E_MessageType type){
+		AtomicLong count = this.pending.get(type);
+		return (count.get()==0)?0:count.getAndSet(0);
+	}
+
+	/**
+	 * Returns the number of all dropped messages.
+	 * @return number of dropped messages
+	 */
+	long getDroppedCount(){
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Resets all dropped message counts and summary times, refills all type buckets, and removes all reporter buckets.
+	 */
+	void clear(){
+		for(AtomicLong count : this.pending.values()){
+			count.set(0);
+		}
+		for(AtomicLong last : this.lastSummary.values()){
+			last.set(NEVER);
+		}
+		for(TokenBucket bucket : this.typeBuckets.values()){
+			bucket.reset();
+		}
+		this.reporterBuckets.clear();
+		this.reporterCount.set(0);
+		this.dropped.reset();
+	}
+
+	/**
+	 * A token bucket, refilled continuously with a fixed rate up to its burst size.
+	 */
+	static final class TokenBucket {
+
+		/** Tokens added per nanosecond. */
+		protected final double tokensPerNano;
+
+		/** Maximum number of tokens. */
+		protected final double burst;
+
+		/** Current number of tokens. */
+		protected double tokens;
+
+		/** Time of the last refill in nanoseconds. */
+		protected long last;
+
+		/** Flag for a bucket that has been used, that is has a valid time of the last refill. */
+		protected boolean started;
+
+		/**
+		 * Returns a new, full token bucket.
+		 * @param rate tokens per second
+		 * @param burst maximum number of tokens, at least 1
+		 */
+		TokenBucket(double rate, int burst){
+			this.tokensPerNano = rate / 1_000_000_000.0;
+			this.burst = Math.max(1, burst);
+			this.tokens = this.burst;
+		}
+
+		/**
+		 * Returns a new, full token bucket with the rate and burst of another bucket.
+		 * @param bucket the other bucket
+		 */
+		TokenBucket(TokenBucket bucket){
+			this.tokensPerNano = bucket.tokensPerNano;
+			this.burst = bucket.burst;
+			this.tokens = this.burst;
+		}
+
+		/**
+		 * Takes a token if one is available.
+		 * @param now current time in nanoseconds
+		 * @return true if a token was taken, false if the bucket is empty
+		 */
+		synchronized boolean tryAcquire(long now){
+			if(this.started==false){
+				this.started = true;
+				this.last = now;
+			}
+			else if(now - this.last>0){
+				this.tokens = Math.min(this.burst, this.tokens + (now - this.last) * this.tokensPerNano);
+				this.last = now;
+			}
+			if(this.tokens>=1.0){
+				this.tokens -= 1.0;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Returns a token taken by {@link #tryAcquire(long)} that has not been used.
+		 */
+		synchronized void giveBack(){
+			this.tokens = Math.min(this.burst, this.tokens + 1.0);
+		}
+
+		/**
+		 * Refills the bucket, as if it had never been used.
+		 */
+		synchronized void reset(){
+			this.tokens = this.burst;
+			this.started = false;
+		}
+	}
+
+}
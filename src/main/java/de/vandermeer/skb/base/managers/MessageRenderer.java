@@ -15,7 +15,15 @@
 
 package de.vandermeer.skb.base.managers;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -23,11 +31,13 @@ import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrBuilder;
+import org.stringtemplate.v4.AutoIndentWriter;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
 import org.stringtemplate.v4.STGroupFile;
 
 import de.vandermeer.skb.base.info.STGroupValidator;
+import de.vandermeer.skb.base.message.E_MessageType;
 import de.vandermeer.skb.base.message.Message5WH;
 
 /**
@@ -73,6 +83,17 @@ public class MessageRenderer {
 		}
 	};
 
+	/** The argument for the template's type flag per message type, created once since it never changes. */
+	protected final static Map<E_MessageType, Map<String, Boolean>> TYPE_MAPS;
+
+	static {
+		Map<E_MessageType, Map<String, Boolean>> typeMaps = new EnumMap<>(E_MessageType.class);
+		for(E_MessageType type : E_MessageType.values()){
+			typeMaps.put(type, Collections.singletonMap(type.toString(), true));
+		}
+		TYPE_MAPS = Collections.unmodifiableMap(typeMaps);
+	}
+
 	/**
 	 * Returns a new renderer with the default STGroup.
 	 */
@@ -126,40 +147,60 @@ public class MessageRenderer {
 	 */
 	public String render(Message5WH msg) {
 		if(msg!=null){
-			ST ret = this.stg.getInstanceOf("message5wh");
-			if(msg.getWhereLocation()!=null){
-				ST where = this.stg.getInstanceOf("where");
-				where.add("location", msg.getWhereLocation());
-				if(msg.getWhereLine()>0){
-					where.add("line", msg.getWhereLine());
-				}
-				if(msg.getWhereColumn()>0){
-					where.add("column", msg.getWhereColumn());
-				}
-				ret.add("where", where);
-			}
+			return this.toST(msg).render();
+		}
+		return "";
+	}
 
-			ret.add("reporter", msg.getReporter());
+	/**
+	 * Renders a single message directly into an appendable, without creating a string for the rendered message.
+	 * @param msg message to render, nothing is rendered if null
+	 * @param out the appendable to render the message to, for instance a writer or a string builder
+	 * @throws IOException if the appendable throws one
+	 */
+	public void render(Message5WH msg, Appendable out) throws IOException {
+		if(msg!=null){
+			Writer writer = (out instanceof Writer)?(Writer)out:new AppendableWriter(out);
+			this.toST(msg).write(new AutoIndentWriter(writer));
+		}
+	}
 
-			if(msg.getType()!=null){
-				Map<String, Boolean> typeMap = new HashMap<>();
-				typeMap.put(msg.getType().toString(), true);
-				ret.add("type", typeMap);
+	/**
+	 * Returns the template instance for a message with all of the message's attributes added.
+	 * @param msg message to create the template instance for, must not be null
+	 * @return template instance ready to be rendered
+	 */
+	protected ST toST(Message5WH msg){
+		ST ret = this.stg.getInstanceOf("message5wh");
+		if(msg.getWhereLocation()!=null){
+			ST where = this.stg.getInstanceOf("where");
+			where.add("location", msg.getWhereLocation());
+			if(msg.getWhereLine()>0){
+				where.add("line", msg.getWhereLine());
 			}
-
-			if(msg.getWhat()!=null && !StringUtils.isBlank(msg.getWhat().toString())){
-				ret.add("what", msg.getWhat());
+			if(msg.getWhereColumn()>0){
+				where.add("column", msg.getWhereColumn());
 			}
+			ret.add("where", where);
+		}
 
-			ret.add("who",  msg.getWho());
-			ret.add("when", msg.getWhen());
+		ret.add("reporter", msg.getReporter());
 
-			ret.add("why", msg.getWhy());
-			ret.add("how", msg.getHow());
+		if(msg.getType()!=null){
+			ret.add("type", MessageRenderer.TYPE_MAPS.get(msg.getType()));
+		}
 
-			return ret.render();
+		if(msg.getWhat()!=null && !StringUtils.isBlank(msg.getWhat().toString())){
+			ret.add("what", msg.getWhat());
 		}
-		return "";
+
+		ret.add("who",  msg.getWho());
+		ret.add("when", msg.getWhen());
+
+		ret.add("why", msg.getWhy());
+		ret.add("how", msg.getHow());
+
+		return ret;
 	}
 
 	/**
@@ -169,9 +210,80 @@ public class MessageRenderer {
 	 */
 	public String render(Collection<Message5WH> messages){
 		StrBuilder ret = new StrBuilder(50);
-		for(Message5WH msg : messages){
-			ret.appendln(this.render(msg));
+		try{
+			this.render(messages, ret);
+		}
+		catch(IOException ignore){
+			//cannot happen, StrBuilder does not throw IO exceptions
 		}
 		return ret.toString();
 	}
+
+	/**
+	 * Renders a collection of messages directly into an appendable, each message followed by a line separator.
+	 * @param messages the collection of messages to render
+	 * @param out the appendable to render the messages to, for instance a writer or a string builder
+	 * @throws IOException if the appendable throws one
+	 */
+	public void render(Collection<Message5WH> messages, Appendable out) throws IOException {
+		String newLine = System.lineSeparator();
+		for(Message5WH msg : messages){
+			this.render(msg, out);
+			out.append(newLine);
+		}
+	}
+
+	/**
+	 * Renders a collection of messages directly into an output stream (UTF-8 encoded), each message followed by a line separator.
+	 * The output is buffered and flushed once all messages are written, the stream is not closed.
+	 * The method is not an overload of {@link #render(Collection, Appendable)}, since a print stream (such as {@code System.out}) is both an appendable and an output stream.
+	 * @param messages the collection of messages to render
+	 * @param out the output stream to render the messages to, for instance a file output stream for a report file
+	 * @throws IOException if the stream throws one
+	 */
+	public void renderTo(Collection<Message5WH> messages, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		this.render(messages, writer);
+		writer.flush();
+	}
+
+	/**
+	 * A writer forwarding all characters to an appendable, used to let StringTemplate write into any appendable.
+	 */
+	static class AppendableWriter extends Writer {
+
+		/** The appendable to write to. */
+		protected final Appendable out;
+
+		/**
+		 * Returns a new writer for the given appendable.
+		 * @param out the appendable to write to
+		 */
+		AppendableWriter(Appendable out){
+			this.out = out;
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			this.out.append((char)c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			for(int i=off; i<off+len; i++){
+				this.out.append(cbuf[i]);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			this.out.append(str, off, off+len);
+		}
+
+		@Override
+		public void flush() throws IOException {}
+
+		@Override
+		public void close() throws IOException {}
+	}
 }
@@ -0,0 +1,90 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.List;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * A sink for the output of a {@link MessageMgr}, for instance console, logger, file, or memory.
+ * 
+ * A message handler writes every message to all of its sinks.
+ * The message is rendered once before it is handed to the first sink, all sinks share the same rendered text (see {@link ReportedMessage#getText()}).
+ * A sink is responsible for its own buffering, wrap a slow sink in an {@link AsyncSink} so that it cannot stall reporting or other sinks.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public interface MessageSink {
+
+	/**
+	 * Tests if the sink writes messages of the given type.
+	 * If no sink of a handler is enabled, messages are not rendered at all.
+	 * @param type the message type
+	 * @return true if messages of the type are written (default), false otherwise
+	 */
+	default boolean isEnabled(E_MessageType type){
+		return true;
+	}
+
+	/**
+	 * Writes a message.
+	 * @param message the message, use {@link ReportedMessage#getText()} for the rendered text
+	 */
+	void write(ReportedMessage message);
+
+	/**
+	 * Writes a batch of messages in the given order, as reported by {@link MessageMgr#reportBatch(Object)}.
+	 * The default writes every message separately, a buffered sink should override this method to write the batch with a single flush.
+	 * @param messages the messages, all rendered already
+	 */
+	default void write(List<ReportedMessage> messages){
+		for(ReportedMessage message : messages){
+			this.write(message);
+		}
+	}
+
+	/**
+	 * Returns the number of messages the sink has accepted but not yet written, for metrics.
+	 * @return number of waiting messages, 0 for a sink that writes immediately (default)
+	 */
+	default int getQueueDepth(){
+		return 0;
+	}
+
+	/**
+	 * Returns the number of bytes the sink has written, for metrics.
+	 * @return number of bytes written, 0 for a sink that does not write bytes (default)
+	 */
+	default long getBytesWritten(){
+		return 0;
+	}
+
+	/**
+	 * Flushes any buffered output of the sink.
+	 */
+	default void flush(){}
+
+	/**
+	 * Flushes and closes the sink, the sink must not be used afterwards.
+	 */
+	default void close(){
+		this.flush();
+	}
+
+}
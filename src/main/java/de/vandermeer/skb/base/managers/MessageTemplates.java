@@ -0,0 +1,179 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.stringtemplate.v4.ST;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.STGroupFile;
+
+import de.vandermeer.skb.base.info.STGroupValidator;
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * Process-wide registry of the templates of a {@link MessageMgr}, read from {@link #STG_FN}.
+ * 
+ * The STGroup is loaded and validated (see {@link MessageMgr#loadChunks()}) once, on first use, and then shared by all managers.
+ * It is loaded completely before it is shared, so concurrent managers never load (or define) its templates a second time.
+ * The max message only depends on application identifier, maximum count, and type, so it is rendered once and cached.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+final class MessageTemplates {
+
+	/** The file name of the STGroup file for managers. */
+	static final String STG_FN = "de/vandermeer/skb/base/managers/msg-manager.stg";
+
+	/** Maximum number of cached max messages, the cache is cleared when it would exceed this size. */
+	static final int MAX_CACHED = 1024;
+
+	/** The shared STGroup, null until first used. */
+	private static volatile STGroup stg;
+
+	/** Rendered max messages. */
+	private static final ConcurrentHashMap<MaxKey, String> MAX_CACHE = new ConcurrentHashMap<>();
+
+	/**
+	 * Registry with static methods only.
+	 */
+	private MessageTemplates(){}
+
+	/**
+	 * Returns the shared STGroup, loading and validating it on first call.
+	 * @return STGroup for managers
+	 * @throws IllegalStateException if the STGroup cannot be loaded or is not valid
+	 */
+	static STGroup getSTGroup(){
+		STGroup ret = stg;
+		if(ret==null){
+			synchronized(MessageTemplates.class){
+				ret = stg;
+				if(ret==null){
+					ret = new STGroupFile(STG_FN);
+					ret.load();
+					STGroupValidator stgv = new STGroupValidator(ret, MessageMgr.loadChunks());
+					if(stgv.getValidationErrors().hasErrors()){
+						throw new IllegalStateException(stgv.getValidationErrors().render());
+					}
+					stg = ret;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the message for exceeding the maximum count of a message type, rendered once per application identifier, maximum count, and type.
+	 * @param appID application identifier (or name)
+	 * @param maxCount the maximum count
+	 * @param type the message type
+	 * @return rendered max message
+	 */
+	static String renderMax(Object appID, int maxCount, E_MessageType type){
+		MaxKey key = new MaxKey(String.valueOf(appID), maxCount, type);
+		String ret = MAX_CACHE.get(key);
+		if(ret==null){
+			ST st = getSTGroup().getInstanceOf("max");
+			st.add("name", appID);
+			st.add("number", maxCount);
+			st.add("type", type.name().toLowerCase());
+			ret = st.render();
+			if(MAX_CACHE.size()>=MAX_CACHED){
+				MAX_CACHE.clear();
+			}
+			MAX_CACHE.put(key, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Renders the summary for a message repeated a number of times.
+	 * @param appID application identifier (or name)
+	 * @param number number of repeats
+	 * @param type the message type
+	 * @param message the rendered repeated message
+	 * @return rendered summary
+	 */
+	static String renderRepeated(Object appID, int number, E_MessageType type, String message){
+		ST st = getSTGroup().getInstanceOf("repeated");
+		st.add("name", appID);
+		st.add("number", number);
+		st.add("type", type.name().toLowerCase());
+		st.add("message", message);
+		return st.render();
+	}
+
+	/**
+	 * Renders the summary for messages dropped by rate limits.
+	 * @param appID application identifier (or name)
+	 * @param number number of dropped messages
+	 * @param type the message type
+	 * @return rendered summary
+	 */
+	static String renderDropped(Object appID, long number, E_MessageType type){
+		ST st = getSTGroup().getInstanceOf("dropped");
+		st.add("name", appID);
+		st.add("number", number);
+		st.add("type", type.name().toLowerCase());
+		return st.render();
+	}
+
+	/**
+	 * Key for a cached max message.
+	 */
+	static final class MaxKey {
+
+		/** The application identifier as string. */
+		protected final String appID;
+
+		/** The maximum count. */
+		protected final int maxCount;
+
+		/** The message type. */
+		protected final E_MessageType type;
+
+		/**
+		 * Returns a new key.
+		 * @param appID application identifier as string
+		 * @param maxCount maximum count
+		 * @param type message type
+		 */
+		MaxKey(String appID, int maxCount, E_MessageType type){
+			this.appID = appID;
+			this.maxCount = maxCount;
+			this.type = type;
+		}
+
+		@Override
+		public int hashCode(){
+			return Objects.hash(this.appID, this.maxCount, this.type);
+		}
+
+		@Override
+		public boolean equals(Object obj){
+			if(!(obj instanceof MaxKey)){
+				return false;
+			}
+			MaxKey other = (MaxKey)obj;
+			return this.maxCount==other.maxCount && this.type==other.type && this.appID.equals(other.appID);
+		}
+	}
+
+}
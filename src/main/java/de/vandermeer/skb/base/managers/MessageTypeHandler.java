@@ -15,14 +15,22 @@
 
 package de.vandermeer.skb.base.managers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.slf4j.Logger;
-import org.stringtemplate.v4.ST;
 
 import de.vandermeer.skb.base.message.E_MessageType;
-import de.vandermeer.skb.interfaces.MessageConsole;
 
 /**
  * Handles a message type for the message manager.
+ * 
+ * The message count is a striped counter, so the handler can be used by many reporting threads without losing counts.
+ * 
+ * Messages are written to a default sink (a {@link ConsoleSink} or a {@link LoggerSink}) and to any number of further {@link MessageSink}s.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -30,17 +38,20 @@ import de.vandermeer.skb.interfaces.MessageConsole;
  */
 class MessageTypeHandler {
 
-	/** Count of messages for this type. */
-	protected int count;
+	/** Count of messages for this type, striped to avoid contention between reporting threads. */
+	protected final LongAdder count = new LongAdder();
 
 	/** The maximum count of messages allows, defaults to -1 for being ignored. */
 	protected int maxCount;
 
-	/** Flag to use SkbConsole for output. */
-	protected boolean useSkbConsole;
+	/** Flag for the max message being written already. */
+	protected final AtomicBoolean maxReported = new AtomicBoolean();
 
-	/** The logger to be used for output, only used if SkbConsole is not used/ */
-	protected Logger logger;
+	/** The sink for console or logger output, null if the handler only uses further sinks. */
+	protected MessageSink defaultSink;
+
+	/** Further sinks for messages. */
+	protected final List<MessageSink> sinks = new ArrayList<>();
 
 	/** The message type the handler handles. */
 	protected final E_MessageType type;
@@ -60,8 +71,7 @@ class MessageTypeHandler {
 		this.type = type;
 
 		this.maxCount = (maxCount>0)?maxCount:-1;
-		this.useSkbConsole = true;
-		this.count = 0;
+		this.defaultSink = new ConsoleSink();
 	}
 
 	/**
@@ -72,11 +82,21 @@ class MessageTypeHandler {
 	MessageTypeHandler(E_MessageType type, int maxCount, Logger logger){
 		this(type, maxCount);
 		if(logger!=null){
-			this.useSkbConsole = false;
-			this.logger = logger;
+			this.defaultSink = new LoggerSink(logger);
 		}
 	}
 
+	/**
+	 * Returns a new handler with given max count using only the given sinks, that is neither console nor logger.
+	 * @param maxCount maxCount given maximum count, only used of greater than 0, set to -1 otherwise
+	 * @param sinks the sinks for the message type
+	 */
+	MessageTypeHandler(E_MessageType type, int maxCount, MessageSink ... sinks){
+		this(type, maxCount);
+		this.defaultSink = null;
+		this.addSinks(sinks);
+	}
+
 	/**
 	 * Returns a new handler with max count set to -1 using given logger.
 	 * @param logger used as logger for the message type if not null, handler will use {@link Skb_Console} otherwise
@@ -85,96 +105,192 @@ class MessageTypeHandler {
 		this(type, 0, logger);
 	}
 
+	/**
+	 * Returns a new handler with the settings of this handler: type, maximum count, a new default sink of the same kind, and the same further sinks.
+	 * The further sinks are not copied, both handlers write to the same sink instances.
+	 * The new handler has no messages counted.
+	 * @return new handler
+	 */
+	MessageTypeHandler copy(){
+		MessageTypeHandler ret = new MessageTypeHandler(this.type, this.maxCount);
+		if(this.defaultSink instanceof LoggerSink){
+			ret.defaultSink = new LoggerSink(((LoggerSink)this.defaultSink).logger);
+		}
+		else if(this.defaultSink==null){
+			ret.defaultSink = null;
+		}
+		ret.sinks.addAll(this.sinks);
+		return ret;
+	}
+
+	/**
+	 * Adds sinks to the handler.
+	 * @param sinks the sinks to add, null values are ignored
+	 */
+	void addSinks(MessageSink ... sinks){
+		for(MessageSink sink : sinks){
+			if(sink!=null){
+				this.sinks.add(sink);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sinks of the handler, not including console or logger.
+	 * @return sinks
+	 */
+	List<MessageSink> getSinks(){
+		return this.sinks;
+	}
+
 	/**
 	 * Returns the count of messages of the type the handler handles
 	 * @return message count
 	 */
 	public int getCount(){
-		return this.count;
+		return this.count.intValue();
 	}
 
 	/**
 	 * Resets the handler.
 	 */
 	public void clear(){
-		this.count = 0;
+		this.count.reset();
+		this.maxReported.set(false);
 	}
 
+	/**
+	 * Tests if the handler is enabled, that is if a handled message will be written to console, logger, or any sink.
+	 * @return true if enabled, false otherwise
+	 */
 	public boolean isEnabled(){
-		if(this.useSkbConsole==true){
-			return MessageConsole.PRINT_MESSAGES;
+		if(this.isDefaultEnabled()){
+			return true;
 		}
-		switch(this.type){
-			case INFO:
-				return this.logger.isInfoEnabled();
-			case WARNING:
-				return this.logger.isWarnEnabled();
-			case ERROR:
-				return this.logger.isErrorEnabled();
+		for(MessageSink sink : this.sinks){
+			if(sink.isEnabled(this.type)){
+				return true;
+			}
 		}
 		return false;
 	}
 
 	/**
-	 * Handles the message.
+	 * Tests if the console or logger of the handler is enabled.
+	 * @return true if enabled, false otherwise or if the handler uses neither console nor logger
+	 */
+	protected boolean isDefaultEnabled(){
+		return this.defaultSink!=null && this.defaultSink.isEnabled(this.type);
+	}
+
+	/**
+	 * Handles the message, that is counting it and, if the handler is enabled, writing it to console or logger.
+	 * The message is only rendered if the handler is enabled.
+	 * Once the count exceeds the maximum count, the max message is written once and further messages are only counted.
 	 * @param message the message to be handled
-	 * @param type message type
 	 * @param appID application identifier for max message count
 	 */
-	public void handleMessage(String message, E_MessageType type, ST max100, Object appID){
-		this.count++;
+	public void handleMessage(ReportedMessage message, Object appID){
+		this.count.increment();
+		if(!this.isEnabled()){
+			return;
+		}
+
+		if(this.isOverMax(this.count.sum())){
+			ReportedMessage max = this.maxMessage(appID);
+			if(max!=null){
+				this.write(max);
+			}
+			return;
+		}
+		this.write(message);
+	}
+
+	/**
+	 * Counts a message that is suppressed, for instance as a repeat of an earlier message, without writing it.
+	 */
+	public void skipMessage(){
+		this.count.increment();
+	}
+
+	/**
+	 * Counts a number of messages at once, for instance for a batch of messages.
+	 * @param number the number of messages
+	 * @return the count before the messages were added
+	 */
+	long countMessages(int number){
+		long ret = this.count.sum();
+		this.count.add(number);
+		return ret;
+	}
+
+	/**
+	 * Tests if a message with the given number exceeds the maximum count.
+	 * @param number the number of the message, that is the count including the message
+	 * @return true if a maximum count is set and exceeded, false otherwise
+	 */
+	boolean isOverMax(long number){
+		return this.maxCount!=-1 && number>this.maxCount;
+	}
+
+	/**
+	 * Returns the max message the first time it is requested.
+	 * @param appID application identifier for max message count
+	 * @return the rendered max message, null if it has been requested before
+	 */
+	ReportedMessage maxMessage(Object appID){
+		if(!this.maxReported.compareAndSet(false, true)){
+			return null;
+		}
+		return new ReportedMessage(E_MessageType.ERROR, MessageTemplates.renderMax(appID, this.maxCount, this.type));
+	}
 
-		boolean doMax = false;
-		if(this.maxCount!=-1 && this.count>this.maxCount){
-			max100.add("name", appID);
-			max100.add("number", this.maxCount);
-			doMax = true;
+	/**
+	 * Writes a summary of suppressed or dropped messages if the handler is enabled, the summary is not counted as a message.
+	 * @param summary the rendered summary
+	 */
+	public void handleSummary(ReportedMessage summary){
+		if(this.isEnabled()){
+			this.write(summary);
 		}
+	}
 
-		if(this.useSkbConsole==true){
-			switch(type){
-				case ERROR:
-					MessageConsole.conError(message);
-					if(doMax==true){
-						MessageConsole.conError(max100.render());
-					}
-					break;
-				case INFO:
-					MessageConsole.conInfo(message);
-					if(doMax==true){
-						MessageConsole.conError(max100.render());
-					}
-					break;
-				case WARNING:
-					MessageConsole.conWarn(message);
-					if(doMax==true){
-						MessageConsole.conError(max100.render());
-					}
-					break;
+	/**
+	 * Writes a message to console or logger and to all enabled sinks, using the level of the message's type.
+	 * The message is rendered once and the text is shared by all sinks.
+	 * @param message the message to write
+	 */
+	protected void write(ReportedMessage message){
+		this.writeDefault(message);
+		for(MessageSink sink : this.sinks){
+			if(sink.isEnabled(message.getType())){
+				sink.write(message);
 			}
 		}
-		else{
-			switch(type){
-				case ERROR:
-					this.logger.error(message);
-					if(doMax==true){
-						this.logger.error(max100.render());
-					}
-					break;
-				case INFO:
-					this.logger.info(message);
-					if(doMax==true){
-						this.logger.error(max100.render());
-					}
-					break;
-				case WARNING:
-					this.logger.warn(message);
-					if(doMax==true){
-						this.logger.error(max100.render());
-					}
-					break;
+	}
+
+	/**
+	 * Writes a message of a batch to console or logger immediately and adds it to the batch of every enabled sink.
+	 * @param message the message to write, already rendered
+	 * @param batches batches of messages per sink, written by the caller once the batch is complete
+	 */
+	protected void write(ReportedMessage message, Map<MessageSink, List<ReportedMessage>> batches){
+		this.writeDefault(message);
+		for(MessageSink sink : this.sinks){
+			if(sink.isEnabled(message.getType())){
+				batches.computeIfAbsent(sink, k -> new ArrayList<>()).add(message);
 			}
 		}
 	}
 
+	/**
+	 * Writes a message to console or logger if enabled, using the level of the message's type.
+	 * @param message the message to write
+	 */
+	protected void writeDefault(ReportedMessage message){
+		if(this.isDefaultEnabled()){
+			this.defaultSink.write(message);
+		}
+	}
+
 }
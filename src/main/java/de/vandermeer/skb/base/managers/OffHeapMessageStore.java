@@ -0,0 +1,238 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * Store of encoded messages in off-heap (direct) byte buffer segments, for the collection policy {@link E_CollectionPolicy#OFF_HEAP}.
+ * 
+ * Messages are encoded with a {@link MessageCodec}, reporter, who, and location are stored once in a {@link MessageDictionary}.
+ * Each message is stored as its length followed by the encoded message.
+ * Messages are only appended, so views created by {@link #view(BiFunction)} can read them without locking while new messages are added.
+ * The heap used by the store does not depend on the number of stored messages, only on the number of segments and dictionary entries.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+class OffHeapMessageStore {
+
+	/** Size of a segment in bytes. */
+	static final int SEGMENT_SIZE = 1 << 20;
+
+	/** Maximum number of strings in the dictionary. */
+	static final int DICTIONARY_SIZE = 1 << 16;
+
+	/** Maximum number of bytes for all segments, 0 for no limit. */
+	protected final long limit;
+
+	/** The segments, all but the last one are full. */
+	protected List<ByteBuffer> segments = new ArrayList<>();
+
+	/** The segment messages are added to, null if no segment has been allocated. */
+	protected ByteBuffer current;
+
+	/** Number of bytes allocated for all segments. */
+	protected long allocated;
+
+	/** Number of stored messages. */
+	protected int count;
+
+	/** Number of messages that have not been stored because of the limit. */
+	protected long evicted;
+
+	/** The dictionary for shared strings. */
+	protected MessageDictionary dictionary = new MessageDictionary(DICTIONARY_SIZE);
+
+	/** The codec to encode messages. */
+	protected MessageCodec codec = new MessageCodec(this.dictionary);
+
+	/**
+	 * Returns a new store.
+	 * @param limit maximum number of bytes for all segments, 0 for no limit
+	 */
+	OffHeapMessageStore(long limit){
+		this.limit = limit;
+	}
+
+	/**
+	 * Adds a message to the store.
+	 * @param message the message, its text is not rendered unless it is a summary or a message set
+	 * @return true if the message was stored, false if it exceeds the limit
+	 */
+	synchronized boolean add(ReportedMessage message){
+		int capacity = SEGMENT_SIZE;
+		int minimum = 5;
+		while(true){
+			if(this.current!=null){
+				int start = this.current.position();
+				if(this.current.remaining()>4){
+					try{
+						this.current.position(start + 4);
+						this.codec.encode(message, this.current);
+						this.current.putInt(start, this.current.position() - start - 4);
+						this.count++;
+						return true;
+					}
+					catch(BufferOverflowException ex){
+						this.current.position(start);
+					}
+				}
+				if(start==0){
+					// an empty segment is too small for the message, replace it with a larger one
+					if(this.current.capacity()>Integer.MAX_VALUE / 2){
+						this.evicted++;
+						return false;
+					}
+					minimum = this.current.capacity() + 1;
+					capacity = this.current.capacity() * 2;
+					this.segments.remove(this.segments.size() - 1);
+					this.allocated -= this.current.capacity();
+					this.current = null;
+				}
+			}
+			if(!this.allocate(capacity, minimum)){
+				this.evicted++;
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Allocates a new segment.
+	 * @param capacity requested capacity, reduced to the remaining bytes if the store has a limit
+	 * @param minimum minimum capacity
+	 * @return true if a segment has been allocated, false if the limit does not allow for the minimum capacity
+	 */
+	protected boolean allocate(int capacity, int minimum){
+		if(this.limit>0){
+			capacity = (int)Math.min(capacity, this.limit - this.allocated);
+		}
+		if(capacity<minimum){
+			return false;
+		}
+		this.current = ByteBuffer.allocateDirect(capacity);
+		this.segments.add(this.current);
+		this.allocated += capacity;
+		return true;
+	}
+
+	/**
+	 * Returns a view of all messages stored so far.
+	 * The view is not changed by messages added later.
+	 * @param <T> type of the elements of the view
+	 * @param reader function reading one element from a codec and a buffer positioned at an encoded message
+	 * @return view of stored messages
+	 */
+	synchronized <T> Collection<T> view(BiFunction<MessageCodec, ByteBuffer, T> reader){
+		List<ByteBuffer> snapshot = new ArrayList<>(this.segments.size());
+		for(ByteBuffer segment : this.segments){
+			ByteBuffer bb = segment.duplicate();
+			bb.flip();
+			snapshot.add(bb);
+		}
+		int size = this.count;
+		MessageDictionary dictionary = this.dictionary;
+
+		return new AbstractCollection<T>() {
+			@Override
+			public Iterator<T> iterator(){
+				MessageCodec decoder = new MessageCodec(dictionary);
+				return new Iterator<T>() {
+					int segment = 0;
+					int position = 0;
+					int read = 0;
+
+					@Override
+					public boolean hasNext(){
+						return this.read<size;
+					}
+
+					@Override
+					public T next(){
+						if(!this.hasNext()){
+							throw new NoSuchElementException();
+						}
+						ByteBuffer bb = snapshot.get(this.segment);
+						while(this.position>=bb.limit()){
+							bb = snapshot.get(++this.segment);
+							this.position = 0;
+						}
+						int length = bb.getInt(this.position);
+						ByteBuffer record = bb.duplicate();
+						record.position(this.position + 4);
+						record.limit(this.position + 4 + length);
+						this.position += 4 + length;
+						this.read++;
+						return reader.apply(decoder, record);
+					}
+				};
+			}
+
+			@Override
+			public int size(){
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of stored messages.
+	 * @return number of messages
+	 */
+	synchronized int size(){
+		return this.count;
+	}
+
+	/**
+	 * Returns the number of bytes allocated off-heap.
+	 * @return allocated bytes
+	 */
+	synchronized long getAllocatedBytes(){
+		return this.allocated;
+	}
+
+	/**
+	 * Returns the number of messages that have not been stored because of the limit.
+	 * @return number of evicted messages
+	 */
+	synchronized long getEvictedCount(){
+		return this.evicted;
+	}
+
+	/**
+	 * Removes all messages, the segments are released for garbage collection and not reused (views created before remain valid).
+	 */
+	synchronized void clear(){
+		this.segments = new ArrayList<>();
+		this.current = null;
+		this.allocated = 0;
+		this.count = 0;
+		this.evicted = 0;
+		this.dictionary = new MessageDictionary(DICTIONARY_SIZE);
+		this.codec = new MessageCodec(this.dictionary);
+	}
+
+}
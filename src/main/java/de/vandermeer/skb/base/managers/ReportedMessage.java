@@ -0,0 +1,181 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.interfaces.messagesets.IsMessageSet;
+
+/**
+ * A message reported to a {@link MessageMgr} with lazy rendering.
+ * 
+ * The message is rendered the first time its text is requested, for instance by an enabled handler or for collection.
+ * Every further request returns the same text, so the message is rendered at most once.
+ * 
+ * A {@link Message5WH} built by a reusing builder is recycled once the manager has processed it, unless a sink keeps it with {@link #retain()}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class ReportedMessage {
+
+	/** The message type. */
+	protected final E_MessageType type;
+
+	/** The original message, a {@link Message5WH}, an {@link IsMessageSet}, or the text of a summary. */
+	protected final Object source;
+
+	/** The renderer for {@link Message5WH} messages. */
+	protected final MessageRenderer renderer;
+
+	/** Histogram for the render latency, null if not measured. */
+	protected final LatencyHistogram latency;
+
+	/** The rendered text, null until first requested. */
+	protected String text;
+
+	/**
+	 * Returns a new reported message.
+	 * @param type the message type
+	 * @param source the original message, a {@link Message5WH} or an {@link IsMessageSet}
+	 * @param renderer the renderer to use for a {@link Message5WH}
+	 */
+	ReportedMessage(E_MessageType type, Object source, MessageRenderer renderer){
+		this(type, source, renderer, null);
+	}
+
+	/**
+	 * Returns a new reported message that records its render latency.
+	 * @param type the message type
+	 * @param source the original message, a {@link Message5WH} or an {@link IsMessageSet}
+	 * @param renderer the renderer to use for a {@link Message5WH}
+	 * @param latency histogram for the render latency, null to not measure it
+	 */
+	ReportedMessage(E_MessageType type, Object source, MessageRenderer renderer, LatencyHistogram latency){
+		this.type = type;
+		this.source = source;
+		this.renderer = renderer;
+		this.latency = latency;
+	}
+
+	/**
+	 * Returns a new reported message for a text that is already rendered, for instance a summary of other messages.
+	 * @param type the message type
+	 * @param text the text
+	 */
+	ReportedMessage(E_MessageType type, String text){
+		this(type, text, null);
+		this.text = text;
+	}
+
+	/**
+	 * Returns the message type.
+	 * @return message type
+	 */
+	public E_MessageType getType(){
+		return this.type;
+	}
+
+	/**
+	 * Tests if the message is a summary of other messages, for instance of repeated or dropped messages.
+	 * @return true if the message is a summary, false otherwise
+	 */
+	public boolean isSummary(){
+		return this.source instanceof String;
+	}
+
+	/**
+	 * Returns the original message.
+	 * @return original message, a {@link Message5WH}, an {@link IsMessageSet}, or the text of a summary
+	 */
+	public Object getSource(){
+		return this.source;
+	}
+
+	/**
+	 * Returns the original message if it is a {@link Message5WH}.
+	 * @return original message, null if the message is not a {@link Message5WH}
+	 */
+	public Message5WH getMessage(){
+		return (this.source instanceof Message5WH)?(Message5WH)this.source:null;
+	}
+
+	/**
+	 * Adds a reference to a recyclable original message, required for any sink or other component keeping the message after a write call.
+	 * @return self to allow chaining
+	 * @see Message5WH#retain()
+	 */
+	public ReportedMessage retain(){
+		if(this.source instanceof Message5WH){
+			((Message5WH)this.source).retain();
+		}
+		return this;
+	}
+
+	/**
+	 * Releases a reference to a recyclable original message.
+	 * @see Message5WH#release()
+	 */
+	public void release(){
+		if(this.source instanceof Message5WH){
+			((Message5WH)this.source).release();
+		}
+	}
+
+	/**
+	 * Tests if the message has been rendered already.
+	 * @return true if rendered, false otherwise
+	 */
+	public boolean isRendered(){
+		return this.text!=null;
+	}
+
+	/**
+	 * Returns the rendered message, rendering it on first call.
+	 * @return rendered message
+	 */
+	public String getText(){
+		if(this.text==null){
+			if(this.latency==null){
+				this.text = this.render();
+			}
+			else{
+				long start = System.nanoTime();
+				this.text = this.render();
+				this.latency.record(System.nanoTime() - start);
+			}
+		}
+		return this.text;
+	}
+
+	/**
+	 * Renders the original message.
+	 * @return rendered message
+	 */
+	protected String render(){
+		if(this.source instanceof Message5WH){
+			return this.renderer.render((Message5WH)this.source);
+		}
+		return ((IsMessageSet)this.source).render();
+	}
+
+	@Override
+	public String toString(){
+		return this.getText();
+	}
+
+}
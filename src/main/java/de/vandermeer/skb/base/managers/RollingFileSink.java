@@ -0,0 +1,289 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * A sink appending messages to a file (UTF-8 encoded), rolling the file over when it reaches a maximum size.
+ * 
+ * On rollover the file {@code name} is renamed to {@code name.1}, an existing {@code name.1} to {@code name.2}, and so on up to the maximum number of backups.
+ * The oldest backup is deleted.
+ * Output is buffered, the buffer is flushed according to the sink's {@link E_FlushPolicy}.
+ * If writing fails, the error is printed once on the console and the sink discards all further messages.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class RollingFileSink implements MessageSink {
+
+	/** The file to write to. */
+	protected final File file;
+
+	/** Maximum size of the file in bytes before it is rolled over. */
+	protected final long maxBytes;
+
+	/** Maximum number of backup files, 0 to delete the file on rollover. */
+	protected final int maxBackups;
+
+	/** Flush policy. */
+	protected final E_FlushPolicy flushPolicy;
+
+	/** Size of the output buffer in characters. */
+	protected final int bufferSize;
+
+	/** Line separator written after every message. */
+	protected final String newLine = System.lineSeparator();
+
+	/** The writer for the file, null until the first message is written. */
+	protected Writer writer;
+
+	/** Current size of the file in bytes. */
+	protected long bytes;
+
+	/** Number of bytes written to all files. */
+	protected volatile long written;
+
+	/** Flag for a failed sink, which discards all messages. */
+	protected boolean failed;
+
+	/**
+	 * Returns a new file sink with a buffer of 8192 characters.
+	 * @param file the file to write to, created on the first message, existing content is kept
+	 * @param maxBytes maximum size of the file in bytes before it is rolled over, must be greater than 0
+	 * @param maxBackups maximum number of backup files, 0 or greater
+	 * @param flushPolicy the flush policy, must not be null
+	 * @throws IllegalArgumentException if any argument was not valid
+	 */
+	public RollingFileSink(File file, long maxBytes, int maxBackups, E_FlushPolicy flushPolicy){
+		this(file, maxBytes, maxBackups, flushPolicy, 8192);
+	}
+
+	/**
+	 * Returns a new file sink.
+	 * @param file the file to write to, created on the first message, existing content is kept
+	 * @param maxBytes maximum size of the file in bytes before it is rolled over, must be greater than 0
+	 * @param maxBackups maximum number of backup files, 0 or greater
+	 * @param flushPolicy the flush policy, must not be null
+	 * @param bufferSize size of the output buffer in characters, must be greater than 0
+	 * @throws IllegalArgumentException if any argument was not valid
+	 */
+	public RollingFileSink(File file, long maxBytes, int maxBackups, E_FlushPolicy flushPolicy, int bufferSize){
+		if(file==null){
+			throw new IllegalArgumentException("file cannot be null");
+		}
+		if(maxBytes<1){
+			throw new IllegalArgumentException("maxBytes must be greater than 0, was " + maxBytes);
+		}
+		if(maxBackups<0){
+			throw new IllegalArgumentException("maxBackups cannot be negative, was " + maxBackups);
+		}
+		if(flushPolicy==null){
+			throw new IllegalArgumentException("flush policy cannot be null");
+		}
+		if(bufferSize<1){
+			throw new IllegalArgumentException("bufferSize must be greater than 0, was " + bufferSize);
+		}
+		this.file = file;
+		this.maxBytes = maxBytes;
+		this.maxBackups = maxBackups;
+		this.flushPolicy = flushPolicy;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public synchronized void write(ReportedMessage message){
+		if(this.failed){
+			return;
+		}
+		try{
+			this.append(message);
+			if(this.flushPolicy.flushes(message.getType())){
+				this.writer.flush();
+			}
+		}
+		catch(IOException ex){
+			this.fail(ex);
+		}
+	}
+
+	/**
+	 * Writes a batch of messages with at most one flush at the end of the batch.
+	 * The flush policy is applied to the batch as a whole, that is the batch is flushed if the policy would flush any of its messages.
+	 */
+	@Override
+	public synchronized void write(List<ReportedMessage> messages){
+		if(this.failed){
+			return;
+		}
+		try{
+			boolean flush = false;
+			for(ReportedMessage message : messages){
+				this.append(message);
+				flush = flush || this.flushPolicy.flushes(message.getType());
+			}
+			if(flush){
+				this.writer.flush();
+			}
+		}
+		catch(IOException ex){
+			this.fail(ex);
+		}
+	}
+
+	/**
+	 * Appends a message and a line separator to the buffered writer, opening or rolling over the file as required.
+	 * @param message the message to append
+	 * @throws IOException if the file cannot be opened, rolled over, or written
+	 */
+	protected void append(ReportedMessage message) throws IOException{
+		if(this.writer==null){
+			this.open();
+		}
+		if(this.bytes>=this.maxBytes){
+			this.rollover();
+		}
+
+		String text = message.getText();
+		this.writer.write(text);
+		this.writer.write(this.newLine);
+		int length = utf8Length(text) + this.newLine.length();
+		this.bytes += length;
+		this.written += length;
+	}
+
+	@Override
+	public long getBytesWritten(){
+		return this.written;
+	}
+
+	@Override
+	public synchronized void flush(){
+		if(this.writer!=null && !this.failed){
+			try{
+				this.writer.flush();
+			}
+			catch(IOException ex){
+				this.fail(ex);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close(){
+		if(this.writer!=null){
+			try{
+				this.writer.close();
+			}
+			catch(IOException ex){
+				this.fail(ex);
+			}
+			this.writer = null;
+		}
+	}
+
+	/**
+	 * Opens the file for appending.
+	 * @throws IOException if the file cannot be opened
+	 */
+	protected void open() throws IOException{
+		File parent = this.file.getAbsoluteFile().getParentFile();
+		if(parent!=null && !parent.exists()){
+			parent.mkdirs();
+		}
+		this.bytes = this.file.length();
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8), this.bufferSize);
+	}
+
+	/**
+	 * Closes the file, moves it and its backups one generation up, and opens a new file.
+	 * @throws IOException if the file cannot be closed or opened
+	 */
+	protected void rollover() throws IOException{
+		this.writer.close();
+		this.writer = null;
+
+		File oldest = this.backup(this.maxBackups);
+		if(oldest.exists() && !oldest.delete()){
+			throw new IOException("cannot delete " + oldest);
+		}
+		for(int i=this.maxBackups-1; i>=1; i--){
+			File backup = this.backup(i);
+			if(backup.exists() && !backup.renameTo(this.backup(i + 1))){
+				throw new IOException("cannot rename " + backup);
+			}
+		}
+		if(this.maxBackups>0 && !this.file.renameTo(this.backup(1))){
+			throw new IOException("cannot rename " + this.file);
+		}
+		this.open();
+	}
+
+	/**
+	 * Returns a backup file.
+	 * @param generation the generation of the backup, 0 for the file itself
+	 * @return backup file
+	 */
+	protected File backup(int generation){
+		return (generation==0)?this.file:new File(this.file.getPath() + "." + generation);
+	}
+
+	/**
+	 * Marks the sink as failed and prints the error.
+	 * @param ex the exception that caused the failure
+	 */
+	protected void fail(IOException ex){
+		this.failed = true;
+		MessageConsole.conError("{}: cannot write messages to {}: {}", this.getClass().getSimpleName(), this.file, ex.getMessage());
+	}
+
+	/**
+	 * Returns the number of bytes of a text in UTF-8 encoding, without encoding it.
+	 * @param text the text
+	 * @return number of bytes
+	 */
+	protected static int utf8Length(CharSequence text){
+		int ret = 0;
+		for(int i=0; i<text.length(); i++){
+			char c = text.charAt(i);
+			if(c<0x80){
+				ret += 1;
+			}
+			else if(c<0x800){
+				ret += 2;
+			}
+			else if(Character.isHighSurrogate(c) && i+1<text.length() && Character.isLowSurrogate(text.charAt(i+1))){
+				ret += 4;
+				i++;
+			}
+			else{
+				ret += 3;
+			}
+		}
+		return ret;
+	}
+
+}
@@ -15,14 +15,22 @@
 
 package de.vandermeer.skb.base.message;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.text.StrBuilder;
 
+import de.vandermeer.skb.interfaces.FormattingTupleWrapper;
 import de.vandermeer.skb.interfaces.categories.has.HasToStringStyle;
 import de.vandermeer.skb.interfaces.render.DoesRender;
 
 /**
  * Standard SKB message.
+ * 
+ * A message built by a reusing {@link Message5WH_Builder} is recyclable: it counts its references and the builder reuses it (and its buffers) once all references are released.
+ * Any code keeping a recyclable message beyond a method call must {@link #retain()} it and {@link #release()} it when done.
+ * For all other messages both methods have no effect.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -36,6 +44,12 @@ public class Message5WH implements DoesRender, HasToStringStyle {
 	/** What happened? */
 	private StrBuilder what;
 
+	/** Pattern of the What? part with {@code {}} placeholders, formatted with its arguments when the What? part is first requested, null if not used. */
+	private String whatPattern;
+
+	/** Arguments for the What? pattern. */
+	private Object[] whatArguments;
+
 	/** Where did it happen: location. */
 	protected Object whereLocation;
 
@@ -60,9 +74,24 @@ public class Message5WH implements DoesRender, HasToStringStyle {
 	/** Type of message. */
 	private E_MessageType type;
 
-	Message5WH(Object who, StrBuilder what, Object whereLocation, int whereLine, int whereColumn, Object when, StrBuilder why, StrBuilder how, Object reporter, E_MessageType type){
+	/** Updater for the reference count. */
+	private static final AtomicIntegerFieldUpdater<Message5WH> REFERENCES = AtomicIntegerFieldUpdater.newUpdater(Message5WH.class, "references");
+
+	/** Reference count of a recyclable message, -1 for a message that is not recyclable. */
+	private volatile int references = -1;
+
+	Message5WH(Object who, StrBuilder what, String whatPattern, Object[] whatArguments, Object whereLocation, int whereLine, int whereColumn, Object when, StrBuilder why, StrBuilder how, Object reporter, E_MessageType type){
+		this.init(who, what, whatPattern, whatArguments, whereLocation, whereLine, whereColumn, when, why, how, reporter, type);
+	}
+
+	/**
+	 * Sets all parts of the message, used for new messages and for recycled messages.
+	 */
+	void init(Object who, StrBuilder what, String whatPattern, Object[] whatArguments, Object whereLocation, int whereLine, int whereColumn, Object when, StrBuilder why, StrBuilder how, Object reporter, E_MessageType type){
 		this.who = who;
 		this.what = what;
+		this.whatPattern = whatPattern;
+		this.whatArguments = whatArguments;
 		this.whereLocation = whereLocation;
 		this.whereLine = whereLine;
 		this.whereColumn = whereColumn;
@@ -73,61 +102,120 @@ public class Message5WH implements DoesRender, HasToStringStyle {
 		this.type = type;
 	}
 
+	/**
+	 * Marks the message as recyclable with a single reference, held by the builder that built it.
+	 */
+	void recyclable(){
+		this.references = 1;
+	}
+
+	/**
+	 * Tests if the message is recyclable, that is if it has been built by a reusing builder.
+	 * @return true if recyclable, false otherwise
+	 */
+	public boolean isRecyclable(){
+		return this.references>=0;
+	}
+
+	/**
+	 * Adds a reference to a recyclable message, so that it is not recycled before the reference is released.
+	 * @return self to allow chaining
+	 */
+	public Message5WH retain(){
+		if(this.isRecyclable()){
+			REFERENCES.incrementAndGet(this);
+		}
+		return this;
+	}
+
+	/**
+	 * Releases a reference to a recyclable message.
+	 * @return true if this was the last reference (the message can be recycled), false otherwise or if the message is not recyclable
+	 */
+	public boolean release(){
+		if(this.isRecyclable()){
+			return REFERENCES.decrementAndGet(this)==0;
+		}
+		return false;
+	}
+
 	@Override
 	public String render(){
 		StrBuilder ret = new StrBuilder(100);
-
-		StrBuilder where = null;
-		if(this.getWhereLocation()!=null){
-			where = new StrBuilder(30);
-			where.append(this.whereLocation);
-			if(this.whereLine>0 && this.whereColumn>0){
-				where.append(' ').append(this.whereLine).append(':').append(this.whereColumn).append(' ');
-			}
-			else if(this.whereLine<1 && this.whereColumn<1){
-				where.append(' ');
-			}
-			else if(this.whereLine<1){
-				where.append(" -:").append(this.whereColumn).append(' ');
-			}
-			else if(this.whereColumn<1){
-				where.append(' ').append(this.whereLine).append(":- ");
-			}
+		try{
+			this.render(ret);
+		}
+		catch(IOException ignore){
+			//cannot happen, StrBuilder does not throw IO exceptions
 		}
+		return ret.toString();
+	}
 
+	/**
+	 * Renders the message directly into an appendable (for instance a writer or a string builder), without creating intermediate strings.
+	 * The output is the same as for {@link #render()}.
+	 * @param out the appendable to render the message to
+	 * @throws IOException if the appendable throws one
+	 */
+	public void render(Appendable out) throws IOException{
 		if(this.reporter!=null){
-			ret.append(this.reporter).append(": ");
+			append(out, this.reporter).append(": ");
 		}
-		if(this.what!=null){
-			ret.append(this.type.name().toLowerCase()).append(' ');
+		if(this.hasWhat()){
+			out.append(this.type.name().toLowerCase()).append(' ');
 		}
 		if(this.who!=null){
-			ret.append(this.who).append(' ');
+			append(out, this.who).append(' ');
 		}
 		if(this.when!=null){
-			ret.append("at (").append(this.when).append(") ");
+			append(out.append("at ("), this.when).append(") ");
 		}
 
-		if(where!=null){
-			ret.append("in ").append(where);
+		if(this.whereLocation!=null){
+			append(out.append("in "), this.whereLocation);
+			if(this.whereLine>0 && this.whereColumn>0){
+				out.append(' ').append(Integer.toString(this.whereLine)).append(':').append(Integer.toString(this.whereColumn)).append(' ');
+			}
+			else if(this.whereLine<1 && this.whereColumn<1){
+				out.append(' ');
+			}
+			else if(this.whereLine<1){
+				out.append(" -:").append(Integer.toString(this.whereColumn)).append(' ');
+			}
+			else if(this.whereColumn<1){
+				out.append(' ').append(Integer.toString(this.whereLine)).append(":- ");
+			}
 		}
 
 		if(this.type==E_MessageType.ERROR){
-			ret.append("-> ");
+			out.append("-> ");
 		}
-		if(this.what!=null){
-			ret.append(this.what);
+		if(this.hasWhat()){
+			out.append(this.getWhat());
 		}
 
 		if(this.why!=null){
-			ret.appendNewLine();
-			ret.append("        ==> ").append(this.why);
+			out.append(System.lineSeparator());
+			out.append("        ==> ").append(this.why);
 		}
 		if(this.how!=null){
-			ret.appendNewLine();
-			ret.append("        ==> ").append(this.how);
+			out.append(System.lineSeparator());
+			out.append("        ==> ").append(this.how);
 		}
-		return ret.toString();
+	}
+
+	/**
+	 * Appends an object to an appendable, using the object itself if it is a character sequence and its string representation otherwise.
+	 * @param out the appendable
+	 * @param obj the object, must not be null
+	 * @return the appendable to allow chaining
+	 * @throws IOException if the appendable throws one
+	 */
+	private static Appendable append(Appendable out, Object obj) throws IOException{
+		if(obj instanceof CharSequence){
+			return out.append((CharSequence)obj);
+		}
+		return out.append(obj.toString());
 	}
 
 	/**
@@ -169,12 +257,51 @@ public class Message5WH implements DoesRender, HasToStringStyle {
 
 	/**
 	 * Returns the What? part of the message.
+	 * A What? part given as pattern is formatted on the first call.
 	 * @return What? part, null if no set
 	 */
 	public StrBuilder getWhat(){
+		if(this.whatPattern!=null){
+			return this.formatWhat();
+		}
+		return this.what;
+	}
+
+	/**
+	 * Formats the What? pattern with its arguments once, messages can be rendered by several threads.
+	 * @return formatted What? part
+	 */
+	private synchronized StrBuilder formatWhat(){
+		if(this.what==null){
+			this.what = new StrBuilder(50).append(FormattingTupleWrapper.create(this.whatPattern, this.whatArguments));
+		}
 		return this.what;
 	}
 
+	/**
+	 * Tests if the message has a What? part, without formatting it.
+	 * @return true if the What? part is set (as text or as pattern), false otherwise
+	 */
+	public boolean hasWhat(){
+		return this.what!=null || this.whatPattern!=null;
+	}
+
+	/**
+	 * Returns the pattern of the What? part, which identifies a message independent of its arguments (for instance for aggregation).
+	 * @return What? pattern, null if the What? part was not given as pattern
+	 */
+	public String getWhatPattern(){
+		return this.whatPattern;
+	}
+
+	/**
+	 * Returns the arguments of the What? pattern.
+	 * @return arguments, null if the What? part was not given as pattern
+	 */
+	public Object[] getWhatArguments(){
+		return this.whatArguments;
+	}
+
 	/**
 	 * Returns the When? part of the message.
 	 * @return When? part, null if no set
@@ -244,7 +371,7 @@ public class Message5WH implements DoesRender, HasToStringStyle {
 		return new ToStringBuilder(this, this.getStyle())
 			.append("who       ", this.who, false)
 			.append("who       ", this.who)
-			.append("what      ", this.what)
+			.append("what      ", this.getWhat())
 			.append("whereLoc  ", this.whereLocation)
 			.append("whereLine ", this.whereLine)
 			.append("whereCol  ", this.whereColumn)
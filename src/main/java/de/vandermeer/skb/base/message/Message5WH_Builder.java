@@ -20,10 +20,15 @@ import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Token;
 import org.apache.commons.lang3.text.StrBuilder;
 
+import de.vandermeer.skb.interfaces.FormattingTupleWrapper;
 import de.vandermeer.skb.interfaces.antlr.IsAntlrRuntimeObject;
 
 /**
  * Builder for a {@link Message5WH} object.
+ * 
+ * A reusing builder (see {@link #local()}) keeps its buffers for what, why, and how over {@link #reset()} and recycles the message it built, as long as no other code keeps a reference to the message (see {@link Message5WH#retain()}).
+ * Reporting a message to a {@link de.vandermeer.skb.base.managers.MessageMgr} and resetting the builder afterwards then allocates no new builder, buffer, or message.
+ * A message built by a reusing builder must not be used after the builder has been reset.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -40,6 +45,12 @@ public class Message5WH_Builder {
 	/** What happened? */
 	protected StrBuilder what;
 
+	/** Pattern for What?, formatted by the message when needed. */
+	protected String whatPattern;
+
+	/** Arguments for the What? pattern. */
+	protected Object[] whatArguments;
+
 	/** Where did it happen: location. */
 	protected Object whereLocation;
 
@@ -64,8 +75,99 @@ public class Message5WH_Builder {
 	/** Type of message */
 	protected E_MessageType type;
 
+	/** Reusing builders per thread. */
+	protected static final ThreadLocal<Message5WH_Builder> LOCAL = ThreadLocal.withInitial(() -> new Message5WH_Builder(true));
+
+	/** Flag for a builder that reuses its buffers and messages. */
+	protected final boolean reuse;
+
+	/** Buffers kept by a reusing builder for the next message (what, why, how), null if not available. */
+	protected StrBuilder spareWhat, spareWhy, spareHow;
+
+	/** The last message built by a reusing builder, null if none. */
+	protected Message5WH message;
+
+	/** Flag for a message built since the last reset. */
+	protected boolean built;
+
 	public Message5WH_Builder(){
+		this(false);
+	}
+
+	/**
+	 * Returns a new builder.
+	 * @param reuse true for a builder that reuses its buffers and messages after {@link #reset()}, false for a builder that creates new ones for every message
+	 */
+	public Message5WH_Builder(boolean reuse){
 		this.initialCapacity = 50;
+		this.reuse = reuse;
+	}
+
+	/**
+	 * Returns the reusing builder of the calling thread, reset for a new message.
+	 * The builder and the message it builds must not be handed to other threads.
+	 * @return reusing builder of the calling thread
+	 */
+	public static Message5WH_Builder local(){
+		return LOCAL.get().reset();
+	}
+
+	/**
+	 * Resets the builder for a new message.
+	 * A reusing builder keeps its buffers and recycles the last message it built if that message is not referenced anymore, otherwise the message is left to its holders.
+	 * @return self to allow chaining
+	 */
+	public Message5WH_Builder reset(){
+		boolean keep = this.reuse;
+		if(this.built){
+			this.built = false;
+			keep = this.message.release();
+			if(!keep){
+				this.message = null;
+			}
+		}
+		if(keep){
+			this.spareWhat = spare(this.what, this.spareWhat);
+			this.spareWhy = spare(this.why, this.spareWhy);
+			this.spareHow = spare(this.how, this.spareHow);
+		}
+		this.what = null;
+		this.why = null;
+		this.how = null;
+		this.whatPattern = null;
+		this.whatArguments = null;
+
+		this.who = null;
+		this.whereLocation = null;
+		this.whereLine = 0;
+		this.whereColumn = 0;
+		this.when = null;
+		this.reporter = null;
+		this.type = null;
+		return this;
+	}
+
+	/**
+	 * Returns a buffer to keep for the next message.
+	 * @param used the buffer used for the last message, null if none was used
+	 * @param spare the currently kept buffer
+	 * @return the used buffer emptied, the kept buffer if none was used
+	 */
+	protected static StrBuilder spare(StrBuilder used, StrBuilder spare){
+		if(used==null){
+			return spare;
+		}
+		used.setLength(0);
+		return used;
+	}
+
+	/**
+	 * Returns a buffer for a part of the message.
+	 * @param spare a kept buffer, null if none is available
+	 * @return the kept buffer or a new one
+	 */
+	protected StrBuilder buffer(StrBuilder spare){
+		return (spare!=null)?spare:new StrBuilder(this.initialCapacity);
 	}
 
 	/**
@@ -78,7 +180,8 @@ public class Message5WH_Builder {
 	 */
 	public Message5WH_Builder addHow(Object ...how){
 		if(this.how==null){
-			this.how = new StrBuilder(50);
+			this.how = this.buffer(this.spareHow);
+			this.spareHow = null;
 		}
 		this.how.appendAll(how);
 		return this;
@@ -93,13 +196,41 @@ public class Message5WH_Builder {
 	 * @return self to allow chaining
 	 */
 	public Message5WH_Builder addWhat(Object ...what){
+		if(this.whatPattern!=null){
+			Object[] pattern = new Object[]{FormattingTupleWrapper.create(this.whatPattern, this.whatArguments)};
+			this.whatPattern = null;
+			this.whatArguments = null;
+			this.addWhat(pattern);
+		}
 		if(this.what==null){
-			this.what = new StrBuilder(50);
+			this.what = this.buffer(this.spareWhat);
+			this.spareWhat = null;
 		}
 		this.what.appendAll(what);
 		return this;
 	}
 
+	/**
+	 * Sets the What? part of the message as a pattern with {@code {}} placeholders and its arguments.
+	 * The pattern is only formatted when the What? part is needed, for instance when the message is rendered, so a message that is counted or suppressed only is never formatted.
+	 * The arguments must not be changed after the message has been built.
+	 * If the What? part has been set before, the formatted pattern is appended to it.
+	 * @param pattern the pattern, nothing is set if null
+	 * @param arguments the arguments for the pattern
+	 * @return self to allow chaining
+	 */
+	public Message5WH_Builder setWhat(String pattern, Object ... arguments){
+		if(pattern==null){
+			return this;
+		}
+		if(this.what!=null || this.whatPattern!=null){
+			return this.addWhat(FormattingTupleWrapper.create(pattern, arguments));
+		}
+		this.whatPattern = pattern;
+		this.whatArguments = arguments;
+		return this;
+	}
+
 	/**
 	 * Adds to the Why? part of the message.
 	 * If the argument is null, no change will be done.
@@ -110,7 +241,8 @@ public class Message5WH_Builder {
 	 */
 	public Message5WH_Builder addWhy(Object ...why){
 		if(this.why==null){
-			this.why = new StrBuilder(50);
+			this.why = this.buffer(this.spareWhy);
+			this.spareWhy = null;
 		}
 		this.why.appendAll(why);
 		return this;
@@ -265,10 +397,23 @@ public class Message5WH_Builder {
 
 	/**
 	 * Builds a message object with the set parameters.
-	 * @return new message object
+	 * A reusing builder returns a recyclable message, which is only valid until the builder is reset.
+	 * @return new (or recycled) message object
 	 */
 	public Message5WH build(){
-		return new Message5WH(this.who, this.what, this.whereLocation, this.whereLine, this.whereColumn, this.when, this.why, this.how, this.reporter, this.type);
+		if(!this.reuse){
+			return new Message5WH(this.who, this.what, this.whatPattern, this.whatArguments, this.whereLocation, this.whereLine, this.whereColumn, this.when, this.why, this.how, this.reporter, this.type);
+		}
+
+		if(this.message==null || this.built){
+			this.message = new Message5WH(this.who, this.what, this.whatPattern, this.whatArguments, this.whereLocation, this.whereLine, this.whereColumn, this.when, this.why, this.how, this.reporter, this.type);
+		}
+		else{
+			this.message.init(this.who, this.what, this.whatPattern, this.whatArguments, this.whereLocation, this.whereLine, this.whereColumn, this.when, this.why, this.how, this.reporter, this.type);
+		}
+		this.message.recyclable();
+		this.built = true;
+		return this.message;
 	}
 
 }
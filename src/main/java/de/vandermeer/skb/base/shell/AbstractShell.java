@@ -26,6 +26,7 @@ import java.util.TreeSet;
 
 import org.apache.commons.lang3.StringUtils;
 
+import de.vandermeer.skb.base.console.InputPump;
 import de.vandermeer.skb.base.console.NonBlockingReader;
 import de.vandermeer.skb.base.managers.MessageMgr;
 import de.vandermeer.skb.base.managers.MessageMgrBuilder;
@@ -49,7 +50,7 @@ public class AbstractShell implements SkbShell {
 	protected final MessageMgr mm;
 
 	/** Flag indicating if the shell is running. */
-	protected boolean isRunning = true;
+	protected volatile boolean isRunning = true;
 
 	/** The shell's exit status. */
 	protected int exitStatus;
@@ -182,6 +183,7 @@ public class AbstractShell implements SkbShell {
 
 	@Override
 	public void stop() {
+		this.isRunning = false;
 		if(this.thread!=null){
 			this.notify = null;
 			synchronized(this.thread){
@@ -189,7 +191,6 @@ public class AbstractShell implements SkbShell {
 			}
 			this.thread = null;
 		}
-		this.isRunning = false;
 	}
 
 	@Override
@@ -230,6 +231,10 @@ public class AbstractShell implements SkbShell {
 					this.history.add(in);
 				}
 
+				if(in==null && sysin instanceof InputPump.PumpReader && ((InputPump.PumpReader)sysin).isEndOfInput()){
+					break;
+				}
+
 				this.exitStatus = this.parseLine(in);
 
 				if(this.exitStatus==-2){
@@ -257,7 +262,8 @@ public class AbstractShell implements SkbShell {
 
 	@Override
 	public int runShell(){
-		BufferedReader sysin = NonBlockingReader.getNbReader(this.getID(), 1, 500, this);
+		// no timeout: wait on the input pump until a line arrives or stop() interrupts the shell thread
+		BufferedReader sysin = NonBlockingReader.getNbReader(this.getID(), 1, 0, this);
 //		BufferedReader sysin = Skb_Console.getStdIn(this.getID());
 		return this.runShell(sysin);
 	}
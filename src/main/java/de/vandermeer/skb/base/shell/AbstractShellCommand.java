@@ -44,6 +44,9 @@ public class AbstractShellCommand implements SkbShellCommand {
 	/** Additional help if any set. */
 	private final String addedHelp;
 
+	/** The compiled schema of the command's arguments. */
+	private final SkbShellArgumentSchema schema;
+
 	/**
 	 * Returns a new shell command, use the {@link SkbShellFactory} to create a new object.
 	 * @param command the actual command
@@ -65,6 +68,7 @@ public class AbstractShellCommand implements SkbShellCommand {
 		this.category = category;
 		this.description = description;
 		this.addedHelp = addedHelp;
+		this.schema = SkbShellArgumentSchema.compile(arguments);
 	}
 
 	@Override
@@ -77,6 +81,11 @@ public class AbstractShellCommand implements SkbShellCommand {
 		return this.arguments;
 	}
 
+	@Override
+	public SkbShellArgumentSchema getArgumentSchema(){
+		return this.schema;
+	}
+
 	@Override
 	public String getDescription(){
 		return this.description;
@@ -15,6 +15,9 @@
 
 package de.vandermeer.skb.base.shell;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
@@ -24,7 +27,6 @@ import de.vandermeer.skb.base.info.CommonsDirectoryWalker;
 import de.vandermeer.skb.base.info.DirectoryLoader;
 import de.vandermeer.skb.base.info.FileSource;
 import de.vandermeer.skb.base.info.FileSourceList;
-import de.vandermeer.skb.base.info.StringFileLoader;
 import de.vandermeer.skb.base.managers.MessageMgr;
 import de.vandermeer.skb.interfaces.MessageConsole;
 
@@ -46,6 +48,9 @@ public class Ci_ScRun extends AbstractCommandInterpreter {
 	/** The calling shell, needed to parse lines. */
 	protected final SkbShell skbShell;
 
+	/** Cache of compiled scripts. */
+	protected final ScriptCache scripts = new ScriptCache();
+
 	/** Extension for script files. */
 	public static String SCRIPT_FILE_EXTENSION = "ssc";
 
@@ -133,19 +138,33 @@ public class Ci_ScRun extends AbstractCommandInterpreter {
 	 */
 	protected int interpretInfo(LineParser lp, MessageMgr mm){
 		String fileName = this.getFileName(lp);
-		String content = this.getContent(fileName, mm);
-		if(content==null){
+		FileSource source = this.getSource(fileName, mm);
+		if(source==null){
 			return 1;
 		}
-		String[] lines = StringUtils.split(content, "\n");
 
 		String info = null;
-		for(String s : lines){
-			if(s.startsWith("//**")){
-				info = StringUtils.substringAfter(s, "//**");
-				break;
+		try{
+			ScriptCache.Script script = this.scripts.get(source, this.skbShell.getCommandMap());
+			if(script!=null){
+				info = script.getInfo();
+			}
+			else{
+				try(BufferedReader reader = ScriptCache.open(source)){
+					String s;
+					while((s = reader.readLine())!=null){
+						if(s.startsWith("//**")){
+							info = StringUtils.substringAfter(s, "//**");
+							break;
+						}
+					}
+				}
 			}
 		}
+		catch(IOException ex){
+			mm.report(MessageMgr.createErrorMessage("info: unexpected IO exception reading script {} - {}", fileName, ex.getMessage()));
+			return 1;
+		}
 		if(info!=null){
 			mm.report(MessageMgr.createInfoMessage("script {} - info: {}", new Object[]{fileName, info}));
 //			Skb_Console.conInfo("{}: script {} - info: {}", new Object[]{shell.getPromptName(), fileName, info});
@@ -189,25 +208,72 @@ public class Ci_ScRun extends AbstractCommandInterpreter {
 	 */
 	protected int interpretRun(LineParser lp, MessageMgr mm){
 		String fileName = this.getFileName(lp);
-		String content = this.getContent(fileName, mm);
-		if(content==null){
+		FileSource source = this.getSource(fileName, mm);
+		if(source==null){
 			return 1;
 		}
 
-		mm.report(MessageMgr.createInfoMessage(""));
-		mm.report(MessageMgr.createInfoMessage("running file {}", fileName));
+		try{
+			ScriptCache.Script script = this.scripts.get(source, this.skbShell.getCommandMap());
 
-		for(String s : StringUtils.split(content, '\n')){
-			if(this.printProgress==true && MessageConsole.PRINT_MESSAGES){
-				System.out.print(".");
+			mm.report(MessageMgr.createInfoMessage(""));
+			mm.report(MessageMgr.createInfoMessage("running file {}", fileName));
+
+			if(script!=null){
+				CommandPlan plan = script.getPlan();
+				if(plan.getErrors().hasErrors()){
+					mm.report(plan.getErrors());
+				}
+				for(int i=0; i<plan.size(); i++){
+					this.progress(plan.getStep(i).getCommand());
+					plan.getStep(i).execute(this.skbShell.getMessageManager());
+				}
+			}
+			else{
+				// too large to cache, stream line by line
+				try(BufferedReader reader = ScriptCache.open(source)){
+					String s;
+					while((s = reader.readLine())!=null){
+						this.progress(s);
+						this.skbShell.parseLine(s);
+					}
+				}
 			}
-			this.skbShell.parseLine(s);
+		}
+		catch(IOException ex){
+			mm.report(MessageMgr.createErrorMessage("run: unexpected IO exception reading script {} - {}", fileName, ex.getMessage()));
+			return 1;
 		}
 		this.lastScript = fileName;
 
 		return 0;
 	}
 
+	/**
+	 * Prints progress for a script line if progress printing is activated, empty lines are ignored.
+	 * @param line the script line
+	 */
+	protected void progress(String line){
+		if(this.printProgress==true && MessageConsole.PRINT_MESSAGES && !line.isEmpty()){
+			System.out.print(".");
+		}
+	}
+
+	/**
+	 * Returns a file source for a script file.
+	 * @param fileName name of the script file
+	 * @param mm the message manager to use for reporting errors, warnings, and infos
+	 * @return null if the file could not be found (error), file source otherwise
+	 */
+	protected FileSource getSource(String fileName, MessageMgr mm){
+		FileSource source = new FileSource(fileName);
+		if(!source.isValid()){
+			mm.report(MessageMgr.createErrorMessage("{}: problems creating file source - {}", "script", source.getInitError().render()));
+			return null;
+		}
+		return source;
+	}
+
 	/**
 	 * Returns a file name taken as argument from the line parser with fixed extension
 	 * @param lp line parser
@@ -224,29 +290,4 @@ public class Ci_ScRun extends AbstractCommandInterpreter {
 		return fileName;
 	}
 
-	/**
-	 * Returns the content of a string read from a file.
-	 * @param fileName name of file to read from
-	 * @param mm the message manager to use for reporting errors, warnings, and infos
-	 * @return null if no content could be found (error), content in string otherwise
-	 */
-	protected String getContent(String fileName, MessageMgr mm){
-		StringFileLoader sfl = new StringFileLoader(fileName);
-		if(sfl.getLoadErrors().hasErrors()){
-			mm.report(sfl.getLoadErrors());
-			return null;
-		}
-
-		String content = sfl.load();
-		if(sfl.getLoadErrors().hasErrors()){
-			mm.report(sfl.getLoadErrors());
-			return null;
-		}
-		if(content==null){
-			mm.report(MessageMgr.createErrorMessage("run: unexpected problem with run script, content was null"));
-			return null;
-		}
-		return content;
-	}
-
 }
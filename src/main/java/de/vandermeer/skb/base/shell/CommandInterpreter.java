@@ -43,6 +43,19 @@ public interface CommandInterpreter {
 	 */
 	int interpretCommand(String command, LineParser lp, MessageMgr mm);
 
+	/**
+	 * Interprets the given command with already parsed arguments, for instance from a {@link CommandPlan}.
+	 * The default implementation ignores the parsed arguments, interpreters with typed arguments should override it.
+	 * @param command command for interpretation
+	 * @param lp a parser with the whole command line
+	 * @param arguments the typed arguments of the command, null if not available
+	 * @param mm the message manager to use for reporting errors, warnings, and infos
+	 * @return same as {@link #interpretCommand(String, LineParser, MessageMgr)}
+	 */
+	default int interpretCommand(String command, LineParser lp, SkbShellArguments arguments, MessageMgr mm){
+		return this.interpretCommand(command, lp, mm);
+	}
+
 	/**
 	 * Returns the set of commands this interpreter does handle.
 	 * @return set of commands of the command interpreter
@@ -0,0 +1,195 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import de.vandermeer.skb.base.managers.MessageMgr;
+import de.vandermeer.skb.interfaces.messagesets.IsErrorSetFT;
+
+/**
+ * An executable plan of the commands of a script.
+ *
+ * A plan is compiled once from the lines of a script: blank lines and comments are removed, every command is resolved to its interpreter and its line is parsed, including its typed arguments.
+ * Unknown commands are collected as errors when the plan is compiled and are not part of the plan.
+ * Running a plan calls the interpreters directly, no line of the script is parsed again.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class CommandPlan {
+
+	/** The steps of the plan. */
+	protected final Step[] steps;
+
+	/** Errors found when compiling the plan. */
+	protected final IsErrorSetFT errors;
+
+	/**
+	 * Returns a new plan, use {@link #compile(String[], Map)}.
+	 * @param steps the steps of the plan
+	 * @param errors errors found when compiling the plan
+	 */
+	protected CommandPlan(Step[] steps, IsErrorSetFT errors){
+		this.steps = steps;
+		this.errors = errors;
+	}
+
+	/**
+	 * Compiles the lines of a script into a plan.
+	 * @param lines the lines of the script
+	 * @param commands the shell's mapping of commands to interpreters
+	 * @return new plan, with errors for all unknown commands
+	 */
+	public static CommandPlan compile(String[] lines, Map<String, CommandInterpreter> commands){
+		IsErrorSetFT errors = IsErrorSetFT.create();
+		List<Step> steps = new ArrayList<>();
+		for(int i=0; i<lines.length; i++){
+			if(StringUtils.isBlank(lines[i]) || lines[i].startsWith("//") || lines[i].startsWith("#")){
+				continue;
+			}
+			LineParser lp = new LineParser(lines[i]);
+			String command = lp.getToken();
+			CommandInterpreter interpreter = commands.get(command);
+			if(interpreter==null){
+				errors.addError("line {}: command <{}> not found in shell, taken from line: <{}>", new Object[]{i + 1, command, lp.getLine()});
+				continue;
+			}
+			SkbShellCommand ssc = interpreter.getCommands().get(command);
+			SkbShellArguments arguments = (ssc==null)?null:ssc.getArgumentSchema().parse(lp);
+			steps.add(new Step(i + 1, command, interpreter, lp, arguments));
+		}
+		return new CommandPlan(steps.toArray(new Step[steps.size()]), errors);
+	}
+
+	/**
+	 * Returns the number of steps of the plan.
+	 * @return number of steps
+	 */
+	public int size(){
+		return this.steps.length;
+	}
+
+	/**
+	 * Returns a step of the plan.
+	 * @param index the step index
+	 * @return the step
+	 */
+	public Step getStep(int index){
+		return this.steps[index];
+	}
+
+	/**
+	 * Returns the errors found when compiling the plan.
+	 * @return compile errors, empty if none found
+	 */
+	public IsErrorSetFT getErrors(){
+		return this.errors;
+	}
+
+	/**
+	 * A single step of a plan, that is a command with its interpreter and its parsed line.
+	 */
+	public static class Step {
+
+		/** The line number of the command in the script, starting with 1. */
+		protected final int line;
+
+		/** The command. */
+		protected final String command;
+
+		/** The interpreter of the command. */
+		protected final CommandInterpreter interpreter;
+
+		/** The parsed line. */
+		protected final LineParser lp;
+
+		/** The typed arguments of the command, null if the interpreter has no shell command for it. */
+		protected final SkbShellArguments arguments;
+
+		/**
+		 * Returns a new step.
+		 * @param line line number of the command in the script
+		 * @param command the command
+		 * @param interpreter the interpreter of the command
+		 * @param lp the parsed line
+		 * @param arguments the typed arguments of the command, null if not available
+		 */
+		protected Step(int line, String command, CommandInterpreter interpreter, LineParser lp, SkbShellArguments arguments){
+			this.line = line;
+			this.command = command;
+			this.interpreter = interpreter;
+			this.lp = lp;
+			this.arguments = arguments;
+		}
+
+		/**
+		 * Returns the line number of the command in the script.
+		 * @return line number, starting with 1
+		 */
+		public int getLine(){
+			return this.line;
+		}
+
+		/**
+		 * Returns the command.
+		 * @return command
+		 */
+		public String getCommand(){
+			return this.command;
+		}
+
+		/**
+		 * Returns the interpreter of the command.
+		 * @return interpreter
+		 */
+		public CommandInterpreter getInterpreter(){
+			return this.interpreter;
+		}
+
+		/**
+		 * Returns the parsed line, positioned at the first argument.
+		 * @return line parser
+		 */
+		public LineParser getLineParser(){
+			return this.lp.setTokenPosition(1);
+		}
+
+		/**
+		 * Returns the typed arguments of the command.
+		 * @return arguments, null if the interpreter has no shell command for the command
+		 */
+		public SkbShellArguments getArguments(){
+			return this.arguments;
+		}
+
+		/**
+		 * Executes the step.
+		 * @param mm the message manager to use for reporting errors, warnings, and infos, it is cleared before the command is interpreted
+		 * @return the return value of the interpreter, see {@link CommandInterpreter#interpretCommand(String, LineParser, MessageMgr)}
+		 */
+		public int execute(MessageMgr mm){
+			mm.clear();
+			return this.interpreter.interpretCommand(this.command, this.getLineParser(), this.arguments, mm);
+		}
+	}
+
+}
@@ -15,16 +15,23 @@
 
 package de.vandermeer.skb.base.shell;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * A line parser for the {@link SkbShell}.
+ * 
+ * The line is tokenized once, when the parser is created, into an index of token offsets into the original line.
+ * Tokens are separated by white spaces, white spaces inside double quotes do not separate tokens.
+ * A token (or a value in an argument map) that is completely quoted is returned without its quotes.
+ * All methods use the token index, the {@code ...Sequence} methods return views of the original line without copying it.
  *
  * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
  * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
@@ -32,18 +39,73 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class LineParser {
 
+	/** Character for quoting tokens and values. */
+	public static final char QUOTE = '"';
+
 	/** Original line to parse. */
 	protected String line;
 
 	/** Current position of the parser in the token stream. */
 	protected int tokenPosition = 1;
 
+	/** Token index, start (inclusive) and end (exclusive) offset into the line for every token. */
+	protected final int[] tokens;
+
+	/** Key/value index of the argument map, start and end offsets of key and value for every pair, null if not yet parsed. */
+	protected int[] pairs;
+
+	/** Token position the key/value index has been parsed for. */
+	protected int pairsPosition;
+
 	/**
 	 * Returns a new command parser for a given command line.
 	 * @param line command line
 	 */
 	public LineParser(String line){
 		this.line = StringUtils.trim(line);
+		this.tokens = LineParser.tokenize(this.line);
+	}
+
+	/**
+	 * Tokenizes a line in a single pass.
+	 * @param line the line, can be null
+	 * @return token index with start and end offset of every token
+	 */
+	protected static int[] tokenize(String line){
+		if(line==null){
+			return new int[0];
+		}
+
+		int[] ret = new int[16];
+		int count = 0;
+		int length = line.length();
+		int i = 0;
+		while(i<length){
+			while(i<length && Character.isWhitespace(line.charAt(i))){
+				i++;
+			}
+			if(i==length){
+				break;
+			}
+			int start = i;
+			boolean quoted = false;
+			while(i<length){
+				char c = line.charAt(i);
+				if(c==QUOTE){
+					quoted = !quoted;
+				}
+				else if(!quoted && Character.isWhitespace(c)){
+					break;
+				}
+				i++;
+			}
+			if(count+2>ret.length){
+				ret = Arrays.copyOf(ret, ret.length * 2);
+			}
+			ret[count++] = start;
+			ret[count++] = i;
+		}
+		return Arrays.copyOf(ret, count);
 	}
 
 	/**
@@ -65,30 +127,64 @@ public class LineParser {
 	}
 
 	/**
-	 * Returns an array of all tokens being parsed.
-	 * @return token array
+	 * Returns the number of tokens in the line.
+	 * @return number of tokens
+	 */
+	public int getTokenCount(){
+		return this.tokens.length / 2;
+	}
+
+	/**
+	 * Returns a token as view of the original line.
+	 * @param index index of the token, starting with 0
+	 * @return token without surrounding quotes, null if the line has no such token
+	 */
+	public CharSequence getTokenSequence(int index){
+		if(index<0 || index>=this.getTokenCount()){
+			return null;
+		}
+		int start = this.tokens[2 * index];
+		int end = this.tokens[2 * index + 1];
+		if(this.isQuoted(start, end)){
+			return CharBuffer.wrap(this.line, start + 1, end - 1);
+		}
+		return CharBuffer.wrap(this.line, start, end);
+	}
+
+	/**
+	 * Returns the token at the current token position.
+	 * @return token, null if the line has no token at the current position
 	 */
 	public String getToken(){
 		if(this.tokenPosition>0){
-			String[] ar = StringUtils.split(this.line, null, this.tokenPosition+1);
-			if(ar!=null && ar.length>(this.tokenPosition-1)){
-				return StringUtils.trim(ar[this.tokenPosition-1]);
+			CharSequence ret = this.getTokenSequence(this.tokenPosition - 1);
+			if(ret!=null){
+				return ret.toString();
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * Returns all tokens that can be considered being command arguments, using the current token position, as view of the original line.
+	 * @return argument string, null if the line has no token at the current position
+	 */
+	public CharSequence getArgsSequence(){
+		if(this.tokenPosition<0 || this.tokenPosition>=this.getTokenCount()){
+			return null;
+		}
+		return CharBuffer.wrap(this.line, this.tokens[2 * this.tokenPosition], this.line.length());
+	}
+
 	/**
 	 * Returns an string of all tokens that can be considered being command arguments, using the current token position.
 	 * @return argument string
 	 */
 	public String getArgs(){
-		int count = (this.tokenPosition==0)?1:this.tokenPosition+1;
-		String[] ar = StringUtils.split(this.line, null, count);
-		if(ar!=null && ar.length>(this.tokenPosition)){
-			return StringUtils.trim(ar[this.tokenPosition]);
+		if(this.tokenPosition<0 || this.tokenPosition>=this.getTokenCount()){
+			return null;
 		}
-		return null;
+		return this.line.substring(this.tokens[2 * this.tokenPosition]);
 	}
 
 	/**
@@ -97,30 +193,132 @@ public class LineParser {
 	 */
 	public ArrayList<String> getArgList(){
 		ArrayList<String> ret = new ArrayList<String>();
-		String[] ar = StringUtils.split(this.getArgs());
-		if(ar!=null){
-			for(String s : ar){
-				ret.add(StringUtils.trim(s));
-			}
+		for(int i=Math.max(0, this.tokenPosition); i<this.getTokenCount(); i++){
+			ret.add(this.getTokenSequence(i).toString());
 		}
 		return ret;
 	}
 
 	/**
 	 * Returns a map of all tokens that can be considered being command arguments, using the current token position.
-	 * @return argument map, using ':' as key/value separator (and naturally white spaces as separator between pairs)
+	 * @return argument map, using ':' as key/value separator (and ',' as separator between pairs)
 	 */
 	public Map<String, String> getArgMap(){
 		Map<String, String> ret = new LinkedHashMap<String, String>();
-		String[] ar = StringUtils.split(this.getArgs(), ',');
-		if(ar!=null){
-			for(String s : ar){
-				String[] kv = StringUtils.split(s, ":", 2);
-				if(kv!=null && kv.length==2){
-					ret.put(StringUtils.trim(kv[0]), StringUtils.trim(kv[1]));
+		int[] index = this.getPairs();
+		for(int i=0; i<index.length; i+=4){
+			ret.put(this.line.substring(index[i], index[i+1]), this.line.substring(index[i+2], index[i+3]));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the key/value index of the argument map for the current token position, parsing it if required.
+	 * Pairs are separated by ',' and key and value by the first ':', both only outside quotes.
+	 * Keys and values are trimmed, pairs with an empty key or value are ignored.
+	 * @return key/value index with start and end offsets of key and value (without surrounding quotes) for every pair
+	 */
+	protected int[] getPairs(){
+		if(this.pairs!=null && this.pairsPosition==this.tokenPosition){
+			return this.pairs;
+		}
+
+		int[] ret = new int[16];
+		int count = 0;
+		if(this.tokenPosition>=0 && this.tokenPosition<this.getTokenCount()){
+			int length = this.line.length();
+			int i = this.tokens[2 * this.tokenPosition];
+			while(i<length){
+				int start = i;
+				int colon = -1;
+				boolean quoted = false;
+				while(i<length){
+					char c = this.line.charAt(i);
+					if(c==QUOTE){
+						quoted = !quoted;
+					}
+					else if(!quoted && c==','){
+						break;
+					}
+					else if(!quoted && c==':' && colon==-1){
+						colon = i;
+					}
+					i++;
 				}
-				else{
-					//TODO error log?
+				if(colon!=-1){
+					int keyStart = this.trimStart(start, colon);
+					int keyEnd = this.trimEnd(keyStart, colon);
+					int valueStart = this.trimStart(colon + 1, i);
+					int valueEnd = this.trimEnd(valueStart, i);
+					if(this.isQuoted(valueStart, valueEnd)){
+						valueStart++;
+						valueEnd--;
+					}
+					if(keyStart<keyEnd && valueStart<valueEnd){
+						if(count+4>ret.length){
+							ret = Arrays.copyOf(ret, ret.length * 2);
+						}
+						ret[count++] = keyStart;
+						ret[count++] = keyEnd;
+						ret[count++] = valueStart;
+						ret[count++] = valueEnd;
+					}
+				}
+				i++;
+			}
+		}
+		this.pairs = Arrays.copyOf(ret, count);
+		this.pairsPosition = this.tokenPosition;
+		return this.pairs;
+	}
+
+	/**
+	 * Tests if a section of the line is completely quoted.
+	 * @param start start offset
+	 * @param end end offset
+	 * @return true if the section starts and ends with a quote, false otherwise
+	 */
+	protected boolean isQuoted(int start, int end){
+		return end-start>=2 && this.line.charAt(start)==QUOTE && this.line.charAt(end-1)==QUOTE;
+	}
+
+	/**
+	 * Returns the first offset in a section of the line that is not a white space (as defined by {@link StringUtils#trim(String)}).
+	 * @param start start offset
+	 * @param end end offset
+	 * @return first offset of a non white space, end if none found
+	 */
+	protected int trimStart(int start, int end){
+		while(start<end && this.line.charAt(start)<=' '){
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Returns the end offset of a section of the line without trailing white spaces (as defined by {@link StringUtils#trim(String)}).
+	 * @param start start offset
+	 * @param end end offset
+	 * @return end offset without trailing white spaces
+	 */
+	protected int trimEnd(int start, int end){
+		while(end>start && this.line.charAt(end-1)<=' '){
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns a map from key to argument, to be computed once for a set of arguments and used with {@link #getArgMap(Map)}.
+	 * @param arguments the arguments, for arguments with the same key the first one is used
+	 * @return map from argument key to argument, empty if arguments was null
+	 */
+	public static Map<String, SkbShellArgument> getArgumentKeys(SkbShellArgument[] arguments){
+		Map<String, SkbShellArgument> ret = new HashMap<>();
+		if(arguments!=null){
+			for(SkbShellArgument ssa : arguments){
+				if(ssa!=null){
+					ret.putIfAbsent(ssa.getKey(), ssa);
 				}
 			}
 		}
@@ -133,50 +331,66 @@ public class LineParser {
 	 * @return argument map with correct value types
 	 */
 	public Map<SkbShellArgument, Object> getArgMap(SkbShellArgument[] arguments){
+		if(arguments==null){
+			return new LinkedHashMap<SkbShellArgument, Object>();
+		}
+		return this.getArgMap(LineParser.getArgumentKeys(arguments));
+	}
+
+	/**
+	 * Returns an argument map fitting the given arguments (using defined types).
+	 * @param arguments map from argument key to argument, see {@link #getArgumentKeys(SkbShellArgument[])}
+	 * @return argument map with correct value types
+	 */
+	public Map<SkbShellArgument, Object> getArgMap(Map<String, SkbShellArgument> arguments){
 		Map<SkbShellArgument, Object> ret = new LinkedHashMap<SkbShellArgument, Object>();
-		if(arguments!=null){
-			for(Entry<String, String> entry : this.getArgMap().entrySet()){
-				for(SkbShellArgument ssa : arguments){
-					if(ssa.getKey().equals(entry.getKey())){
-						switch(ssa.getType()){
-							case Boolean:
-								ret.put(ssa, Boolean.valueOf(entry.getValue()));
-								break;
-							case Double:
-								ret.put(ssa, Double.valueOf(entry.getValue()));
-								break;
-							case Integer:
-								ret.put(ssa, Integer.valueOf(entry.getValue()));
-								break;
-							case String:
-								ret.put(ssa, entry.getValue());
-								break;
-							case ListString:
-								String[] ar = StringUtils.split(entry.getValue(), ';');
-								if(ar!=null){
-									List<String> val = new ArrayList<>();
-									for(String s : ar){
-										val.add(s);
-									}
-									ret.put(ssa, val);
-								}
-								break;
-							case ListInteger:
-								String[] arInt = StringUtils.split(entry.getValue(), ';');
-								if(arInt!=null){
-									List<Integer> valInt = new ArrayList<>();
-									for(String s : arInt){
-										valInt.add(Integer.valueOf(s));
-									}
-									ret.put(ssa, valInt);
-								}
-								break;
-							default:
-								System.err.println("parser.getArgMap --> argument type not yet supported: " + ssa.getType());//TODO do not use syserr prints
-								break;
+		if(arguments==null || arguments.size()==0){
+			return ret;
+		}
+
+		int[] index = this.getPairs();
+		for(int i=0; i<index.length; i+=4){
+			SkbShellArgument ssa = arguments.get(this.line.substring(index[i], index[i+1]));
+			if(ssa==null){
+				continue;
+			}
+			String value = this.line.substring(index[i+2], index[i+3]);
+			switch(ssa.getType()){
+				case Boolean:
+					ret.put(ssa, Boolean.valueOf(value));
+					break;
+				case Double:
+					ret.put(ssa, Double.valueOf(value));
+					break;
+				case Integer:
+					ret.put(ssa, Integer.valueOf(value));
+					break;
+				case String:
+					ret.put(ssa, value);
+					break;
+				case ListString:
+					String[] ar = StringUtils.split(value, ';');
+					if(ar!=null){
+						List<String> val = new ArrayList<>();
+						for(String s : ar){
+							val.add(s);
 						}
+						ret.put(ssa, val);
 					}
-				}
+					break;
+				case ListInteger:
+					String[] arInt = StringUtils.split(value, ';');
+					if(arInt!=null){
+						List<Integer> valInt = new ArrayList<>();
+						for(String s : arInt){
+							valInt.add(Integer.valueOf(s));
+						}
+						ret.put(ssa, valInt);
+					}
+					break;
+				default:
+					System.err.println("parser.getArgMap --> argument type not yet supported: " + ssa.getType());//TODO do not use syserr prints
+					break;
 			}
 		}
 		return ret;
@@ -0,0 +1,259 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import de.vandermeer.skb.base.info.FileSource;
+
+/**
+ * A cache of compiled shell scripts.
+ *
+ * A script is compiled once into its lines and a {@link CommandPlan}.
+ * Compiled scripts are kept by path, a cached script is used as long as the modification time and size of its file have not changed and the shell's commands are the same as when it was compiled.
+ * Scripts larger than the streaming size are not cached, they should be streamed line by line using {@link #open(FileSource)}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class ScriptCache {
+
+	/** Default maximum number of cached scripts. */
+	public static final int DEFAULT_MAX_SCRIPTS = 32;
+
+	/** Default size in bytes from which scripts are streamed instead of cached. */
+	public static final long DEFAULT_STREAM_SIZE = 1L << 20;
+
+	/** The cached scripts by path, in access order. */
+	protected final LinkedHashMap<String, Script> scripts;
+
+	/** Maximum number of cached scripts. */
+	protected final int maxScripts;
+
+	/** Size in bytes from which scripts are streamed. */
+	protected final long streamSize;
+
+	/**
+	 * Returns a new cache with default settings.
+	 */
+	public ScriptCache(){
+		this(DEFAULT_MAX_SCRIPTS, DEFAULT_STREAM_SIZE);
+	}
+
+	/**
+	 * Returns a new cache.
+	 * @param maxScripts maximum number of cached scripts, the least recently used script is removed first
+	 * @param streamSize size in bytes from which scripts are streamed instead of cached
+	 * @throws IllegalArgumentException if the maximum number of scripts was less than 1
+	 */
+	public ScriptCache(int maxScripts, long streamSize){
+		if(maxScripts<1){
+			throw new IllegalArgumentException("maximum number of scripts must be greater than 0");
+		}
+		this.maxScripts = maxScripts;
+		this.streamSize = streamSize;
+		this.scripts = new LinkedHashMap<String, Script>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Script> eldest){
+				return this.size()>ScriptCache.this.maxScripts;
+			}
+		};
+	}
+
+	/**
+	 * Returns the compiled script for a file source, compiling it if it is not cached or out of date.
+	 * @param source the file source of the script, must be valid
+	 * @param commands the shell's current mapping of commands to interpreters
+	 * @return compiled script, null if the script is larger than the streaming size and should be streamed
+	 * @throws IOException if the script could not be read
+	 */
+	public synchronized Script get(FileSource source, Map<String, CommandInterpreter> commands) throws IOException {
+		String path = getPath(source);
+		long[] stamp = getStamp(source);
+		Script script = this.scripts.get(path);
+
+		if(script!=null && script.modified==stamp[0] && script.size==stamp[1]){
+			if(script.commands.equals(commands)){
+				return script;
+			}
+			// file unchanged, only compile the plan again
+			script = new Script(path, stamp[0], stamp[1], script.lines, commands);
+		}
+		else{
+			if(stamp[1]>=this.streamSize){
+				this.scripts.remove(path);
+				return null;
+			}
+			List<String> lines = new ArrayList<>();
+			try(BufferedReader reader = open(source)){
+				String line;
+				while((line = reader.readLine())!=null){
+					lines.add(line);
+				}
+			}
+			script = new Script(path, stamp[0], stamp[1], lines.toArray(new String[lines.size()]), commands);
+		}
+		this.scripts.put(path, script);
+		return script;
+	}
+
+	/**
+	 * Returns the number of cached scripts.
+	 * @return number of cached scripts
+	 */
+	public synchronized int size(){
+		return this.scripts.size();
+	}
+
+	/**
+	 * Removes all cached scripts.
+	 */
+	public synchronized void clear(){
+		this.scripts.clear();
+	}
+
+	/**
+	 * Opens a reader on a script file.
+	 * @param source the file source of the script, must be valid
+	 * @return new reader
+	 * @throws IOException if the file could not be opened
+	 */
+	public static BufferedReader open(FileSource source) throws IOException {
+		return new BufferedReader(new InputStreamReader(source.asURL().openStream()));
+	}
+
+	/**
+	 * Returns the path used as key for a file source.
+	 * @param source the file source
+	 * @return absolute path for files in the file system, the URL otherwise
+	 */
+	protected static String getPath(FileSource source){
+		if(source.asFile()!=null){
+			return source.asFile().getAbsolutePath();
+		}
+		return source.asURL().toString();
+	}
+
+	/**
+	 * Returns modification time and size of a file source.
+	 * @param source the file source
+	 * @return array with modification time and size, a size of -1 if unknown
+	 * @throws IOException if the information could not be read
+	 */
+	protected static long[] getStamp(FileSource source) throws IOException {
+		File file = source.asFile();
+		if(file!=null){
+			return new long[]{file.lastModified(), file.length()};
+		}
+		URLConnection connection = source.asURL().openConnection();
+		return new long[]{connection.getLastModified(), connection.getContentLengthLong()};
+	}
+
+	/**
+	 * A compiled script.
+	 */
+	public static class Script {
+
+		/** The path of the script. */
+		protected final String path;
+
+		/** Modification time of the script file when compiled. */
+		protected final long modified;
+
+		/** Size of the script file when compiled. */
+		protected final long size;
+
+		/** The lines of the script. */
+		protected final String[] lines;
+
+		/** The command plan of the script. */
+		protected final CommandPlan plan;
+
+		/** The shell's commands the plan was compiled with. */
+		protected final Map<String, CommandInterpreter> commands;
+
+		/**
+		 * Returns a new compiled script.
+		 * @param path the path of the script
+		 * @param modified modification time of the script file
+		 * @param size size of the script file
+		 * @param lines the lines of the script
+		 * @param commands the shell's mapping of commands to interpreters
+		 */
+		protected Script(String path, long modified, long size, String[] lines, Map<String, CommandInterpreter> commands){
+			this.path = path;
+			this.modified = modified;
+			this.size = size;
+			this.lines = lines;
+			this.commands = new HashMap<>(commands);
+			this.plan = CommandPlan.compile(lines, this.commands);
+		}
+
+		/**
+		 * Returns the number of lines of the script.
+		 * @return number of lines
+		 */
+		public int size(){
+			return this.lines.length;
+		}
+
+		/**
+		 * Returns a line of the script.
+		 * @param index the line index
+		 * @return the line
+		 */
+		public String getLine(int index){
+			return this.lines[index];
+		}
+
+		/**
+		 * Returns the command plan of the script.
+		 * @return command plan
+		 */
+		public CommandPlan getPlan(){
+			return this.plan;
+		}
+
+		/**
+		 * Returns the script information, taken from the first line starting with {@code //**}.
+		 * @return script information, null if none found
+		 */
+		public String getInfo(){
+			for(String s : this.lines){
+				if(s.startsWith("//**")){
+					return StringUtils.substringAfter(s, "//**");
+				}
+			}
+			return null;
+		}
+	}
+
+}
@@ -153,19 +153,29 @@ public interface SkbShell extends HasPrompt {
 			return 0;
 		}
 
+		LineParser lp = new LineParser(in);
+		return this.parseLine(lp, this.getCommandMap().get(lp.getToken()));
+	}
+
+	/**
+	 * Interprets an already parsed command line with an already resolved interpreter, for instance from a compiled script.
+	 * @param lp line parser for the command line, positioned at the first argument
+	 * @param interpreter the interpreter for the command, null if none was found
+	 * @return
+	 * 			-2 if a command was found and interpreted but leads to an exit command for the shell,
+	 * 			-1 if a command not part of this interpreter,
+	 * 			0 if a command was found and interpretation was successful and did not lead to an exit command (exit shell),
+	 * 			greater than 0 otherwise (a command found, interpreted, but some errors occurred)
+	 */
+	default int parseLine(LineParser lp, CommandInterpreter interpreter){
 		this.getMessageManager().clear();
 
-		int ret = 0;
-		LineParser lp = new LineParser(in);
 		String command = lp.getToken();
-		if(this.getCommandMap().containsKey(command)){
-			ret = this.getCommandMap().get(command).interpretCommand(command, lp, this.getMessageManager());
-		}
-		else{
-			this.getMessageManager().report(MessageMgr.createErrorMessage("comand <{}> not found in shell, taken from line: <{}>", command, in));
-			ret = -1;
+		if(interpreter==null){
+			this.getMessageManager().report(MessageMgr.createErrorMessage("comand <{}> not found in shell, taken from line: <{}>", command, lp.getLine()));
+			return -1;
 		}
-		return ret;
+		return interpreter.interpretCommand(command, lp, this.getMessageManager());
 	}
 
 	/**
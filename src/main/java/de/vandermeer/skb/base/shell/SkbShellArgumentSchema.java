@@ -0,0 +1,486 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A compiled argument schema of a {@link SkbShellCommand}, parsing the argument map of a line into a typed {@link SkbShellArguments} record.
+ * 
+ * The schema is built once from the arguments of a command, see {@link SkbShellCommand#getArgumentSchema()}.
+ * It holds a hash table from argument key to slot in the record and the value set of every argument converted to its type.
+ * Parsing reads keys and values directly from the line (see {@link LineParser}), numbers and booleans are parsed into primitive slots without boxing.
+ * List values are separated by ';', empty elements are ignored.
+ * Boolean values must be {@code true} or {@code false} (ignoring case), a character value must be a single character.
+ * 
+ * Values that cannot be parsed, values not in the value set of their argument, and missing arguments that are not optional are reported as errors of the record.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class SkbShellArgumentSchema {
+
+	/** Result of {@link #parseInt(String, int, int)} for a string that is not an integer. */
+	protected static final long NO_INT = Long.MIN_VALUE;
+
+	/** The arguments of the schema, indexed by slot. */
+	protected final SkbShellArgument[] arguments;
+
+	/** Hash table from key hash to slot plus one, 0 for an empty entry. */
+	protected final int[] table;
+
+	/** Value sets converted to the argument type, indexed by slot: int[] (sorted) for integers and characters, double[] (sorted) for doubles, boolean[] (false, true) for booleans, Set of strings for strings, null for no value set. */
+	protected final Object[] valueSets;
+
+	/**
+	 * Returns a new schema, use {@link #compile(SkbShellArgument[])}.
+	 * @param arguments arguments without null elements and with unique keys
+	 */
+	protected SkbShellArgumentSchema(SkbShellArgument[] arguments){
+		this.arguments = arguments;
+
+		int size = 2;
+		while(size<2*arguments.length){
+			size <<= 1;
+		}
+		this.table = new int[size];
+		for(int slot=0; slot<arguments.length; slot++){
+			String key = arguments[slot].getKey();
+			int i = SkbShellArgumentSchema.hash(key, 0, key.length()) & (size - 1);
+			while(this.table[i]!=0){
+				i = (i + 1) & (size - 1);
+			}
+			this.table[i] = slot + 1;
+		}
+
+		this.valueSets = new Object[arguments.length];
+		for(int slot=0; slot<arguments.length; slot++){
+			this.valueSets[slot] = SkbShellArgumentSchema.convertValueSet(arguments[slot]);
+		}
+	}
+
+	/**
+	 * Compiles a schema for arguments.
+	 * @param arguments the arguments, can be null, null elements are ignored, for arguments with the same key the first one is used
+	 * @return new schema
+	 */
+	public static SkbShellArgumentSchema compile(SkbShellArgument[] arguments){
+		if(arguments==null){
+			return new SkbShellArgumentSchema(new SkbShellArgument[0]);
+		}
+		Set<String> keys = new HashSet<>();
+		SkbShellArgument[] args = new SkbShellArgument[arguments.length];
+		int count = 0;
+		for(SkbShellArgument ssa : arguments){
+			if(ssa!=null && keys.add(ssa.getKey())){
+				args[count++] = ssa;
+			}
+		}
+		return new SkbShellArgumentSchema(Arrays.copyOf(args, count));
+	}
+
+	/**
+	 * Converts the value set of an argument to the type of the argument.
+	 * @param ssa the argument
+	 * @return converted value set, null if the argument has none
+	 */
+	protected static Object convertValueSet(SkbShellArgument ssa){
+		Object[] valueSet = ssa.valueSet();
+		if(valueSet==null){
+			return null;
+		}
+
+		switch(ssa.getType()){
+			case Integer:
+			case ListInteger:
+			case Char:
+				int[] ints = new int[valueSet.length];
+				int countInts = 0;
+				for(Object o : valueSet){
+					if(o instanceof Number){
+						ints[countInts++] = ((Number)o).intValue();
+					}
+					else if(o instanceof Character){
+						ints[countInts++] = (Character)o;
+					}
+					else if(o!=null){
+						String s = o.toString();
+						long v = (ssa.getType()==SkbShellArgumentType.Char)?((s.length()==1)?s.charAt(0):NO_INT):parseInt(s, 0, s.length());
+						if(v!=NO_INT){
+							ints[countInts++] = (int)v;
+						}
+					}
+				}
+				ints = Arrays.copyOf(ints, countInts);
+				Arrays.sort(ints);
+				return ints;
+			case Double:
+				double[] doubles = new double[valueSet.length];
+				int countDoubles = 0;
+				for(Object o : valueSet){
+					if(o instanceof Number){
+						doubles[countDoubles++] = ((Number)o).doubleValue();
+					}
+					else if(o!=null){
+						try{
+							doubles[countDoubles] = Double.parseDouble(o.toString());
+							countDoubles++;
+						}
+						catch(NumberFormatException ignore){}
+					}
+				}
+				doubles = Arrays.copyOf(doubles, countDoubles);
+				Arrays.sort(doubles);
+				return doubles;
+			case Boolean:
+				boolean[] booleans = new boolean[2];
+				for(Object o : valueSet){
+					if(o!=null){
+						booleans[Boolean.parseBoolean(o.toString())?1:0] = true;
+					}
+				}
+				return booleans;
+			default:
+				Set<String> strings = new HashSet<>();
+				for(Object o : valueSet){
+					if(o!=null){
+						strings.add(o.toString());
+					}
+				}
+				return strings;
+		}
+	}
+
+	/**
+	 * Returns the hash of a section of a character sequence: {@link String#hashCode()} of the section with its high bits spread into the low bits (as {@link java.util.HashMap} does), since the table index uses only the low bits.
+	 * @param cs the character sequence
+	 * @param start start offset
+	 * @param end end offset
+	 * @return hash
+	 */
+	protected static int hash(CharSequence cs, int start, int end){
+		int h = 0;
+		for(int i=start; i<end; i++){
+			h = 31 * h + cs.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the slot of the argument with a key given as section of a string.
+	 * @param s the string
+	 * @param start start offset of the key
+	 * @param end end offset of the key
+	 * @return slot, -1 if the schema has no argument with the key
+	 */
+	protected int slot(String s, int start, int end){
+		int mask = this.table.length - 1;
+		int i = SkbShellArgumentSchema.hash(s, start, end) & mask;
+		while(this.table[i]!=0){
+			String key = this.arguments[this.table[i] - 1].getKey();
+			if(key.length()==end-start && key.regionMatches(0, s, start, end-start)){
+				return this.table[i] - 1;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of an argument key.
+	 * @param key the key
+	 * @return slot, -1 if the schema has no argument with the key
+	 */
+	public int slot(String key){
+		return (key==null)?-1:this.slot(key, 0, key.length());
+	}
+
+	/**
+	 * Returns the arguments of the schema.
+	 * @return arguments indexed by slot
+	 */
+	public SkbShellArgument[] getArguments(){
+		return this.arguments.clone();
+	}
+
+	/**
+	 * Returns the number of arguments (slots) of the schema.
+	 * @return number of arguments
+	 */
+	public int size(){
+		return this.arguments.length;
+	}
+
+	/**
+	 * Parses the argument map of a line, using the line's token position, into a new record.
+	 * @param lp the line parser
+	 * @return new record with all parsed arguments and errors
+	 */
+	public SkbShellArguments parse(LineParser lp){
+		return this.parse(lp, new SkbShellArguments(this));
+	}
+
+	/**
+	 * Parses the argument map of a line, using the line's token position, into an existing record.
+	 * The record is reset before parsing, so it can be reused for every line (for instance in a script loop).
+	 * @param lp the line parser
+	 * @param ret record of this schema to parse into
+	 * @return the record with all parsed arguments and errors
+	 * @throws IllegalArgumentException if the record was created for another schema
+	 */
+	public SkbShellArguments parse(LineParser lp, SkbShellArguments ret){
+		if(ret.schema!=this){
+			throw new IllegalArgumentException("record was created for another schema");
+		}
+		ret.reset();
+
+		String line = lp.getLine();
+		int[] pairs = lp.getPairs();
+		for(int i=0; i<pairs.length; i+=4){
+			int slot = this.slot(line, pairs[i], pairs[i+1]);
+			if(slot!=-1){
+				this.parseValue(slot, line, pairs[i+2], pairs[i+3], ret);
+			}
+		}
+
+		for(int slot=0; slot<this.arguments.length; slot++){
+			if(!ret.present[slot] && !ret.invalid[slot] && !this.arguments[slot].isOptional()){
+				ret.getErrors().addError("missing argument <{}>", this.arguments[slot].getKey());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Parses the value of an argument into its slot of a record.
+	 * @param slot the slot of the argument
+	 * @param line the line
+	 * @param start start offset of the value
+	 * @param end end offset of the value
+	 * @param ret the record
+	 */
+	protected void parseValue(int slot, String line, int start, int end, SkbShellArguments ret){
+		SkbShellArgument ssa = this.arguments[slot];
+		Object valueSet = this.valueSets[slot];
+		ret.present[slot] = false;
+		ret.invalid[slot] = false;
+		switch(ssa.getType()){
+			case Integer:
+				long parsed = parseInt(line, start, end);
+				if(parsed==NO_INT){
+					this.invalid(slot, "an integer", line, start, end, ret);
+					return;
+				}
+				int i = (int)parsed;
+				if(valueSet!=null && Arrays.binarySearch((int[])valueSet, i)<0){
+					this.invalid(slot, null, line, start, end, ret);
+					return;
+				}
+				ret.ints[slot] = i;
+				break;
+			case Char:
+				if(end-start!=1){
+					this.invalid(slot, "a single character", line, start, end, ret);
+					return;
+				}
+				if(valueSet!=null && Arrays.binarySearch((int[])valueSet, line.charAt(start))<0){
+					this.invalid(slot, null, line, start, end, ret);
+					return;
+				}
+				ret.ints[slot] = line.charAt(start);
+				break;
+			case Double:
+				double d;
+				try{
+					d = Double.parseDouble(line.substring(start, end));
+				}
+				catch(NumberFormatException ex){
+					this.invalid(slot, "a double", line, start, end, ret);
+					return;
+				}
+				if(valueSet!=null && Arrays.binarySearch((double[])valueSet, d)<0){
+					this.invalid(slot, null, line, start, end, ret);
+					return;
+				}
+				ret.doubles[slot] = d;
+				break;
+			case Boolean:
+				boolean b;
+				if(end-start==4 && line.regionMatches(true, start, "true", 0, 4)){
+					b = true;
+				}
+				else if(end-start==5 && line.regionMatches(true, start, "false", 0, 5)){
+					b = false;
+				}
+				else{
+					this.invalid(slot, "a boolean", line, start, end, ret);
+					return;
+				}
+				if(valueSet!=null && !((boolean[])valueSet)[b?1:0]){
+					this.invalid(slot, null, line, start, end, ret);
+					return;
+				}
+				ret.booleans[slot] = b;
+				break;
+			case ListInteger:
+				int[] list = new int[count(line, start, end)];
+				int n = 0;
+				for(int e=start; e<end; e++){
+					int s = e;
+					e = SkbShellArgumentSchema.elementEnd(line, s, end);
+					if(e==s){
+						continue;
+					}
+					long element = parseInt(line, s, e);
+					if(element==NO_INT){
+						this.invalid(slot, "a list of integers", line, start, end, ret);
+						return;
+					}
+					list[n] = (int)element;
+					if(valueSet!=null && Arrays.binarySearch((int[])valueSet, list[n])<0){
+						this.invalid(slot, null, line, start, end, ret);
+						return;
+					}
+					n++;
+				}
+				ret.objects[slot] = list;
+				break;
+			case ListString:
+				String[] strings = new String[count(line, start, end)];
+				int m = 0;
+				for(int e=start; e<end; e++){
+					int s = e;
+					e = SkbShellArgumentSchema.elementEnd(line, s, end);
+					if(e==s){
+						continue;
+					}
+					strings[m] = line.substring(s, e);
+					if(valueSet!=null && !((Set<?>)valueSet).contains(strings[m])){
+						this.invalid(slot, null, line, start, end, ret);
+						return;
+					}
+					m++;
+				}
+				ret.objects[slot] = strings;
+				break;
+			default:
+				String value = line.substring(start, end);
+				if(valueSet!=null && !((Set<?>)valueSet).contains(value)){
+					this.invalid(slot, null, line, start, end, ret);
+					return;
+				}
+				ret.objects[slot] = value;
+				break;
+		}
+		ret.present[slot] = true;
+	}
+
+	/**
+	 * Marks the slot of a record as invalid and adds an error.
+	 * @param slot the slot
+	 * @param expected the expected kind of value, null if the value is not in the value set
+	 * @param line the line
+	 * @param start start offset of the value
+	 * @param end end offset of the value
+	 * @param ret the record
+	 */
+	protected void invalid(int slot, String expected, String line, int start, int end, SkbShellArguments ret){
+		ret.invalid[slot] = true;
+		if(expected==null){
+			ret.getErrors().addError("argument <{}>: value <{}> not in value set", this.arguments[slot].getKey(), line.substring(start, end));
+		}
+		else{
+			ret.getErrors().addError("argument <{}>: value <{}> is not {}", this.arguments[slot].getKey(), line.substring(start, end), expected);
+		}
+	}
+
+	/**
+	 * Returns the end of a list element.
+	 * @param s the string
+	 * @param start start offset of the element
+	 * @param end end offset of the list
+	 * @return end offset of the element, that is the offset of the next ';' or the end of the list
+	 */
+	protected static int elementEnd(String s, int start, int end){
+		int ret = start;
+		while(ret<end && s.charAt(ret)!=';'){
+			ret++;
+		}
+		return ret;
+	}
+
+	/**
+	 * Counts the non-empty elements of a list.
+	 * @param s the string
+	 * @param start start offset of the list
+	 * @param end end offset of the list
+	 * @return number of non-empty elements
+	 */
+	protected static int count(String s, int start, int end){
+		int ret = 0;
+		for(int e=start; e<end; e++){
+			int el = e;
+			e = SkbShellArgumentSchema.elementEnd(s, el, end);
+			if(e>el){
+				ret++;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Parses a decimal integer from a section of a string without creating objects.
+	 * @param s the string
+	 * @param start start offset
+	 * @param end end offset
+	 * @return the integer, {@link #NO_INT} if the section is not an integer in the range of int
+	 */
+	protected static long parseInt(String s, int start, int end){
+		if(start>=end){
+			return NO_INT;
+		}
+		boolean negative = false;
+		int i = start;
+		char first = s.charAt(i);
+		if(first=='-' || first=='+'){
+			negative = (first=='-');
+			i++;
+			if(i==end){
+				return NO_INT;
+			}
+		}
+		long ret = 0;
+		for(; i<end; i++){
+			int digit = Character.digit(s.charAt(i), 10);
+			if(digit<0){
+				return NO_INT;
+			}
+			ret = ret * 10 + digit;
+			if(ret>(long)Integer.MAX_VALUE + 1){
+				return NO_INT;
+			}
+		}
+		ret = negative?-ret:ret;
+		if(ret>Integer.MAX_VALUE || ret<Integer.MIN_VALUE){
+			return NO_INT;
+		}
+		return ret;
+	}
+
+}
@@ -0,0 +1,216 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import java.util.Arrays;
+
+import de.vandermeer.skb.interfaces.messagesets.IsErrorSetFT;
+
+/**
+ * A flat, typed record of the arguments of a line, parsed by a {@link SkbShellArgumentSchema}.
+ * 
+ * Every argument of the schema has a slot, integer, character, double, and boolean values are kept in primitive slots, lists as {@code int[]} or {@code String[]}.
+ * A record can be reused for many lines, see {@link SkbShellArgumentSchema#parse(LineParser, SkbShellArguments)}; arrays and strings returned before are not changed by reuse.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class SkbShellArguments {
+
+	/** The schema of the record. */
+	protected final SkbShellArgumentSchema schema;
+
+	/** Flags for arguments with a valid value, indexed by slot. */
+	protected final boolean[] present;
+
+	/** Flags for arguments with an invalid value, indexed by slot. */
+	protected final boolean[] invalid;
+
+	/** Values of integer and character arguments, indexed by slot. */
+	protected final int[] ints;
+
+	/** Values of double arguments, indexed by slot. */
+	protected final double[] doubles;
+
+	/** Values of boolean arguments, indexed by slot. */
+	protected final boolean[] booleans;
+
+	/** Values of string and list arguments, indexed by slot. */
+	protected final Object[] objects;
+
+	/** Errors of the last parse, null if none occurred. */
+	protected IsErrorSetFT errors;
+
+	/**
+	 * Returns a new, empty record for a schema.
+	 * @param schema the schema
+	 */
+	public SkbShellArguments(SkbShellArgumentSchema schema){
+		this.schema = schema;
+		int size = schema.size();
+		this.present = new boolean[size];
+		this.invalid = new boolean[size];
+		this.ints = new int[size];
+		this.doubles = new double[size];
+		this.booleans = new boolean[size];
+		this.objects = new Object[size];
+	}
+
+	/**
+	 * Resets the record for parsing a new line.
+	 */
+	protected void reset(){
+		Arrays.fill(this.present, false);
+		Arrays.fill(this.invalid, false);
+		Arrays.fill(this.objects, null);
+		this.errors = null;
+	}
+
+	/**
+	 * Returns the schema of the record.
+	 * @return schema
+	 */
+	public SkbShellArgumentSchema getSchema(){
+		return this.schema;
+	}
+
+	/**
+	 * Returns the errors of the last parse: values that could not be parsed, values not in the value set, and missing arguments that are not optional.
+	 * @return errors, empty if none occurred
+	 */
+	public IsErrorSetFT getErrors(){
+		if(this.errors==null){
+			this.errors = IsErrorSetFT.create();
+		}
+		return this.errors;
+	}
+
+	/**
+	 * Tests if the last parse resulted in errors.
+	 * @return true if errors occurred, false otherwise
+	 */
+	public boolean hasErrors(){
+		return this.errors!=null && this.errors.hasErrors();
+	}
+
+	/**
+	 * Tests if an argument has a valid value.
+	 * @param argument the argument
+	 * @return true if the argument is in the schema and the line had a valid value for it, false otherwise
+	 */
+	public boolean has(SkbShellArgument argument){
+		int slot = (argument==null)?-1:this.schema.slot(argument.getKey());
+		return slot!=-1 && this.present[slot];
+	}
+
+	/**
+	 * Returns the slot of an argument, testing its type.
+	 * @param argument the argument
+	 * @param type the expected type
+	 * @return slot of the argument
+	 * @throws IllegalArgumentException if the argument is not in the schema or has another type
+	 */
+	protected int slot(SkbShellArgument argument, SkbShellArgumentType type){
+		int slot = (argument==null)?-1:this.schema.slot(argument.getKey());
+		if(slot==-1){
+			throw new IllegalArgumentException("argument <" + argument + "> is not in the schema");
+		}
+		if(this.schema.arguments[slot].getType()!=type){
+			throw new IllegalArgumentException("argument <" + argument + "> is not of type " + type);
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the value of an integer argument.
+	 * @param argument the argument
+	 * @param defaultValue value returned if the argument has no valid value
+	 * @return value of the argument
+	 * @throws IllegalArgumentException if the argument is not an integer argument of the schema
+	 */
+	public int getInt(SkbShellArgument argument, int defaultValue){
+		int slot = this.slot(argument, SkbShellArgumentType.Integer);
+		return (this.present[slot])?this.ints[slot]:defaultValue;
+	}
+
+	/**
+	 * Returns the value of a character argument.
+	 * @param argument the argument
+	 * @param defaultValue value returned if the argument has no valid value
+	 * @return value of the argument
+	 * @throws IllegalArgumentException if the argument is not a character argument of the schema
+	 */
+	public char getChar(SkbShellArgument argument, char defaultValue){
+		int slot = this.slot(argument, SkbShellArgumentType.Char);
+		return (this.present[slot])?(char)this.ints[slot]:defaultValue;
+	}
+
+	/**
+	 * Returns the value of a double argument.
+	 * @param argument the argument
+	 * @param defaultValue value returned if the argument has no valid value
+	 * @return value of the argument
+	 * @throws IllegalArgumentException if the argument is not a double argument of the schema
+	 */
+	public double getDouble(SkbShellArgument argument, double defaultValue){
+		int slot = this.slot(argument, SkbShellArgumentType.Double);
+		return (this.present[slot])?this.doubles[slot]:defaultValue;
+	}
+
+	/**
+	 * Returns the value of a boolean argument.
+	 * @param argument the argument
+	 * @param defaultValue value returned if the argument has no valid value
+	 * @return value of the argument
+	 * @throws IllegalArgumentException if the argument is not a boolean argument of the schema
+	 */
+	public boolean getBoolean(SkbShellArgument argument, boolean defaultValue){
+		int slot = this.slot(argument, SkbShellArgumentType.Boolean);
+		return (this.present[slot])?this.booleans[slot]:defaultValue;
+	}
+
+	/**
+	 * Returns the value of a string argument.
+	 * @param argument the argument
+	 * @return value of the argument, null if it has no valid value
+	 * @throws IllegalArgumentException if the argument is not a string argument of the schema
+	 */
+	public String getString(SkbShellArgument argument){
+		return (String)this.objects[this.slot(argument, SkbShellArgumentType.String)];
+	}
+
+	/**
+	 * Returns the value of a list of integers argument.
+	 * @param argument the argument
+	 * @return value of the argument, null if it has no valid value
+	 * @throws IllegalArgumentException if the argument is not a list of integers argument of the schema
+	 */
+	public int[] getIntList(SkbShellArgument argument){
+		return (int[])this.objects[this.slot(argument, SkbShellArgumentType.ListInteger)];
+	}
+
+	/**
+	 * Returns the value of a list of strings argument.
+	 * @param argument the argument
+	 * @return value of the argument, null if it has no valid value
+	 * @throws IllegalArgumentException if the argument is not a list of strings argument of the schema
+	 */
+	public String[] getStringList(SkbShellArgument argument){
+		return (String[])this.objects[this.slot(argument, SkbShellArgumentType.ListString)];
+	}
+
+}
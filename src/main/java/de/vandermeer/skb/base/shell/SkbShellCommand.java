@@ -44,6 +44,15 @@ public interface SkbShellCommand extends HasDescription {
 	 */
 	SkbShellArgument[] getArguments();
 
+	/**
+	 * Returns the compiled schema of the arguments of this command, to parse arguments into a typed record.
+	 * The default implementation compiles a new schema on every call, implementations should compile the schema once.
+	 * @return argument schema
+	 */
+	default SkbShellArgumentSchema getArgumentSchema(){
+		return SkbShellArgumentSchema.compile(this.getArguments());
+	}
+
 	/**
 	 * Returns additional text for an auto-generated help for the argument.
 	 * @return additional help text, null if none set
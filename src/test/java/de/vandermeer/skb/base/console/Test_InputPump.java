@@ -0,0 +1,122 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link InputPump}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class Test_InputPump {
+
+	@Test
+	public void testReader(){
+		InputPump pump = new InputPump(new BufferedReader(new StringReader("one\n\ntwo\n")), "test");
+		InputPump.PumpReader reader = pump.getReader(0, null);
+		assertEquals("one", reader.readLine());
+		assertEquals("two", reader.readLine());
+		assertFalse(reader.isEndOfInput());
+		assertNull(reader.readLine());
+		assertTrue(reader.isEndOfInput());
+		assertNull(reader.readLine());
+	}
+
+	@Test
+	public void testReaderIsolated() throws Exception {
+		PipedWriter writer = new PipedWriter();
+		InputPump pump = new InputPump(new BufferedReader(new PipedReader(writer)), "test");
+		InputPump.PumpReader reader = pump.getReader(5000, null);
+
+		// methods other than readLine() must not take characters from the pump's reader
+		assertEquals(-1, reader.read());
+		assertEquals(0, reader.skip(10));
+		writer.write("line\n");
+		writer.flush();
+		assertEquals("line", reader.readLine());
+
+		pump.close();
+		writer.close();
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		PipedWriter writer = new PipedWriter();
+		InputPump pump = new InputPump(new BufferedReader(new PipedReader(writer)), "test");
+
+		assertNull(pump.poll(10, TimeUnit.MILLISECONDS));
+		assertNull(pump.getReader(10, null).readLine());
+		assertFalse(pump.isEndOfInput());
+
+		writer.write("line\n");
+		writer.flush();
+		assertEquals("line", pump.poll(5, TimeUnit.SECONDS));
+
+		writer.close();
+		assertNull(pump.take());
+		assertTrue(pump.isEndOfInput());
+	}
+
+	@Test
+	public void testInterrupt() throws Exception {
+		PipedWriter writer = new PipedWriter();
+		InputPump pump = new InputPump(new BufferedReader(new PipedReader(writer)), "test");
+		InputPump.PumpReader reader = pump.getReader(0, null);
+
+		Thread.currentThread().interrupt();
+		assertNull(reader.readLine());
+		assertTrue(Thread.interrupted());
+		assertFalse(reader.isEndOfInput());
+
+		pump.close();
+		writer.close();
+	}
+
+	@Test
+	public void testShared() throws Exception {
+		PipedWriter writer = new PipedWriter();
+		BufferedReader in = new BufferedReader(new PipedReader(writer));
+		InputPump pump = InputPump.get(in, "test");
+		assertTrue(pump==InputPump.get(in, "test"));
+
+		BufferedReader first = NonBlockingReader.getNbReader(in, 1, 5000, null);
+		BufferedReader second = NonBlockingReader.getNbReader(in, 1, 5000, null);
+		writer.write("one\ntwo\n");
+		writer.flush();
+		assertEquals("one", first.readLine());
+		assertEquals("two", second.readLine());
+
+		pump.close();
+		assertFalse(pump==InputPump.get(in, "test"));
+		InputPump.get(in, "test").close();
+		writer.close();
+	}
+
+}
@@ -0,0 +1,149 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
+/**
+ * Tests for {@link JournalSink} and {@link JournalReader}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ */
+public class Test_JournalSink {
+
+	@Test
+	public void test_WriteAndReplay() throws IOException{
+		MessageConsole.PRINT_MESSAGES = false;
+		File dir = Files.createTempDirectory("skb-journal").toFile();
+
+		List<Message5WH> messages = new ArrayList<>();
+		for(int i=0; i<100; i++){
+			messages.add(new Message5WH_Builder()
+					.setType(E_MessageType.values()[i % 3])
+					.setReporter("reporter " + i)
+					.setWho(new String[]{"x", "y"})
+					.setWhen("noon")
+					.setWhere(Arrays.asList("a", null, "b"), i, 3)
+					.addWhat("what ", i, " \u00e4\u20ac")
+					.addWhy("why")
+					.build()
+			);
+		}
+
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.WARNING)
+				.setHandler(E_MessageType.INFO)
+				.addSink(new JournalSink(dir, "test", 1024, 0, E_FlushPolicy.BUFFER))
+				.build();
+		mm.report(messages);
+		mm.close();
+
+		JournalReader reader = new JournalReader(dir, "test");
+		assertTrue(reader.getSegments().size()>1);
+
+		MessageRenderer renderer = new MessageRenderer();
+		List<Message5WH> replayed = new ArrayList<>();
+		assertEquals(100, reader.replay(replayed::add));
+		for(int i=0; i<100; i++){
+			assertEquals(renderer.render(messages.get(i)), renderer.render(replayed.get(i)));
+		}
+
+		StringBuilder sb = new StringBuilder();
+		reader.replay(renderer, sb);
+		assertEquals(renderer.render(messages), sb.toString());
+
+		MessageMgr replay = new MessageMgrBuilder("@replay").setHandler(E_MessageType.ERROR).setHandler(E_MessageType.WARNING).setHandler(E_MessageType.INFO).build();
+		reader.replay(replay);
+		assertEquals(100, replay.getMessageCount(E_MessageType.ERROR) + replay.getMessageCount(E_MessageType.WARNING) + replay.getMessageCount(E_MessageType.INFO));
+		MessageConsole.PRINT_MESSAGES = true;
+	}
+
+	@Test
+	public void test_TornRecord() throws IOException{
+		File dir = Files.createTempDirectory("skb-journal").toFile();
+		JournalSink sink = new JournalSink(dir, "test", 4096, 2, E_FlushPolicy.ALWAYS);
+		sink.write(new ReportedMessage(E_MessageType.ERROR, "first"));
+		sink.write(new ReportedMessage(E_MessageType.ERROR, "second"));
+		sink.close();
+
+		File segment = new JournalReader(dir, "test").getSegments().get(0);
+		try(RandomAccessFile raf = new RandomAccessFile(segment, "rw")){
+			int first = JournalSink.HEADER_SIZE + JournalSink.RECORD_HEADER_SIZE + 11;
+			raf.seek(first + JournalSink.RECORD_HEADER_SIZE + 2);
+			raf.write(0x7f);
+		}
+
+		List<Message5WH> replayed = new ArrayList<>();
+		assertEquals(1, new JournalReader(dir, "test").replay(replayed::add));
+		assertEquals("first", replayed.get(0).getWhat().toString());
+
+		sink = new JournalSink(dir, "test", 4096, 2, E_FlushPolicy.ALWAYS);
+		sink.write(new ReportedMessage(E_MessageType.ERROR, "third"));
+		sink.close();
+		replayed.clear();
+		assertEquals(2, new JournalReader(dir, "test").replay(replayed::add));
+		assertEquals("third", replayed.get(1).getWhat().toString());
+		assertFalse(new File(dir, "test.000001.journal").exists());
+	}
+
+	@Test
+	public void test_LargeRecord() throws IOException{
+		MessageConsole.PRINT_MESSAGES = false;
+		try{
+			File dir = Files.createTempDirectory("skb-journal").toFile();
+			StringBuilder large = new StringBuilder();
+			for(int i=0; i<300; i++){
+				large.append('x');
+			}
+
+			JournalSink sink = new JournalSink(dir, "test", 256, 1, E_FlushPolicy.ALWAYS);
+			sink.write(new ReportedMessage(E_MessageType.ERROR, large.toString()));
+			sink.write(new ReportedMessage(E_MessageType.ERROR, "first"));
+			sink.write(new ReportedMessage(E_MessageType.ERROR, large.toString()));
+			sink.close();
+
+			// a record too large for a segment neither rolls over nor deletes the retained segment
+			JournalReader reader = new JournalReader(dir, "test");
+			assertEquals(1, reader.getSegments().size());
+			List<Message5WH> replayed = new ArrayList<>();
+			assertEquals(1, reader.replay(replayed::add));
+			assertEquals("first", replayed.get(0).getWhat().toString());
+		}
+		finally{
+			MessageConsole.PRINT_MESSAGES = true;
+		}
+	}
+
+}
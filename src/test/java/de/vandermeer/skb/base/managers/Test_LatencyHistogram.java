@@ -0,0 +1,65 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class Test_LatencyHistogram {
+
+	@Test
+	public void test_Buckets(){
+		for(long nanos : new long[]{0, 1, 3, 4, 7, 8, 100, 1000, 123456, 1L<<39}){
+			int index = LatencyHistogram.index(nanos);
+			assertTrue(nanos<=LatencyHistogram.upperBound(index));
+			if(index>0){
+				assertTrue(nanos>LatencyHistogram.upperBound(index - 1));
+			}
+		}
+		assertEquals(LatencyHistogram.index(Long.MAX_VALUE), LatencyHistogram.index(1L<<50));
+		assertEquals(0, LatencyHistogram.index(-5));
+	}
+
+	@Test
+	public void test_Percentiles(){
+		LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getPercentile(50));
+
+		for(int i=0; i<99; i++){
+			h.record(1000);
+		}
+		h.record(1_000_000);
+		assertEquals(100, h.getCount());
+		long p50 = h.getPercentile(50);
+		assertTrue(p50>=1000 && p50<1250);
+		assertEquals(p50, h.getPercentile(99));
+		long max = h.getPercentile(100);
+		assertTrue(max>=1_000_000 && max<1_250_000);
+
+		h.reset();
+		assertEquals(0, h.getCount());
+	}
+
+}
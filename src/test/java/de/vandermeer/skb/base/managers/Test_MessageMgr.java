@@ -15,6 +15,37 @@
 
 package de.vandermeer.skb.base.managers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
+import de.vandermeer.skb.interfaces.MessageConsole;
+
 /**
  * Tests for Tests for {@link MessageMgr}.
  *
@@ -24,6 +55,744 @@ package de.vandermeer.skb.base.managers;
  */
 public class Test_MessageMgr {
 
+	/** Console printing before a test. */
+	protected boolean printMessages;
+
+	@Before
+	public void setUp(){
+		this.printMessages = MessageConsole.PRINT_MESSAGES;
+		MessageConsole.PRINT_MESSAGES = false;
+	}
+
+	@After
+	public void tearDown(){
+		MessageConsole.PRINT_MESSAGES = this.printMessages;
+	}
+
+	@Test
+	public void test_AsyncReporting(){
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection()
+				.enableAsyncReporting(4)
+				.build()
+		;
+		assertTrue(mm.isAsync());
+
+		for(int i=0; i<100; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+			mm.report(MessageMgr.createInfoMessage("info {}", i));
+		}
+		assertTrue(mm.hasErrors());
+		assertEquals(100, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(100, mm.getMessageCount(E_MessageType.INFO));
+		assertEquals(200, mm.getMessageCollection().size());
+
+		mm.close();
+		assertFalse(mm.isAsync());
+		mm.report(MessageMgr.createErrorMessage("after close"));
+		assertEquals(101, mm.getMessageCount(E_MessageType.ERROR));
+
+		mm.clear();
+		assertFalse(mm.hasErrors());
+	}
+
+	@Test
+	public void test_DispatcherClose() throws InterruptedException {
+		for(int run=0; run<20; run++){
+			AtomicInteger processed = new AtomicInteger();
+			AtomicInteger submitted = new AtomicInteger();
+			MessageDispatcher dispatcher = new MessageDispatcher("@test", 1, m -> processed.incrementAndGet());
+
+			List<Thread> threads = new ArrayList<>();
+			for(int t=0; t<4; t++){
+				threads.add(new Thread(){
+					@Override
+					public void run(){
+						for(int i=0; i<200; i++){
+							if(dispatcher.submit("m")){
+								submitted.incrementAndGet();
+							}
+							dispatcher.flush();
+						}
+					}
+				});
+			}
+			for(Thread t : threads){
+				t.start();
+			}
+			dispatcher.close();
+			for(Thread t : threads){
+				t.join(10_000);
+				assertFalse(t.isAlive());
+			}
+			assertEquals(submitted.get(), processed.get());
+		}
+	}
+
+	@Test
+	public void test_ConcurrentReporting() throws InterruptedException{
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.WARNING)
+				.enableMessageCollection()
+				.enableConcurrentReporting()
+				.build()
+		;
+
+		List<Thread> threads = new ArrayList<>();
+		for(int t=0; t<8; t++){
+			final int id = t;
+			threads.add(new Thread(){
+				@Override
+				public void run(){
+					for(int i=0; i<1000; i++){
+						mm.report(MessageMgr.createErrorMessage("thread {} error {}", id, i));
+						mm.report(MessageMgr.createWarningMessage("thread {} warning", id));
+					}
+				}
+			});
+		}
+		for(Thread t : threads){
+			t.start();
+		}
+		for(Thread t : threads){
+			t.join();
+		}
+
+		assertEquals(8000, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(8000, mm.getMessageCount(E_MessageType.WARNING));
+		assertEquals(8008, mm.getMessageCollection().size());
+	}
+
+	@Test
+	public void test_BoundedCollection(){
+		MessageMgr mm;
+
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).build();
+		mm.report(MessageMgr.createErrorMessage("not collected"));
+		assertEquals(1, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(0, mm.getMessageCollection().size());
+
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection(E_CollectionPolicy.LAST, 10).build();
+		for(int i=0; i<100; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		assertEquals(100, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(10, mm.getMessageCollection().size());
+		assertEquals(90, mm.getEvictedMessageCount());
+		assertTrue(mm.getMessageCollection().iterator().next().endsWith("error 90"));
+
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).setHandler(E_MessageType.INFO).enableMessageCollection(E_CollectionPolicy.FIRST_PER_TYPE, 5).build();
+		for(int i=0; i<100; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+			mm.report(MessageMgr.createInfoMessage("info {}", i));
+		}
+		assertEquals(10, mm.getMessageCollection().size());
+		assertTrue(mm.getMessageCollection().iterator().next().endsWith("error 0"));
+
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection(E_CollectionPolicy.BYTE_BUDGET, 1000).build();
+		for(int i=0; i<1000; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		long bytes = 0;
+		for(String s : mm.getMessageCollection()){
+			bytes += 2 * s.length();
+		}
+		assertTrue(bytes<=1000);
+		assertEquals(1000, mm.getMessageCount(E_MessageType.ERROR));
+
+		MessageMgrBuilder mmb = new MessageMgrBuilder("@test").enableMessageCollection(E_CollectionPolicy.LAST, 0);
+		assertTrue(mmb.getBuildErrors().hasErrors());
+	}
+
+	@Test
+	public void test_LazyRendering(){
+		int[] renders = new int[1];
+		MessageRenderer renderer = new MessageRenderer(){
+			@Override
+			public String render(Message5WH msg){
+				renders[0]++;
+				return super.render(msg);
+			}
+		};
+
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.INFO).build();
+		mm.setRenderer(renderer);
+		mm.report(MessageMgr.createInfoMessage("not rendered"));
+		assertTrue(mm.hasInfos());
+		assertEquals(0, renders[0]);
+
+		MessageConsole.PRINT_MESSAGES = true;
+		mm.report(MessageMgr.createInfoMessage("rendered"));
+		assertEquals(2, mm.getMessageCount(E_MessageType.INFO));
+		assertEquals(1, renders[0]);
+
+		MessageConsole.PRINT_MESSAGES = false;
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.INFO).enableMessageCollection().build();
+		mm.setRenderer(renderer);
+		mm.report(MessageMgr.createInfoMessage("collected"));
+		assertEquals(2, renders[0]);
+	}
+
+
+	@Test
+	public void test_Deduplication(){
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection()
+				.enableDeduplication(0, 1000)
+				.build();
+
+		for(int i=0; i<5000; i++){
+			mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setWhere("file", 1, 2).addWhat("bad input").build());
+		}
+		mm.report(MessageMgr.createInfoMessage("other"));
+		assertEquals(5000, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(4995, mm.getSuppressedMessageCount());
+		assertEquals(3, mm.getMessageCollection().size());
+
+		mm.flushSummaries();
+		List<String> collected = new ArrayList<>(mm.getMessageCollection());
+		assertEquals(4, collected.size());
+		assertTrue(collected.get(1).startsWith("@test: last error repeated 1000 times: "));
+		assertTrue(collected.get(3).startsWith("@test: last error repeated 995 times: "));
+
+		long[] time = new long[]{0};
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection().enableDeduplication(200, 0).setClock(() -> time[0]).build();
+		mm.report(MessageMgr.createErrorMessage("timed"));
+		time[0] += TimeUnit.MILLISECONDS.toNanos(199);
+		mm.report(MessageMgr.createErrorMessage("timed"));
+		time[0] += TimeUnit.MILLISECONDS.toNanos(101);
+		mm.report(MessageMgr.createErrorMessage("timed"));
+		assertEquals(3, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(1, mm.getSuppressedMessageCount());
+		assertEquals(2, mm.getMessageCollection().size());
+
+		assertTrue(new MessageMgrBuilder("@test").enableDeduplication(0, 0).getBuildErrors().hasErrors());
+	}
+
+
+	@Test
+	public void test_RateLimiting(){
+		long[] time = new long[]{0};
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection()
+				.setRateLimit(E_MessageType.ERROR, 0.001, 10)
+				.setInfoSampling(0.5, 42)
+				.setClock(() -> time[0])
+				.build();
+
+		for(int i=0; i<1000; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+			mm.report(MessageMgr.createInfoMessage("info {}", i));
+		}
+		assertEquals(1000, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(1000, mm.getMessageCount(E_MessageType.INFO));
+		// 10 errors, 465 infos sampled with the seed, and one summary of the first 2 dropped infos
+		assertEquals(476, mm.getMessageCollection().size());
+		assertTrue(mm.getMessageMap().containsKey("@test: dropped 2 infos due to rate limits"));
+		assertEquals(990 + 535, mm.getDroppedMessageCount());
+
+		mm.flushSummaries();
+		assertTrue(mm.getMessageMap().containsKey("@test: dropped 990 errors due to rate limits"));
+
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection().setReporterRateLimit(0.001, 2).setClock(() -> time[0]).build();
+		for(int i=0; i<10; i++){
+			mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("a").addWhat("a" + i).build());
+			mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("b").addWhat("b" + i).build());
+		}
+		assertEquals(4, mm.getMessageCollection().size());
+		assertEquals(16, mm.getDroppedMessageCount());
+
+		// a message dropped for its type does not use a token of its reporter
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection().setReporterRateLimit(0.001, 2).setRateLimit(E_MessageType.ERROR, 1, 1).setClock(() -> time[0]).build();
+		mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("a").addWhat("a1").build());
+		mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("a").addWhat("a2").build());
+		time[0] += TimeUnit.SECONDS.toNanos(1);
+		mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("a").addWhat("a3").build());
+		assertEquals(1, mm.getDroppedMessageCount());
+
+		// clear refills all buckets and removes reporter buckets, reporters beyond the maximum share one bucket
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).enableMessageCollection().setReporterRateLimit(0.001, 1).setRateLimit(E_MessageType.ERROR, 0.001, 2000).setClock(() -> time[0]).build();
+		for(int i=0; i<MessageRateLimiter.MAX_REPORTERS + 10; i++){
+			mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("r" + i).addWhat("w" + i).build());
+		}
+		assertEquals(MessageRateLimiter.MAX_REPORTERS + 1, mm.rateLimiter.reporterBuckets.size());
+		assertEquals(9, mm.getDroppedMessageCount());
+		mm.clear();
+		assertTrue(mm.rateLimiter.reporterBuckets.isEmpty());
+		assertEquals(0, mm.getDroppedMessageCount());
+		mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("r0").addWhat("again").build());
+		assertEquals(1, mm.getMessageCollection().size());
+		assertEquals(0, mm.getDroppedMessageCount());
+
+		assertTrue(new MessageMgrBuilder("@test").setRateLimit(E_MessageType.ERROR, 0, 1).getBuildErrors().hasErrors());
+		assertTrue(new MessageMgrBuilder("@test").setInfoSampling(1.5).getBuildErrors().hasErrors());
+	}
+
+	@Test
+	public void test_MaxCount(){
+		Logger logger = mock(Logger.class);
+		when(logger.isErrorEnabled()).thenReturn(true);
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 5, logger).build();
+
+		for(int i=0; i<100; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		assertEquals(100, mm.getMessageCount(E_MessageType.ERROR));
+		verify(logger, times(6)).error(anyString());
+	}
+
+
+	@Test
+	public void test_Sinks(){
+		int[] renders = new int[1];
+		MessageRenderer renderer = new MessageRenderer(){
+			@Override
+			public String render(Message5WH msg){
+				renders[0]++;
+				return super.render(msg);
+			}
+		};
+
+		MemorySink errors = new MemorySink(10);
+		MemorySink all = new MemorySink(3);
+		MemorySink async = new MemorySink(100);
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR, 0, errors)
+				.setHandler(E_MessageType.INFO)
+				.addSink(all)
+				.addSink(new AsyncSink(async, 100), E_MessageType.INFO)
+				.build();
+		mm.setRenderer(renderer);
+
+		for(int i=0; i<5; i++){
+			mm.report(MessageMgr.createErrorMessage("error {}", i));
+			mm.report(MessageMgr.createInfoMessage("info {}", i));
+		}
+		mm.flushSinks();
+		assertEquals(5, errors.getTexts().size());
+		assertTrue(errors.getTexts().get(0).endsWith("error 0"));
+		assertEquals(3, all.getTexts().size());
+		assertTrue(all.getTexts().get(2).endsWith("info 4"));
+		assertEquals(5, async.getTexts().size());
+		assertTrue(async.getTexts().get(4).endsWith("info 4"));
+		assertEquals(10, renders[0]);
+
+		mm.close();
+		assertTrue(new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 0, new MessageSink[0]).getBuildErrors().hasErrors());
+	}
+
+
+	@Test
+	public void test_BuildTwice(){
+		int[] closed = new int[1];
+		MemorySink sink = new MemorySink(100){
+			@Override
+			public void close(){
+				closed[0]++;
+			}
+		};
+		MessageMgrBuilder builder = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.enableMessageCollection()
+				.addSink(sink)
+				.setRateLimit(E_MessageType.ERROR, 0.001, 2);
+		MessageMgr mm1 = builder.build();
+		MessageMgr mm2 = builder.build();
+
+		for(int i=0; i<3; i++){
+			mm1.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		mm2.report(MessageMgr.createErrorMessage("error {}", 0));
+		mm1.flushSinks();
+		mm2.flushSinks();
+
+		// each admitted message is written once, and the managers do not share their token buckets
+		assertEquals(3, sink.getTexts().size());
+		assertEquals(2, mm1.getMessageCollection().size());
+		assertEquals(1, mm1.getDroppedMessageCount());
+		assertEquals(1, mm2.getMessageCollection().size());
+		assertEquals(0, mm2.getDroppedMessageCount());
+
+		// the shared sink is closed by the last manager closed, and only once
+		mm1.close();
+		mm1.close();
+		assertEquals(0, closed[0]);
+		mm2.report(MessageMgr.createErrorMessage("error {}", 1));
+		mm2.flushSinks();
+		// the summary of the dropped message of mm1 and the new message of mm2
+		assertEquals(5, sink.getTexts().size());
+		mm2.close();
+		assertEquals(1, closed[0]);
+	}
+
+
+	@Test
+	public void test_ReportBatch(){
+		List<Message5WH> batch = new ArrayList<>();
+		for(int i=0; i<200; i++){
+			batch.add(MessageMgr.createErrorMessage("error {}", i));
+			batch.add(MessageMgr.createInfoMessage("info {}", i));
+		}
+
+		MemorySink sequential = new MemorySink(1000);
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 150, sequential).setHandler(E_MessageType.INFO, 0, sequential).enableMessageCollection().build();
+		assertTrue(mm.report(batch));
+
+		int[] writes = new int[1];
+		MemorySink batched = new MemorySink(1000){
+			@Override
+			public void write(List<ReportedMessage> messages){
+				writes[0]++;
+				super.write(messages);
+			}
+		};
+		for(boolean async : new boolean[]{false, true}){
+			batched.clear();
+			writes[0] = 0;
+			MessageMgrBuilder mmb = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 150, batched).setHandler(E_MessageType.INFO, 0, batched).enableMessageCollection();
+			if(async){
+				mmb.enableAsyncReporting(16);
+			}
+			MessageMgr bm = mmb.build();
+			assertTrue(bm.reportBatch(batch));
+			assertEquals(200, bm.getMessageCount(E_MessageType.ERROR));
+			assertEquals(200, bm.getMessageCount(E_MessageType.INFO));
+			assertEquals(sequential.getTexts(), batched.getTexts());
+			assertEquals(new ArrayList<>(mm.getMessageCollection()), new ArrayList<>(bm.getMessageCollection()));
+			assertEquals(1, writes[0]);
+			bm.close();
+		}
+		assertFalse(mm.reportBatch(null));
+	}
+
+
+	@Test
+	public void test_Recycling(){
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).setHandler(E_MessageType.INFO).enableMessageCollection().build();
+		assertTrue(mm.reportError("error {}", 1));
+		Message5WH recycled = Message5WH_Builder.local().build();
+		assertTrue(mm.reportInfo("info"));
+		assertTrue(recycled==Message5WH_Builder.local().build());
+		assertFalse(mm.reportWarning("warning"));
+		assertEquals(1, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(1, mm.getMessageCount(E_MessageType.INFO));
+
+		//a sink keeping messages prevents recycling, the kept messages stay intact
+		MemorySink sink = new MemorySink(10);
+		mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 0, sink).enableDeduplication(60000, 0).build();
+		for(int i=0; i<5; i++){
+			assertTrue(mm.reportError("error {}", i));
+			assertTrue(mm.reportError("error {}", i));
+		}
+		assertEquals(5, sink.getTexts().size());
+		assertTrue(sink.getTexts().get(0).endsWith("error 0"));
+		assertTrue(sink.getTexts().get(4).endsWith("error 4"));
+		assertEquals(5, mm.getSuppressedMessageCount());
+		mm.close();
+	}
+
+
+	@Test
+	public void test_DeferredFormatting(){
+		int[] formatted = new int[1];
+		Object arg = new Object(){
+			@Override
+			public String toString(){
+				formatted[0]++;
+				return "arg";
+			}
+		};
+
+		MemorySink sink = new MemorySink(10);
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 0, sink).enableDeduplication(60000, 0).build();
+		for(int i=0; i<10; i++){
+			mm.report(MessageMgr.createErrorMessage("error {} in {}", arg, "file"));
+		}
+		mm.reportError("error {} in {}", arg, "other");
+		assertEquals(0, formatted[0]);
+		assertEquals(9, mm.getSuppressedMessageCount());
+		assertEquals(2, sink.getTexts().size());
+		assertEquals(2, formatted[0]);
+		assertTrue(sink.getTexts().get(0).endsWith("error arg in file"));
+		mm.close();
+	}
+
+
+	@Test
+	public void test_Metrics() throws Exception{
+		File file = File.createTempFile("skb-metrics", ".log");
+		file.deleteOnExit();
+		RollingFileSink sink = new RollingFileSink(file, 1_000_000, 0, E_FlushPolicy.BUFFER);
+		MessageMgr mm = new MessageMgrBuilder("@metrics").setHandler(E_MessageType.ERROR, 0, sink).setHandler(E_MessageType.INFO).enableMetrics().build();
+		for(int i=0; i<10; i++){
+			mm.reportError("error {}", i);
+		}
+		mm.reportInfo("info");
+
+		MessageMetrics metrics = mm.getMetrics();
+		assertEquals(10, metrics.getErrorCount());
+		assertEquals(1, metrics.getInfoCount());
+		assertEquals(-1, metrics.getWarningCount());
+		assertEquals(10, metrics.getRenderCount());
+		assertTrue(metrics.getRenderLatencyP50()>0);
+		assertTrue(metrics.getRenderLatencyP99()>=metrics.getRenderLatencyP50());
+		assertEquals(sink.getBytesWritten(), metrics.getBytesWritten());
+		assertTrue(metrics.getBytesWritten()>0);
+		assertEquals(Long.valueOf(metrics.getBytesWritten()), metrics.getSinkBytesWritten().get("1-RollingFileSink"));
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = metrics.getObjectName();
+		assertEquals("\"@metrics\"", name.getKeyProperty("name"));
+		assertEquals(10L, server.getAttribute(name, "ErrorCount"));
+		assertEquals(0, server.getAttribute(name, "QueueDepth"));
+
+		MessageMgr mm2 = new MessageMgrBuilder("@metrics").setHandler(E_MessageType.ERROR).enableMetrics().build();
+		assertEquals("2", mm2.getMetrics().getObjectName().getKeyProperty("instance"));
+		mm2.close();
+
+		mm.close();
+		assertFalse(server.isRegistered(name));
+
+		// metrics of a garbage collected manager read as 0 and unregister themselves
+		mm = new MessageMgrBuilder("@metrics").setHandler(E_MessageType.ERROR).enableMetrics().build();
+		mm.reportError("error");
+		metrics = mm.getMetrics();
+		name = metrics.getObjectName();
+		assertTrue(server.isRegistered(name));
+		metrics.mgr.clear();
+		assertEquals(0, metrics.getErrorCount());
+		assertEquals("@metrics", metrics.getAppID());
+		assertFalse(server.isRegistered(name));
+		mm.close();
+	}
+
+
+	@Test
+	public void test_Query(){
+		MessageMgr mm = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).setHandler(E_MessageType.WARNING).enableMessageIndex().build();
+		for(int line=500; line>0; line--){
+			mm.report(new Message5WH_Builder().setType((line%2==0)?E_MessageType.ERROR:E_MessageType.WARNING).setReporter("parser").setWhere("fileX", line, 1).addWhat("bad token").build());
+			mm.report(new Message5WH_Builder().setType(E_MessageType.ERROR).setReporter("checker").setWho("rule" + (line%5)).setWhere("fileY", line, 1).addWhat("rule violated").build());
+		}
+
+		List<Message5WH> found = mm.query().type(E_MessageType.ERROR).location("fileX").lines(100, 200).list();
+		assertEquals(51, found.size());
+		assertEquals(200, found.get(0).getWhereLine());
+		assertEquals(100, found.get(50).getWhereLine());
+
+		assertEquals(500, mm.query().reporter("checker").count());
+		assertEquals(100, mm.query().who("rule0").count());
+		assertEquals(250, mm.query().type(E_MessageType.WARNING).count());
+		assertEquals(1000, mm.query().count());
+		assertEquals(0, mm.query().reporter("unknown").count());
+		assertEquals(0, mm.query().location("fileX").lines(600, 700).count());
+		assertEquals(1, mm.query().location("fileY").lines(7, 7).count());
+
+		mm.clear();
+		assertEquals(0, mm.query().count());
+		assertEquals(0, new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR).build().query().count());
+	}
+
+	@Test
+	public void test_SharedTemplates(){
+		assertTrue(MessageTemplates.getSTGroup()==MessageTemplates.getSTGroup());
+
+		String max = MessageTemplates.renderMax("@test", 5, E_MessageType.ERROR);
+		assertTrue(max==MessageTemplates.renderMax("@test", 5, E_MessageType.ERROR));
+		assertFalse(max.equals(MessageTemplates.renderMax("@test", 6, E_MessageType.ERROR)));
+		assertFalse(max.equals(MessageTemplates.renderMax("@other", 5, E_MessageType.ERROR)));
+		assertFalse(max.equals(MessageTemplates.renderMax("@test", 5, E_MessageType.WARNING)));
+
+		MemorySink sink1 = new MemorySink(16);
+		MemorySink sink2 = new MemorySink(16);
+		MessageMgr mm1 = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 5, sink1).build();
+		MessageMgr mm2 = new MessageMgrBuilder("@test").setHandler(E_MessageType.ERROR, 5, sink2).build();
+		for(int i=0; i<10; i++){
+			mm1.report(MessageMgr.createErrorMessage("error {}", i));
+			mm2.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		assertEquals(6, sink1.getMessages().size());
+		assertEquals(max, sink1.getMessages().get(5).getText());
+		assertTrue(sink1.getMessages().get(5).getText()==sink2.getMessages().get(5).getText());
+	}
+
+	@Test
+	public void test_Fork(){
+		long[] time = new long[]{0};
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection()
+				.setClock(() -> time[0])
+				.build()
+		;
+
+		List<MessageMgrFork> forks = new ArrayList<>();
+		for(int i=0; i<8; i++){
+			forks.add(mm.fork());
+		}
+		forks.parallelStream().forEach(fork -> {
+			int n = forks.indexOf(fork);
+			for(int i=0; i<10; i++){
+				fork.reportError("error {} {}", n, i);
+				fork.report(MessageMgr.createInfoMessage("info {} {}", n, i));
+			}
+			fork.report(MessageMgr.createWarningMessage("no handler"));
+		});
+		assertEquals(10, forks.get(3).getMessageCount(E_MessageType.ERROR));
+		assertEquals(20, forks.get(3).size());
+		assertTrue(forks.get(3).hasErrors());
+		assertFalse(forks.get(3).hasWarnings());
+		assertEquals(0, mm.getMessageCount(E_MessageType.ERROR));
+
+		mm.join(forks, E_JoinOrder.FORK);
+		assertEquals(80, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(80, mm.getMessageCount(E_MessageType.INFO));
+		List<String> texts = new ArrayList<>(mm.getMessageCollection());
+		assertEquals(160, texts.size());
+		for(int n=0; n<8; n++){
+			for(int i=0; i<10; i++){
+				assertTrue(texts.get(n * 20 + i * 2).endsWith("error " + n + " " + i));
+				assertTrue(texts.get(n * 20 + i * 2 + 1).endsWith("info " + n + " " + i));
+			}
+		}
+		assertEquals(0, forks.get(3).size());
+		assertFalse(forks.get(3).hasErrors());
+
+		mm.clear();
+		MessageMgrFork fork1 = mm.fork();
+		MessageMgrFork fork2 = mm.fork();
+		fork2.reportError("first");
+		time[0]++;
+		fork1.reportError("second");
+		time[0]++;
+		fork2.reportError("third");
+		mm.join(Arrays.asList(fork1, fork2), E_JoinOrder.REPORTED);
+		texts = new ArrayList<>(mm.getMessageCollection());
+		assertEquals(3, texts.size());
+		assertTrue(texts.get(0).endsWith("first"));
+		assertTrue(texts.get(1).endsWith("second"));
+		assertTrue(texts.get(2).endsWith("third"));
+
+		fork1.reportInfo("joined alone");
+		assertTrue(fork1.join()==mm);
+		assertEquals(1, mm.getMessageCount(E_MessageType.INFO));
+	}
+
+	@Test
+	public void test_CountingOnly(){
+		MemorySink sink = new MemorySink(16);
+		MessageMgr mm = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR, 5, sink)
+				.setHandler(E_MessageType.WARNING)
+				.enableMessageCollection()
+				.enableCountingOnly(2)
+				.build()
+		;
+		assertTrue(mm.isCountingOnly());
+		assertFalse(mm.hasErrors());
+
+		Message5WH first = MessageMgr.createErrorMessage("error {}", 0);
+		mm.report(first);
+		for(int i=1; i<10; i++){
+			mm.reportError("error {}", i);
+		}
+		mm.reportBatch(Arrays.asList(MessageMgr.createWarningMessage("warning"), MessageMgr.createInfoMessage("no handler")));
+		MessageMgrFork fork = mm.fork();
+		fork.reportWarning("forked");
+		fork.join();
+
+		assertTrue(mm.hasErrors());
+		assertTrue(mm.hasWarnings());
+		assertEquals(10, mm.getMessageCount(E_MessageType.ERROR));
+		assertEquals(2, mm.getMessageCount(E_MessageType.WARNING));
+		assertEquals(0, sink.getMessages().size());
+		assertEquals(0, mm.getMessageCollection().size());
+
+		List<Object> kept = mm.getUnrenderedMessages(E_MessageType.ERROR);
+		assertEquals(2, kept.size());
+		assertTrue(kept.get(0)==first);
+		assertEquals("error 1", ((Message5WH)kept.get(1)).getWhat().toString());
+		assertEquals(2, mm.getUnrenderedMessages(E_MessageType.WARNING).size());
+		assertEquals(0, mm.getUnrenderedMessages(E_MessageType.INFO).size());
+
+		mm.clear();
+		assertFalse(mm.hasErrors());
+		assertEquals(0, mm.getUnrenderedMessages(E_MessageType.ERROR).size());
+	}
+
+	@Test
+	public void test_OffHeapCollection(){
+		MessageMgr heap = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection()
+				.build()
+		;
+		MessageMgr offHeap = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.setHandler(E_MessageType.INFO)
+				.enableMessageCollection(E_CollectionPolicy.OFF_HEAP, 1 << 24)
+				.enableDeduplication(0, 1000)
+				.build()
+		;
+
+		for(int i=0; i<1000; i++){
+			Message5WH msg = new Message5WH_Builder()
+					.setType((i%2==0)?E_MessageType.ERROR:E_MessageType.INFO)
+					.setReporter("validator")
+					.setWho("file" + (i%10))
+					.setWhere("src/file" + (i%10) + ".txt", i, i%80)
+					.setWhat("message {}", i)
+					.addWhy(Arrays.asList("a", null, "b"))
+					.build()
+			;
+			heap.report(msg);
+			offHeap.report(msg);
+		}
+		offHeap.report(MessageMgr.createErrorMessage("repeated"));
+		offHeap.report(MessageMgr.createErrorMessage("repeated"));
+		offHeap.report(MessageMgr.createErrorMessage("repeated"));
+		assertEquals(2, offHeap.getSuppressedMessageCount());
+		offHeap.flushSummaries();
+
+		List<String> expected = new ArrayList<>(heap.getMessageCollection());
+		List<String> actual = new ArrayList<>(offHeap.getMessageCollection());
+		assertEquals(1002, actual.size());
+		assertEquals(expected, actual.subList(0, 1000));
+		assertTrue(actual.get(1000).endsWith("repeated"));
+		assertTrue(actual.get(1001).startsWith("@test: last error repeated 2 times: "));
+		assertTrue(actual.get(1001).endsWith("repeated"));
+		assertEquals(E_MessageType.INFO, offHeap.getMessageMap().get(expected.get(1)));
+
+		OffHeapMessageStore store = offHeap.messages.store;
+		assertEquals(21, store.dictionary.size());
+		assertEquals(OffHeapMessageStore.SEGMENT_SIZE, store.getAllocatedBytes());
+
+		offHeap.clear();
+		assertEquals(0, offHeap.getMessageCollection().size());
+		assertEquals(1002, actual.size());
+
+		MessageMgr bounded = new MessageMgrBuilder("@test")
+				.setHandler(E_MessageType.ERROR)
+				.enableMessageCollection(E_CollectionPolicy.OFF_HEAP, 100)
+				.build()
+		;
+		for(int i=0; i<10; i++){
+			bounded.report(MessageMgr.createErrorMessage("error {}", i));
+		}
+		bounded.report(MessageMgr.createErrorMessage(StringUtils.repeat('x', 200)));
+		assertTrue(bounded.getMessageCollection().size()>0);
+		assertTrue(bounded.getMessageCollection().size()<10);
+		assertEquals(11 - bounded.getMessageCollection().size(), bounded.getEvictedMessageCount());
+	}
 }
 
 
@@ -15,7 +15,24 @@
 
 package de.vandermeer.skb.base.managers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import org.junit.Test;
+import org.stringtemplate.v4.STGroup;
+import org.stringtemplate.v4.STGroupFile;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+import de.vandermeer.skb.base.message.Message5WH;
+import de.vandermeer.skb.base.message.Message5WH_Builder;
 
 /**
  * Tests for {@link MessageRenderer}.
@@ -35,4 +52,80 @@ public class Test_MessageRenderer {
 
 		ren.stg.show();
 	}
+
+	@Test
+	public void test_Compiled(){
+		MessageRenderer st = new MessageRenderer();
+		CompiledMessageRenderer ren = new CompiledMessageRenderer();
+		assertTrue(ren.isCompiled());
+		assertTrue(new CompiledMessageRenderer(MessageRenderer.DEFAULT_STG_FN).isCompiled());
+		assertFalse(new CompiledMessageRenderer("de/vandermeer/skb/base/managers/5wh-example.stg").isCompiled());
+
+		STGroup stg = MessageRenderer.DEFAULT_STG;
+		try{
+			MessageRenderer.DEFAULT_STG = new STGroupFile("de/vandermeer/skb/base/managers/5wh-example.stg");
+			assertFalse(new CompiledMessageRenderer().isCompiled());
+		}
+		finally{
+			MessageRenderer.DEFAULT_STG = stg;
+		}
+
+		Message5WH[] messages = new Message5WH[]{
+				new Message5WH_Builder().build(),
+				new Message5WH_Builder().setType(E_MessageType.ERROR).addWhat("what").build(),
+				new Message5WH_Builder().setType(E_MessageType.WARNING).addWhat("what").setWho("who").setReporter("reporter").build(),
+				new Message5WH_Builder().setType(E_MessageType.INFO).addWhat("what").setWhen("noon").setWhere("file", 12, 0).build(),
+				new Message5WH_Builder().setType(E_MessageType.ERROR).addWhat(" ").setWhere(Arrays.asList("a", null, "b"), 0, 3).addWhy("why\r\nnext").addHow("how").build(),
+				new Message5WH_Builder().setType(E_MessageType.ERROR).addWhat("what").setWhere("file", 1, 2).setWho(new String[]{"x", "y"}).build(),
+		};
+		for(Message5WH msg : messages){
+			assertEquals(st.render(msg), ren.render(msg));
+		}
+		assertEquals(st.render(Arrays.asList(messages)), ren.render(Arrays.asList(messages)));
+		assertEquals("", ren.render((Message5WH)null));
+	}
+
+
+	@Test
+	public void test_Streaming() throws IOException{
+		Message5WH[] messages = new Message5WH[]{
+				new Message5WH_Builder().setType(E_MessageType.ERROR).addWhat("what").setWhere("file", 1, 2).setReporter("reporter").build(),
+				new Message5WH_Builder().setType(E_MessageType.WARNING).addWhat("what").addWhy("why\nnext").build(),
+		};
+
+		for(MessageRenderer ren : new MessageRenderer[]{new MessageRenderer(), new CompiledMessageRenderer()}){
+			String expected = ren.render(Arrays.asList(messages));
+
+			StringBuilder sb = new StringBuilder();
+			ren.render(Arrays.asList(messages), sb);
+			assertEquals(expected, sb.toString());
+
+			StringWriter sw = new StringWriter();
+			ren.render(Arrays.asList(messages), sw);
+			assertEquals(expected, sw.toString());
+
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ren.renderTo(Arrays.asList(messages), bos);
+			assertEquals(expected, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+
+			PrintStream stdout = System.out;
+			bos.reset();
+			try{
+				System.setOut(new PrintStream(bos, true, "UTF-8"));
+				ren.renderTo(Arrays.asList(messages), System.out);
+			}
+			finally{
+				System.setOut(stdout);
+			}
+			assertEquals(expected, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+
+			sb.setLength(0);
+			ren.render(messages[0], sb);
+			assertEquals(ren.render(messages[0]), sb.toString());
+		}
+
+		StringBuilder sb = new StringBuilder();
+		messages[0].render(sb);
+		assertEquals(messages[0].render(), sb.toString());
+	}
 }
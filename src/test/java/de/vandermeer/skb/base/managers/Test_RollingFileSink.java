@@ -0,0 +1,72 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.managers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.base.message.E_MessageType;
+
+/**
+ * Tests for {@link RollingFileSink}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ */
+public class Test_RollingFileSink {
+
+	@Test
+	public void test_Rollover() throws IOException{
+		File dir = Files.createTempDirectory("skb-sink").toFile();
+		File file = new File(dir, "messages.log");
+
+		RollingFileSink sink = new RollingFileSink(file, 100, 2, E_FlushPolicy.BUFFER);
+		for(int i=0; i<30; i++){
+			sink.write(new ReportedMessage(E_MessageType.ERROR, String.format("message %02d", i)));
+		}
+		sink.close();
+
+		assertTrue(new File(dir, "messages.log.1").exists());
+		assertTrue(new File(dir, "messages.log.2").exists());
+		assertFalse(new File(dir, "messages.log.3").exists());
+
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		assertEquals("message 29", lines.get(lines.size()-1));
+		assertTrue(file.length()<=100 + 11 + System.lineSeparator().length());
+	}
+
+	@Test
+	public void test_FlushPolicy() throws IOException{
+		File file = Files.createTempFile("skb-sink", ".log").toFile();
+
+		RollingFileSink sink = new RollingFileSink(file, 10000, 0, E_FlushPolicy.ERRORS);
+		sink.write(new ReportedMessage(E_MessageType.INFO, "info"));
+		assertEquals(0, file.length());
+		sink.write(new ReportedMessage(E_MessageType.ERROR, "error"));
+		assertEquals(2, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+		sink.close();
+	}
+
+}
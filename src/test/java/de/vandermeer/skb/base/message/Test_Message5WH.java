@@ -15,6 +15,8 @@
 
 package de.vandermeer.skb.base.message;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -60,4 +62,29 @@ public class Test_Message5WH {
 		assertTrue(m.getType()==null);
 	}
 
+	@Test public void testDeferredWhat(){
+		int[] formatted = new int[1];
+		Object arg = new Object(){
+			@Override
+			public String toString(){
+				formatted[0]++;
+				return "arg";
+			}
+		};
+
+		Message5WH m = new Message5WH_Builder().setWhat("value {} of {}", arg, 3).setType(E_MessageType.ERROR).build();
+		assertTrue(m.hasWhat());
+		assertEquals("value {} of {}", m.getWhatPattern());
+		assertEquals(0, formatted[0]);
+
+		Message5WH eager = new Message5WH_Builder().addWhat("value arg of 3").setType(E_MessageType.ERROR).build();
+		assertEquals(eager.render(), m.render());
+		assertEquals("value arg of 3", m.getWhat().toString());
+		assertEquals(1, formatted[0]);
+
+		m = new Message5WH_Builder().setWhat("value {}", 1).addWhat(" and more").build();
+		assertNull(m.getWhatPattern());
+		assertEquals("value 1 and more", m.getWhat().toString());
+	}
+
 }
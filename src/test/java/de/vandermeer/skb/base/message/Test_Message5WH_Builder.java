@@ -16,6 +16,7 @@
 package de.vandermeer.skb.base.message;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -421,6 +422,40 @@ public class Test_Message5WH_Builder {
 		assertEquals(0, mb.whereColumn);
 	}
 
+	@Test public void testReuse(){
+		Message5WH_Builder mb = new Message5WH_Builder(true);
+		Message5WH msg = mb.setType(E_MessageType.ERROR).setWho("who").addWhat("first").addWhy("why").build();
+		StrBuilder what = msg.getWhat();
+		assertTrue(msg.isRecyclable());
+		assertEquals("first", msg.getWhat().toString());
+
+		//not referenced: message and buffers are recycled
+		mb.reset();
+		assertNull(mb.who);
+		Message5WH msg2 = mb.setType(E_MessageType.INFO).addWhat("second").build();
+		assertTrue(msg==msg2);
+		assertTrue(what==msg2.getWhat());
+		assertEquals("second", msg2.getWhat().toString());
+		assertNull(msg2.getWho());
+		assertNull(msg2.getWhy());
+
+		//retained: the message is kept intact and a new one is built
+		msg2.retain();
+		mb.reset();
+		Message5WH msg3 = mb.setType(E_MessageType.INFO).addWhat("third").build();
+		assertTrue(msg2!=msg3);
+		assertTrue(what!=msg3.getWhat());
+		assertEquals("second", msg2.getWhat().toString());
+		assertTrue(msg2.release());
+
+		//a normal builder creates new messages that are not recyclable
+		msg = new Message5WH_Builder().addWhat("x").build();
+		assertFalse(msg.isRecyclable());
+		assertFalse(msg.retain().release());
+
+		assertTrue(Message5WH_Builder.local()==Message5WH_Builder.local());
+	}
+
 	@Test public void testWhereSet_RE(){
 		//test setWhere(Object, RecognitionException)
 		Message5WH_Builder mb = new Message5WH_Builder();
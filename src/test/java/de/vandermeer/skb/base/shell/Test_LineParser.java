@@ -0,0 +1,97 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LineParser}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class Test_LineParser {
+
+	@Test
+	public void testTokens(){
+		LineParser lp = new LineParser("  run   my.ssc \t now  ");
+		assertEquals("run   my.ssc \t now", lp.getLine());
+		assertEquals(3, lp.getTokenCount());
+		assertEquals("run", lp.getToken());
+		assertEquals("my.ssc \t now", lp.getArgs());
+		assertEquals("my.ssc \t now", lp.getArgsSequence().toString());
+		assertEquals(Arrays.asList("my.ssc", "now"), lp.getArgList());
+		assertEquals("now", lp.getTokenSequence(2).toString());
+		assertNull(lp.getTokenSequence(3));
+
+		assertEquals("run   my.ssc \t now", lp.setTokenPosition(0).getArgs());
+		assertNull(lp.getToken());
+		assertEquals("my.ssc", lp.setTokenPosition(2).getToken());
+		assertNull(lp.setTokenPosition(3).getArgs());
+		assertEquals(0, lp.getArgList().size());
+
+		lp = new LineParser("run \"my script.ssc\" x\"a b\"y");
+		assertEquals(3, lp.getTokenCount());
+		assertEquals(Arrays.asList("my script.ssc", "x\"a b\"y"), lp.getArgList());
+
+		lp = new LineParser(null);
+		assertEquals(0, lp.getTokenCount());
+		assertNull(lp.getToken());
+		assertNull(lp.getArgs());
+		assertEquals(0, lp.getArgMap().size());
+	}
+
+	@Test
+	public void testArgMap(){
+		LineParser lp = new LineParser("cmd a: 1, b :x:y ,, c, :d, e:, file:\"one, two: three\", a:2");
+		Map<String, String> map = lp.getArgMap();
+		assertEquals(3, map.size());
+		assertEquals("2", map.get("a"));
+		assertEquals("x:y", map.get("b"));
+		assertEquals("one, two: three", map.get("file"));
+		assertTrue(lp.getArgMap()!=map);
+
+		SkbShellArgument[] args = new SkbShellArgument[]{
+				SkbShellFactory.newArgument("n", false, SkbShellArgumentType.Integer, null, "a number", null),
+				SkbShellFactory.newArgument("d", false, SkbShellArgumentType.Double, null, "a double", null),
+				SkbShellFactory.newArgument("b", false, SkbShellArgumentType.Boolean, null, "a boolean", null),
+				SkbShellFactory.newArgument("s", false, SkbShellArgumentType.String, null, "a string", null),
+				SkbShellFactory.newArgument("ls", false, SkbShellArgumentType.ListString, null, "strings", null),
+				SkbShellFactory.newArgument("li", false, SkbShellArgumentType.ListInteger, null, "integers", null),
+		};
+		lp = new LineParser("cmd s:\"x, y\", n:3, d:1.5, b:true, ls:a;;b, li:1;2, other:1");
+		Map<SkbShellArgument, Object> typed = lp.getArgMap(args);
+		assertEquals(6, typed.size());
+		assertEquals("x, y", typed.get(args[3]));
+		assertEquals(3, typed.get(args[0]));
+		assertEquals(1.5, typed.get(args[1]));
+		assertEquals(true, typed.get(args[2]));
+		assertEquals(Arrays.asList("a", "b"), typed.get(args[4]));
+		assertEquals(Arrays.asList(1, 2), typed.get(args[5]));
+		assertEquals(Arrays.asList(args[3], args[0], args[1], args[2], args[4], args[5]), Arrays.asList(typed.keySet().toArray()));
+		assertEquals(typed, lp.getArgMap(LineParser.getArgumentKeys(args)));
+		assertEquals(0, lp.getArgMap((SkbShellArgument[])null).size());
+	}
+
+}
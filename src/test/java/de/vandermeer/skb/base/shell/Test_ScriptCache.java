@@ -0,0 +1,135 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.vandermeer.skb.base.info.FileSource;
+import de.vandermeer.skb.base.managers.MessageMgr;
+
+/**
+ * Tests for {@link ScriptCache} and script execution in {@link Ci_ScRun}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class Test_ScriptCache {
+
+	@Test
+	public void testRun() throws IOException {
+		List<String> args = new ArrayList<>();
+		SkbShell shell = SkbShellFactory.newShell("test", false);
+		shell.addCommandInterpreter(new AbstractCommandInterpreter(SkbShellFactory.newCommand("echo", SkbShellFactory.SIMPLE_COMMANDS, "echo", null)){
+			@Override
+			public int interpretCommand(String command, LineParser lp, MessageMgr mm){
+				args.add(lp.getArgs());
+				return 0;
+			}
+		});
+		Ci_ScRun run = new Ci_ScRun(false, shell);
+		shell.addCommandInterpreter(run);
+
+		File file = File.createTempFile("test", ".ssc");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "//** test script\necho a\n\n# comment\necho b c\n".getBytes());
+
+		assertEquals(0, shell.parseLine("scrun " + file.getAbsolutePath()));
+		assertEquals(0, shell.parseLine("scrun " + file.getAbsolutePath()));
+		assertEquals("[a, b c, a, b c]", args.toString());
+		assertEquals(1, run.scripts.size());
+
+		FileSource source = new FileSource(file.getAbsolutePath());
+		ScriptCache.Script script = run.scripts.get(source, shell.getCommandMap());
+		assertSame(script, run.scripts.get(source, shell.getCommandMap()));
+		assertEquals(" test script", script.getInfo());
+		assertEquals(5, script.size());
+		assertEquals(2, script.getPlan().size());
+		assertEquals(5, script.getPlan().getStep(1).getLine());
+		assertSame(shell.getCommandMap().get("echo"), script.getPlan().getStep(1).getInterpreter());
+
+		Files.write(file.toPath(), "echo d\nnone\n".getBytes());
+		ScriptCache.Script changed = run.scripts.get(new FileSource(file.getAbsolutePath()), shell.getCommandMap());
+		assertNotSame(script, changed);
+		assertEquals(2, changed.size());
+		assertEquals(1, changed.getPlan().size());
+		assertEquals(1, changed.getPlan().getErrors().getErrorMessages().size());
+
+		shell.addCommandInterpreter(new Ci_Wait());
+		assertNotSame(changed, run.scripts.get(source, shell.getCommandMap()));
+
+		args.clear();
+		assertEquals(0, shell.parseLine("scrun " + file.getAbsolutePath()));
+		assertEquals("[d]", args.toString());
+	}
+
+	@Test
+	public void testPlan(){
+		SkbShellArgument number = SkbShellFactory.newArgument("n", false, SkbShellArgumentType.Integer, null, "a number", null);
+		List<Integer> numbers = new ArrayList<>();
+		Map<String, CommandInterpreter> commands = new HashMap<>();
+		commands.put("num", new AbstractCommandInterpreter(SkbShellFactory.newCommand("num", new SkbShellArgument[]{number}, SkbShellFactory.SIMPLE_COMMANDS, "number", null)){
+			@Override
+			public int interpretCommand(String command, LineParser lp, MessageMgr mm){
+				return -3;
+			}
+
+			@Override
+			public int interpretCommand(String command, LineParser lp, SkbShellArguments arguments, MessageMgr mm){
+				numbers.add(arguments.getInt(number, -1));
+				return 0;
+			}
+		});
+
+		CommandPlan plan = CommandPlan.compile(new String[]{"num n:1", "", "foo", "num n:2", "// num n:3"}, commands);
+		assertEquals(2, plan.size());
+		assertEquals("num", plan.getStep(0).getCommand());
+		assertEquals(4, plan.getStep(1).getLine());
+		assertEquals(2, plan.getStep(1).getArguments().getInt(number, -1));
+		assertEquals(1, plan.getErrors().getErrorMessages().size());
+
+		MessageMgr mm = SkbShellFactory.newShell("test", false).getMessageManager();
+		for(int i=0; i<plan.size(); i++){
+			assertEquals(0, plan.getStep(i).execute(mm));
+		}
+		assertEquals("[1, 2]", numbers.toString());
+	}
+
+	@Test
+	public void testStream() throws IOException {
+		File file = File.createTempFile("test", ".ssc");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "echo a\n".getBytes());
+
+		ScriptCache cache = new ScriptCache(1, 4);
+		assertNull(cache.get(new FileSource(file.getAbsolutePath()), new HashMap<>()));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,106 @@
+/* Copyright 2014 Sven van der Meer <vdmeer.sven@mykolab.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.vandermeer.skb.base.shell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SkbShellArgumentSchema} and {@link SkbShellArguments}.
+ *
+ * @author     Sven van der Meer &lt;vdmeer.sven@mykolab.com&gt;
+ * @version    v0.2.0 build 170404 (04-Apr-17) for Java 1.8
+ * @since      v0.2.0
+ */
+public class Test_SkbShellArgumentSchema {
+
+	static final SkbShellArgument N = SkbShellFactory.newArgument("n", false, SkbShellArgumentType.Integer, new Object[]{1, "2", 3L}, "a number", null);
+	static final SkbShellArgument D = SkbShellFactory.newArgument("d", true, SkbShellArgumentType.Double, null, "a double", null);
+	static final SkbShellArgument B = SkbShellFactory.newArgument("b", true, SkbShellArgumentType.Boolean, null, "a boolean", null);
+	static final SkbShellArgument C = SkbShellFactory.newArgument("c", true, SkbShellArgumentType.Char, null, "a character", null);
+	static final SkbShellArgument S = SkbShellFactory.newArgument("s", true, SkbShellArgumentType.String, new Object[]{"x, y", "z"}, "a string", null);
+	static final SkbShellArgument LS = SkbShellFactory.newArgument("ls", true, SkbShellArgumentType.ListString, null, "strings", null);
+	static final SkbShellArgument LI = SkbShellFactory.newArgument("li", true, SkbShellArgumentType.ListInteger, null, "integers", null);
+
+	@Test
+	public void testParse(){
+		SkbShellCommand cmd = SkbShellFactory.newCommand("cmd", new SkbShellArgument[]{N, D, B, C, S, LS, LI, null}, SkbShellFactory.SIMPLE_COMMANDS, "a command", null);
+		SkbShellArgumentSchema schema = cmd.getArgumentSchema();
+		assertTrue(schema==cmd.getArgumentSchema());
+		assertEquals(7, schema.size());
+		assertEquals(5, schema.slot("ls"));
+		assertEquals(-1, schema.slot("other"));
+
+		SkbShellArguments args = schema.parse(new LineParser("cmd n:2, d:-1.5, b:TRUE, c:x, s:\"x, y\", ls:a;;b, li:-1;2, other:1"));
+		assertFalse(args.hasErrors());
+		assertEquals(2, args.getInt(N, 0));
+		assertEquals(-1.5, args.getDouble(D, 0), 0);
+		assertTrue(args.getBoolean(B, false));
+		assertEquals('x', args.getChar(C, ' '));
+		assertEquals("x, y", args.getString(S));
+		assertArrayEquals(new String[]{"a", "b"}, args.getStringList(LS));
+		assertArrayEquals(new int[]{-1, 2}, args.getIntList(LI));
+
+		int[] list = args.getIntList(LI);
+		assertTrue(args==schema.parse(new LineParser("cmd n:3"), args));
+		assertFalse(args.hasErrors());
+		assertEquals(3, args.getInt(N, 0));
+		assertFalse(args.has(D));
+		assertEquals(7.0, args.getDouble(D, 7.0), 0);
+		assertNull(args.getIntList(LI));
+		assertArrayEquals(new int[]{-1, 2}, list);
+	}
+
+	@Test
+	public void testErrors(){
+		SkbShellArgumentSchema schema = SkbShellArgumentSchema.compile(new SkbShellArgument[]{N, D, B, C, S, LI});
+
+		SkbShellArguments args = schema.parse(new LineParser("cmd d:1.5"));
+		assertTrue(args.hasErrors());
+		assertEquals(1, args.getErrors().getMessages().size());
+		assertTrue(args.has(D));
+
+		args = schema.parse(new LineParser("cmd n:4, d:x, b:yes, c:xy, s:y, li:1;a"));
+		assertEquals(6, args.getErrors().getMessages().size());
+		assertFalse(args.has(N));
+		assertFalse(args.has(S));
+
+		args = schema.parse(new LineParser("cmd n:99999999999"));
+		assertEquals(1, args.getErrors().getMessages().size());
+
+		try{
+			args.getString(N);
+			assertTrue(false);
+		}
+		catch(IllegalArgumentException expected){}
+		try{
+			args.getString(LS);
+			assertTrue(false);
+		}
+		catch(IllegalArgumentException expected){}
+		try{
+			SkbShellArgumentSchema.compile(null).parse(new LineParser("cmd"), args);
+			assertTrue(false);
+		}
+		catch(IllegalArgumentException expected){}
+	}
+
+}